@@ -10,6 +10,14 @@ plugins {
     checkstyle
 }
 
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets["main"].output
+    runtimeClasspath += sourceSets["main"].output
+}
+val jmhImplementation: Configuration by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+
 repositories {
     // Use jcenter for resolving dependencies.
     // You can declare any Maven/Ivy/file repository here.
@@ -31,6 +39,9 @@ dependencies {
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.7.0")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.7.0")
 
+    jmhImplementation("org.openjdk.jmh:jmh-core:1.28")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.28")
+
 }
 
 application {
@@ -62,6 +73,21 @@ task("runMain", JavaExec::class) {
     classpath = sourceSets["main"].runtimeClasspath
 }
 
+task("jmh", JavaExec::class) {
+    description = "Runs the JMH benchmarks, reporting time and allocation rates."
+    group = "verification"
+    main = "org.openjdk.jmh.Main"
+    classpath = jmh.runtimeClasspath
+    val results = file("$buildDir/reports/jmh/results.json")
+    args("-prof", "gc", "-rf", "json", "-rff", results.path)
+    if (project.hasProperty("jmhInclude")) {
+        args(project.property("jmhInclude"))
+    }
+    doFirst {
+        results.parentFile.mkdirs()
+    }
+}
+
 tasks.withType<Test> {
     useJUnitPlatform()
     finalizedBy(tasks.jacocoTestReport) // report is always generated after tests run
@@ -116,4 +142,8 @@ tasks.spotbugsTest {
         setStylesheet("fancy-hist.xsl")
     }
 }
+tasks.named("spotbugsJmh") {
+    // the benchmark classes are mostly generated by JMH
+    enabled = false
+}
 
@@ -0,0 +1,161 @@
+package eu.eutampieri.catacombs.benchmarks;
+
+import eu.eutampieri.catacombs.model.map.GenerationParameters;
+import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to build maps and to scan them.
+ * Run with ./gradlew jmh, optionally passing -PjmhInclude=regexp to select the benchmarks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapGenerationBenchmark {
+    private static final long SEED = 42;
+
+    /**
+     * A factory of the kind of maps to benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Factory {
+        /**
+         * Whether the maps are PackedTileMaps or TileMapImpls.
+         */
+        @Param({ "false", "true" })
+        private boolean packed;
+
+        private TileMapFactoryImpl factory;
+
+        /**
+         * Creates the factory.
+         */
+        @Setup
+        public void setup() {
+            factory = new TileMapFactoryImpl(packed);
+        }
+    }
+
+    /**
+     * The parameters of the maps built by normal.
+     */
+    @State(Scope.Benchmark)
+    public static class Generation {
+        /**
+         * Number of rooms.
+         */
+        @Param({ "16", "256", "4096" })
+        private int rooms;
+
+        /**
+         * Minimum and maximum room side, separated by a colon.
+         */
+        @Param({ "8:16", "4:8" })
+        private String roomSides;
+
+        private GenerationParameters parameters;
+
+        /**
+         * Parses the parameters.
+         */
+        @Setup
+        public void setup() {
+            final String[] sides = roomSides.split(":");
+            final int minSide = Integer.parseInt(sides[0]);
+            final int maxSide = Integer.parseInt(sides[1]);
+            // keep about the same ratio between room sides and distances as the default parameters
+            parameters = new GenerationParameters(rooms, minSide, maxSide, 2 * maxSide, 2 * maxSide + maxSide / 2 + 2);
+        }
+    }
+
+    /**
+     * The side of the maps built by empty.
+     */
+    @State(Scope.Benchmark)
+    public static class Empty {
+        /**
+         * Side of the map in tiles.
+         */
+        @Param({ "64", "1024" })
+        private int side;
+    }
+
+    /**
+     * A map with the default parameters to scan.
+     */
+    @State(Scope.Benchmark)
+    public static class Scan {
+        private TileMap map;
+
+        /**
+         * Generates the map.
+         * @param factory the factory of the map
+         */
+        @Setup
+        public void setup(final Factory factory) {
+            map = factory.factory.seededDef(SEED);
+        }
+    }
+
+    /**
+     * @param factory the factory of the map
+     * @return a map with the default parameters.
+     */
+    @Benchmark
+    public TileMap seededDef(final Factory factory) {
+        return factory.factory.seededDef(SEED);
+    }
+
+    /**
+     * @param factory    the factory of the map
+     * @param generation the parameters of the map
+     * @return a map with the benchmark parameters.
+     */
+    @Benchmark
+    public TileMap normal(final Factory factory, final Generation generation) {
+        return factory.factory.seeded(SEED, generation.parameters);
+    }
+
+    /**
+     * @param factory the factory of the map
+     * @param empty   the size of the map
+     * @return an empty map.
+     */
+    @Benchmark
+    public TileMap empty(final Factory factory, final Empty empty) {
+        return factory.factory.empty(empty.side, empty.side);
+    }
+
+    /**
+     * @param scan the map to scan
+     * @return the number of tiles of the map an entity can spawn on.
+     */
+    @Benchmark
+    public int canSpawnAtScan(final Scan scan) {
+        final TileMap map = scan.map;
+        int res = 0;
+        for (int y = 0; y < map.height(); y++) {
+            for (int x = 0; x < map.width(); x++) {
+                if (map.canSpawnAt(x, y)) {
+                    res++;
+                }
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,33 @@
+package eu.eutampieri.catacombs.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells the time, in nanoseconds from an arbitrary origin, so that a game can run in real time or faster.
+ */
+@FunctionalInterface
+public interface Clock {
+    /**
+     * @return the current time in nanoseconds.
+     */
+    long nanoTime();
+
+    /**
+     * @return a clock telling the real time.
+     */
+    static Clock system() {
+        return System::nanoTime;
+    }
+
+    /**
+     * @param step nanoseconds the clock moves forward each time it's read
+     * @return a clock which moves forward by the same time whenever it's read, however much real time has passed
+     */
+    static Clock stepping(final long step) {
+        if (step < 0) {
+            throw new IllegalArgumentException();
+        }
+        final AtomicLong now = new AtomicLong();
+        return () -> now.addAndGet(step);
+    }
+}
@@ -0,0 +1,145 @@
+package eu.eutampieri.catacombs.game;
+
+import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.ui.FixedTimestep;
+import eu.eutampieri.catacombs.ui.Viewport;
+import eu.eutampieri.catacombs.ui.World;
+import eu.eutampieri.catacombs.ui.input.InputSource;
+
+import java.util.SplittableRandom;
+
+/**
+ * Runs a world without a window, a canvas or any image, e.g. for servers, bots and regression scenarios.
+ * The world is updated at a fixed rate as the game does, but the time is told by a clock: with a stepping clock
+ * each step runs an update at once, so the world runs as fast as the processor allows.
+ * Given the same map, seed and input, a runtime with a stepping clock always plays the same way.
+ */
+public final class HeadlessRuntime {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    private final World world;
+    private final Clock clock;
+    private final FixedTimestep timestep;
+    private long lastTime;
+    /**
+     * Updates which are due but haven't been run yet, because a step was asked to run fewer.
+     */
+    private int pending;
+
+    /**
+     * @param tileMap        the map of the world
+     * @param viewport       the area around the player whose entities are updated
+     * @param input          where the commands of the player come from
+     * @param clock          the clock telling how many updates are due
+     * @param ticksPerSecond the number of updates in a second of the clock
+     */
+    public HeadlessRuntime(final TileMap tileMap, final Viewport viewport, final InputSource input,
+            final Clock clock, final int ticksPerSecond) {
+        this(tileMap, viewport, input, new SplittableRandom().nextLong(), false, clock, ticksPerSecond);
+    }
+
+    /**
+     * @param tileMap        the map of the world
+     * @param viewport       the area around the player whose entities are updated
+     * @param input          where the commands of the player come from
+     * @param seed           the seed of every random choice of the world
+     * @param parallelUpdate if the world updates its independent parts in parallel
+     * @param clock          the clock telling how many updates are due
+     * @param ticksPerSecond the number of updates in a second of the clock
+     */
+    public HeadlessRuntime(final TileMap tileMap, final Viewport viewport, final InputSource input,
+            final long seed, final boolean parallelUpdate, final Clock clock, final int ticksPerSecond) {
+        this.world = new World(tileMap, viewport, input, seed);
+        this.world.setParallelUpdate(parallelUpdate);
+        this.clock = clock;
+        this.timestep = new FixedTimestep(ticksPerSecond, MAX_CATCH_UP_TICKS);
+        this.lastTime = clock.nanoTime();
+    }
+
+    /**
+     * Creates a runtime which updates the world once for each step, as fast as possible.
+     * @param tileMap        the map of the world
+     * @param viewport       the area around the player whose entities are updated
+     * @param input          where the commands of the player come from
+     * @param ticksPerSecond the number of updates in a second of the game
+     * @return the runtime
+     */
+    public static HeadlessRuntime unthrottled(final TileMap tileMap, final Viewport viewport,
+            final InputSource input, final int ticksPerSecond) {
+        return unthrottled(tileMap, viewport, input, new SplittableRandom().nextLong(), ticksPerSecond);
+    }
+
+    /**
+     * Creates a runtime which updates the world once for each step, as fast as possible.
+     * @param tileMap        the map of the world
+     * @param viewport       the area around the player whose entities are updated
+     * @param input          where the commands of the player come from
+     * @param seed           the seed of every random choice of the world
+     * @param ticksPerSecond the number of updates in a second of the game
+     * @return the runtime
+     */
+    public static HeadlessRuntime unthrottled(final TileMap tileMap, final Viewport viewport,
+            final InputSource input, final long seed, final int ticksPerSecond) {
+        return new HeadlessRuntime(tileMap, viewport, input, seed, false,
+                Clock.stepping(NANOS_PER_SECOND / ticksPerSecond), ticksPerSecond);
+    }
+
+    /**
+     * @return the world being run.
+     */
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Runs the updates which are due since the last step, and the ones a previous step left, unless the game is
+     * over.
+     * @return the number of updates run
+     */
+    public int step() {
+        return this.step(Integer.MAX_VALUE);
+    }
+
+    private int step(final long limit) {
+        final long now = this.clock.nanoTime();
+        this.pending += this.timestep.advance(now - this.lastTime);
+        this.lastTime = now;
+        int run = 0;
+        // the updates left are still due, and run by the next steps
+        while (run < this.pending && run < limit && !this.isOver()) {
+            this.world.update(this.timestep.nextDelta());
+            run++;
+        }
+        this.pending = this.isOver() ? 0 : this.pending - run;
+        return run;
+    }
+
+    /**
+     * Steps until the game is over or a number of updates has been run.
+     * With a clock telling the real time, it waits for the updates to be due without sleeping.
+     * @param maxTicks the maximum number of updates to run
+     * @return the number of updates run
+     */
+    public long run(final long maxTicks) {
+        final long from = this.timestep.getTicks();
+        while (this.timestep.getTicks() - from < maxTicks && !this.isOver()) {
+            this.step(maxTicks - (this.timestep.getTicks() - from));
+        }
+        return this.timestep.getTicks() - from;
+    }
+
+    /**
+     * @return the number of updates run so far.
+     */
+    public long getTicks() {
+        return this.timestep.getTicks();
+    }
+
+    /**
+     * @return if the player is dead or has won.
+     */
+    public boolean isOver() {
+        return !this.world.getPlayer().isAlive() || this.world.playerHasWon();
+    }
+}
@@ -7,7 +7,9 @@ import java.awt.Toolkit;
 import java.awt.Dimension;
 
 public final class Main {
-    private static final int FPS = 30;
+    private static final int FPS = 60;
+    private static final int TICKS_PER_SECOND = 30;
+    private static final String CHUNKS_OPTION = "--chunks=";
 
     private Main() {
 
@@ -15,7 +17,8 @@ public final class Main {
 
     /**
      * Main entry point for game.
-     * @param args main args
+     * @param args main args: the file the game is recorded to, if it has to be recorded, and --chunks=N to play
+     *             on a map of N by N chunks generated as it's explored instead of a dungeon
      */
 
     public static void main(final String[] args) {
@@ -25,7 +28,17 @@ public final class Main {
 
         final GameConfiguration gc = new GameConfiguration();
         gc.setFps(FPS);
+        gc.setTicksPerSecond(TICKS_PER_SECOND);
+        gc.setPipelined(Runtime.getRuntime().availableProcessors() > 1);
+        gc.setParallelUpdate(Runtime.getRuntime().availableProcessors() > 1);
         gc.setFullScreen(false);
+        for (final String arg : args) {
+            if (arg.startsWith(CHUNKS_OPTION)) {
+                gc.setMapChunks(Integer.parseInt(arg.substring(CHUNKS_OPTION.length())));
+            } else {
+                gc.setReplayFile(arg);
+            }
+        }
 
         gc.setGameWidth((int) (width / 1.25));
         gc.setGameHeight((int) (height / 1.25));
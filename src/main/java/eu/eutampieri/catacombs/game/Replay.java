@@ -0,0 +1,374 @@
+package eu.eutampieri.catacombs.game;
+
+import eu.eutampieri.catacombs.model.map.GenerationParameters;
+import eu.eutampieri.catacombs.ui.Viewport;
+import eu.eutampieri.catacombs.ui.World;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A recorded game: how the map was made, the seed the world was made with, and the keys and milliseconds of every
+ * update, which are all a world needs to play the same game again, together with the state of the world every so many
+ * updates, so that a replay can jump to any update without running all the ones before it.
+ * Keys and milliseconds are kept as runs of updates where they don't change, since they seldom do.
+ * Ticks count the updates run, so the state at tick t is the one after t updates, and the update at tick t is the
+ * one leading from it to tick t + 1.
+ */
+public final class Replay {
+    private static final int MAGIC = 0x43_52_50_4C; // "CRPL"
+    private static final byte VERSION = 5;
+    /**
+     * Replays of this version were all played on dungeons with the default parameters, and only record the seed
+     * of the map.
+     * Replays of version 2 were played on maps with corridors two tiles wide, which can't be made again.
+     */
+    private static final byte DUNGEON_VERSION = 1;
+    /**
+     * Replays of this version don't record the parameters of the map, which were the default ones.
+     */
+    private static final byte DEFAULT_PARAMETERS_VERSION = 3;
+    /**
+     * Replays of this version and older ones on chunked maps spawned the starting population over the whole map,
+     * and aren't read; the ones on dungeons are.
+     */
+    private static final byte GLOBAL_POPULATION_VERSION = 4;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = 0x7F;
+    private static final int VARINT_MORE = 0x80;
+
+    private final long mapSeed;
+    private final GenerationParameters parameters;
+    private final int mapChunks;
+    private final long masterSeed;
+    private final int viewportWidth;
+    private final int viewportHeight;
+    private final boolean parallelUpdate;
+    private final Runs masks = new Runs();
+    private final Runs deltas = new Runs();
+    private long ticks;
+    private final NavigableMap<Long, byte[]> keyframes = new TreeMap<>();
+
+    /**
+     * The ticks where a value changes and the value from each of them on.
+     */
+    private static final class Runs {
+        private static final int INITIAL_CAPACITY = 16;
+        private long[] starts = new long[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int count;
+
+        void append(final long tick, final long value) {
+            if (count > 0 && values[count - 1] == value) {
+                return;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            starts[count] = tick;
+            values[count] = value;
+            count++;
+        }
+
+        long valueAt(final long tick) {
+            final int found = Arrays.binarySearch(starts, 0, count, tick);
+            return values[found >= 0 ? found : -found - 2];
+        }
+
+        void write(final DataOutputStream out) throws IOException {
+            writeVarLong(out, count);
+            for (int i = 0; i < count; i++) {
+                writeVarLong(out, i == 0 ? starts[i] : starts[i] - starts[i - 1]);
+                writeVarLong(out, values[i]);
+            }
+        }
+
+        void read(final DataInputStream in, final long ticks) throws IOException {
+            final long n = readVarLong(in);
+            long tick = 0;
+            for (long i = 0; i < n; i++) {
+                final long step = readVarLong(in);
+                tick += step;
+                final long value = readVarLong(in);
+                if (i == 0 && step != 0 || i > 0 && step <= 0 || tick >= ticks || value < 0
+                        || count > 0 && values[count - 1] == value) {
+                    throw new IOException("Corrupted replay");
+                }
+                append(tick, value);
+            }
+            if (ticks > 0 && count == 0) {
+                throw new IOException("Corrupted replay");
+            }
+        }
+    }
+
+    /**
+     * Starts a replay with no updates.
+     * @param mapSeed        the seed the map was generated with
+     * @param parameters     the parameters the map was generated with, if it's a dungeon
+     * @param mapChunks      the side in chunks of the map, if it's a chunked map, or 0 if it's a dungeon
+     * @param masterSeed     the seed of the world
+     * @param viewport       the area around the player whose entities are updated
+     * @param parallelUpdate if the world updates its independent parts in parallel
+     */
+    Replay(final long mapSeed, final GenerationParameters parameters, final int mapChunks, final long masterSeed,
+            final Viewport viewport, final boolean parallelUpdate) {
+        this(mapSeed, parameters, mapChunks, masterSeed, viewport.getWidth(), viewport.getHeight(),
+                parallelUpdate);
+    }
+
+    private Replay(final long mapSeed, final GenerationParameters parameters, final int mapChunks,
+            final long masterSeed, final int viewportWidth, final int viewportHeight,
+            final boolean parallelUpdate) {
+        if (mapChunks < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.mapSeed = mapSeed;
+        this.parameters = parameters;
+        this.mapChunks = mapChunks;
+        this.masterSeed = masterSeed;
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+        this.parallelUpdate = parallelUpdate;
+    }
+
+    /**
+     * Adds an update.
+     * @param mask  the keys pressed, as a mask of SampledInput
+     * @param delta the milliseconds of the update
+     */
+    void append(final int mask, final long delta) {
+        if (mask < 0 || delta < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.masks.append(this.ticks, mask);
+        this.deltas.append(this.ticks, delta);
+        this.ticks++;
+    }
+
+    /**
+     * Adds the state of the world at the current tick.
+     * @param state the state, as written by World.writeState
+     */
+    void addKeyframe(final byte[] state) {
+        this.keyframes.put(this.ticks, state);
+    }
+
+    /**
+     * @param tick a tick
+     * @return the last keyframe at or before the tick, as its tick and the state of the world at it.
+     */
+    Map.Entry<Long, byte[]> keyframeBefore(final long tick) {
+        return this.keyframes.floorEntry(tick);
+    }
+
+    /**
+     * @return the seed the map was generated with.
+     */
+    public long getMapSeed() {
+        return this.mapSeed;
+    }
+
+    /**
+     * @return the parameters the map was generated with by TileMapFactory.seeded, if it's a dungeon.
+     */
+    public GenerationParameters getParameters() {
+        return this.parameters;
+    }
+
+    /**
+     * @return the side in chunks of the map, if it was generated by TileMapFactory.chunked, or 0 if it was
+     *         generated by TileMapFactory.seeded.
+     */
+    public int getMapChunks() {
+        return this.mapChunks;
+    }
+
+    /**
+     * @return the seed of the world.
+     */
+    public long getMasterSeed() {
+        return this.masterSeed;
+    }
+
+    /**
+     * @return the area around the player whose entities are updated.
+     */
+    public Viewport getViewport() {
+        return Viewport.of(this.viewportWidth, this.viewportHeight);
+    }
+
+    /**
+     * @return if the world updated its independent parts in parallel, which plays the same as updating them in
+     *         order, but is played again the same way.
+     */
+    public boolean isParallelUpdate() {
+        return this.parallelUpdate;
+    }
+
+    /**
+     * @return the number of updates recorded.
+     */
+    public long getTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * @return the number of states of the world recorded.
+     */
+    public int getKeyframeCount() {
+        return this.keyframes.size();
+    }
+
+    /**
+     * @param tick the tick of an update, from 0 to the number of updates
+     * @return the keys pressed in the update, as a mask of SampledInput.
+     */
+    public int maskAt(final long tick) {
+        checkTick(tick);
+        return (int) this.masks.valueAt(tick);
+    }
+
+    /**
+     * @param tick the tick of an update, from 0 to the number of updates
+     * @return the milliseconds of the update.
+     */
+    public long deltaAt(final long tick) {
+        checkTick(tick);
+        return this.deltas.valueAt(tick);
+    }
+
+    private void checkTick(final long tick) {
+        if (tick < 0 || tick >= this.ticks) {
+            throw new IllegalArgumentException("No update at tick " + tick);
+        }
+    }
+
+    /**
+     * Writes the replay compressed.
+     * @param out where the replay is written, which is left open
+     * @throws IOException if the replay can't be written
+     */
+    public void write(final OutputStream out) throws IOException {
+        final GZIPOutputStream zip = new GZIPOutputStream(out);
+        final DataOutputStream data = new DataOutputStream(zip);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(this.mapSeed);
+        data.writeInt(this.mapChunks);
+        data.writeInt(this.parameters.getRooms());
+        data.writeInt(this.parameters.getMinRoomSide());
+        data.writeInt(this.parameters.getMaxRoomSide());
+        data.writeInt(this.parameters.getMinRoomDist());
+        data.writeInt(this.parameters.getMaxRoomDist());
+        data.writeInt(this.parameters.getCorridorWidth());
+        data.writeLong(this.masterSeed);
+        data.writeInt(this.viewportWidth);
+        data.writeInt(this.viewportHeight);
+        data.writeBoolean(this.parallelUpdate);
+        writeVarLong(data, this.ticks);
+        this.masks.write(data);
+        this.deltas.write(data);
+        writeVarLong(data, this.keyframes.size());
+        long previous = 0;
+        for (final Map.Entry<Long, byte[]> keyframe : this.keyframes.entrySet()) {
+            writeVarLong(data, keyframe.getKey() - previous);
+            writeVarLong(data, keyframe.getValue().length);
+            data.write(keyframe.getValue());
+            previous = keyframe.getKey();
+        }
+        data.flush();
+        zip.finish();
+    }
+
+    /**
+     * Reads a replay written by {@link #write(OutputStream)}.
+     * @param in where the replay is read from
+     * @return the replay
+     * @throws IOException if the replay can't be read or isn't one
+     */
+    public static Replay read(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(new GZIPInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        final byte version = data.readByte();
+        if (version != VERSION && version != GLOBAL_POPULATION_VERSION && version != DEFAULT_PARAMETERS_VERSION
+                && version != DUNGEON_VERSION) {
+            throw new IOException("Not a replay");
+        }
+        final long mapSeed = data.readLong();
+        final int mapChunks = version == DUNGEON_VERSION ? 0 : data.readInt();
+        if (mapChunks > 0 && version != VERSION) {
+            throw new IOException("Replay on a chunked map from an older version");
+        }
+        final GenerationParameters parameters;
+        try {
+            // Check:OFF: MagicNumber
+            parameters = version >= GLOBAL_POPULATION_VERSION ? new GenerationParameters(data.readInt(), data.readInt(),
+                    data.readInt(), data.readInt(), data.readInt(), data.readInt()) : GenerationParameters.DEFAULT;
+            // Check:ON: MagicNumber
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted replay", e);
+        }
+        final long masterSeed = data.readLong();
+        final int width = data.readInt();
+        final int height = data.readInt();
+        final boolean parallel = data.readBoolean();
+        if (mapChunks < 0 || width < 1 || height < 1) {
+            throw new IOException("Corrupted replay");
+        }
+        final Replay replay = new Replay(mapSeed, parameters, mapChunks, masterSeed, width, height, parallel);
+        replay.ticks = readVarLong(data);
+        replay.masks.read(data, replay.ticks);
+        replay.deltas.read(data, replay.ticks);
+        final long keyframes = readVarLong(data);
+        long tick = 0;
+        for (long i = 0; i < keyframes; i++) {
+            final long step = readVarLong(data);
+            tick += step;
+            final long length = readVarLong(data);
+            if (i > 0 && step == 0 || tick > replay.ticks || length > World.MAX_STATE_BYTES) {
+                throw new IOException("Corrupted replay");
+            }
+            // the buffer grows with the bytes actually read, so a wrong length can't take more memory than the file
+            final byte[] state = data.readNBytes((int) length);
+            if (state.length != length) {
+                throw new IOException("Truncated replay");
+            }
+            replay.keyframes.put(tick, state);
+        }
+        return replay;
+    }
+
+    private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+        long v = value;
+        while ((v & ~VARINT_MASK) != 0) {
+            out.writeByte((int) (v & VARINT_MASK | VARINT_MORE));
+            v >>>= VARINT_BITS;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long res = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += VARINT_BITS) {
+            final int b = in.readUnsignedByte();
+            res |= (long) (b & VARINT_MASK) << shift;
+            if ((b & VARINT_MORE) == 0) {
+                return res;
+            }
+        }
+        throw new IOException("Corrupted replay");
+    }
+}
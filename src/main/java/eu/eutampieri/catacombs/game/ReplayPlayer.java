@@ -0,0 +1,95 @@
+package eu.eutampieri.catacombs.game;
+
+import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.TileMapFactory;
+import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
+import eu.eutampieri.catacombs.ui.World;
+import eu.eutampieri.catacombs.ui.input.SampledInput;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Plays a replay again on a world of its own, made from the seeds of the replay, without a window or any image.
+ * The world goes through the same states it went through when it was recorded, one update at a time or jumping
+ * to any update from the last state recorded before it.
+ */
+public final class ReplayPlayer {
+    private final Replay replay;
+    private final SampledInput input = new SampledInput();
+    private final World world;
+
+    /**
+     * @param replay the replay to play
+     */
+    public ReplayPlayer(final Replay replay) {
+        this.replay = replay;
+        final TileMapFactory tmf = new TileMapFactoryImpl(true);
+        final int chunks = replay.getMapChunks();
+        final TileMap map = chunks == 0 ? tmf.seeded(replay.getMapSeed(), replay.getParameters())
+                : tmf.chunked(replay.getMapSeed(), chunks, chunks);
+        this.world = new World(map, replay.getViewport(), this.input, replay.getMasterSeed());
+        this.world.setParallelUpdate(replay.isParallelUpdate());
+    }
+
+    /**
+     * @return the world the replay is played on.
+     */
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * @return the number of updates the world has gone through.
+     */
+    public long getTick() {
+        return this.world.getTicks();
+    }
+
+    /**
+     * @return if all the updates of the replay have been played.
+     */
+    public boolean isFinished() {
+        return this.getTick() >= this.replay.getTicks();
+    }
+
+    /**
+     * Plays the next update, if there is one.
+     * @return if an update was played
+     */
+    public boolean step() {
+        if (this.isFinished()) {
+            return false;
+        }
+        final long tick = this.getTick();
+        this.input.setMask(this.replay.maskAt(tick));
+        this.world.update(this.replay.deltaAt(tick));
+        return true;
+    }
+
+    /**
+     * Brings the world to the state it had after a number of updates, restoring the last state recorded before it
+     * if it's behind the world or farther ahead than that state, and then playing the updates left.
+     * @param tick the number of updates, from 0 to the number of updates of the replay
+     */
+    public void seek(final long tick) {
+        if (tick < 0 || tick > this.replay.getTicks()) {
+            throw new IllegalArgumentException("No tick " + tick + " in the replay");
+        }
+        final Map.Entry<Long, byte[]> keyframe = this.replay.keyframeBefore(tick);
+        if (keyframe != null && (tick < this.getTick() || keyframe.getKey() > this.getTick())) {
+            try {
+                this.world.readState(new ByteArrayInputStream(keyframe.getValue()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else if (tick < this.getTick()) {
+            throw new IllegalStateException("No state recorded before tick " + tick);
+        }
+        while (this.getTick() < tick) {
+            this.step();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package eu.eutampieri.catacombs.game;
+
+import eu.eutampieri.catacombs.model.map.GenerationParameters;
+import eu.eutampieri.catacombs.ui.Viewport;
+import eu.eutampieri.catacombs.ui.World;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Updates a world recording what it needs to be replayed: the keys it reads and the milliseconds of each update,
+ * and its whole state every so many updates.
+ */
+public final class ReplayRecorder {
+    private final World world;
+    private final int keyframeInterval;
+    private final Replay replay;
+
+    /**
+     * @param mapSeed          the seed the map of the world was generated with by TileMapFactory.seededDef
+     * @param world            a world which hasn't been updated yet
+     * @param viewport         the area around the player whose entities are updated, whose size is taken now
+     * @param keyframeInterval the number of updates between two recorded states of the world
+     */
+    public ReplayRecorder(final long mapSeed, final World world, final Viewport viewport,
+            final int keyframeInterval) {
+        this(mapSeed, GenerationParameters.DEFAULT, 0, world, viewport, keyframeInterval);
+    }
+
+    /**
+     * @param mapSeed          the seed the map of the world was generated with by TileMapFactory.seeded
+     * @param parameters       the parameters the map of the world was generated with
+     * @param world            a world which hasn't been updated yet
+     * @param viewport         the area around the player whose entities are updated, whose size is taken now
+     * @param keyframeInterval the number of updates between two recorded states of the world
+     */
+    public ReplayRecorder(final long mapSeed, final GenerationParameters parameters, final World world,
+            final Viewport viewport, final int keyframeInterval) {
+        this(mapSeed, parameters, 0, world, viewport, keyframeInterval);
+    }
+
+    /**
+     * @param mapSeed          the seed the map of the world was generated with by TileMapFactory.chunked
+     * @param mapChunks        the side in chunks of the map
+     * @param world            a world which hasn't been updated yet
+     * @param viewport         the area around the player whose entities are updated, whose size is taken now
+     * @param keyframeInterval the number of updates between two recorded states of the world
+     */
+    public ReplayRecorder(final long mapSeed, final int mapChunks, final World world, final Viewport viewport,
+            final int keyframeInterval) {
+        this(mapSeed, GenerationParameters.DEFAULT, mapChunks, world, viewport, keyframeInterval);
+        if (mapChunks < 1) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private ReplayRecorder(final long mapSeed, final GenerationParameters parameters, final int mapChunks,
+            final World world, final Viewport viewport, final int keyframeInterval) {
+        if (world.getTicks() != 0 || keyframeInterval < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.world = world;
+        this.keyframeInterval = keyframeInterval;
+        this.replay = new Replay(mapSeed, parameters, mapChunks, world.getSeed(), viewport,
+                world.isParallelUpdate());
+        this.replay.addKeyframe(stateOf(world));
+    }
+
+    /**
+     * Updates the world and records the update.
+     * @param delta the number of milliseconds elapsed since the last update
+     */
+    public void update(final long delta) {
+        this.world.update(delta);
+        this.replay.append(this.world.getInputMask(), delta);
+        if (this.replay.getTicks() % this.keyframeInterval == 0) {
+            this.replay.addKeyframe(stateOf(this.world));
+        }
+    }
+
+    /**
+     * @return the replay of the updates recorded so far, which goes on growing if the recording does.
+     */
+    public Replay getReplay() {
+        return this.replay;
+    }
+
+    /**
+     * @param world a world
+     * @return the state of the world, as written by World.writeState.
+     */
+    static byte[] stateOf(final World world) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            world.writeState(out);
+        } catch (IOException e) {
+            // the objects of a world are always serializable and the stream is in memory
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -3,26 +3,26 @@ package eu.eutampieri.catacombs.model;
 import eu.eutampieri.catacombs.model.gen.ObjectFactoryImpl;
 import eu.eutampieri.catacombs.model.gen.ObjectFactory;
 import eu.eutampieri.catacombs.model.map.TileMap;
-import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Bat class - the bat is an enemy that mostly stands still and fires bullets.
  * @see Entity
  */
 public final class Bat extends Entity {
+    private static final long serialVersionUID = 1L;
 
     private static final int HEIGHT = 16;
     private static final int WIDTH = 16;
     private static final int MOVEMENT_SPEED = 3;
     private static final int HEALTH = 8;
-    private static final int RADAR_BOX_POSITION_MODIFIER = 20 * AssetManagerProxy.getMapTileSize();
-    private static final int RADAR_BOX_SIZE = 20 * 2 * AssetManagerProxy.getMapTileSize() + Math.max(WIDTH, HEIGHT);
+    private static final int RADAR_RANGE = 20;
     private static final int BASE_DAMAGE = 5;
     private static final int BASE_FIRE_RATE = 40;
     private static final int BASE_PROJECTILE_SPEED = 3;
@@ -38,6 +38,10 @@ public final class Bat extends Entity {
     private long delayCounter;
     private long pauseCounter;
     private final CollisionBox radarBox;
+    /**
+     * Distance in world units between the radar box and the hit box.
+     */
+    private final int radarOffset;
     private final Point shootingDirection;
     private boolean hasDropped;
 
@@ -47,13 +51,23 @@ public final class Bat extends Entity {
      * @param tileMap Tile map in which Bat is spawned
      */
     public Bat(final int x, final int y, final TileMap tileMap) {
+        this(x, y, tileMap, new SplittableRandom());
+    }
+
+    /**
+     * @param x       X spawn position
+     * @param y       Y spawn position
+     * @param tileMap Tile map in which Bat is spawned
+     * @param rand    the source of randomness choosing where the Bat faces
+     */
+    public Bat(final int x, final int y, final TileMap tileMap, final SplittableRandom rand) {
         super(x, y, WIDTH, HEIGHT, tileMap, GameObjectType.ENEMY, GameObject.Team.ENEMY);
         setSpeed(MOVEMENT_SPEED);
         setHealth(HEALTH);
-        final Random rand = new Random();
         face = rand.nextBoolean() ? Direction.LEFT : Direction.RIGHT;
-        radarBox = new CollisionBox(posX - RADAR_BOX_POSITION_MODIFIER, posY - RADAR_BOX_POSITION_MODIFIER,
-                RADAR_BOX_SIZE, RADAR_BOX_SIZE);
+        radarOffset = tileMap.geometry().length(RADAR_RANGE);
+        final int radarSize = 2 * radarOffset + Math.max(WIDTH, HEIGHT);
+        radarBox = new CollisionBox(getPosX() - radarOffset, getPosY() - radarOffset, radarSize, radarSize);
         weapon = new Weapon(this, tileMap, this.getHitBox().getPosX(), this.getHitBox().getPosY(),
                 BASE_DAMAGE, BASE_PROJECTILE_SPEED, BASE_FIRE_RATE, this.getTeam()) { };
         shootingDirection = new Point(0, 0);
@@ -63,8 +77,7 @@ public final class Bat extends Entity {
     }
 
     @Override
-    public List<GameObject> update(final long delta, final List<GameObject> others) {
-        final Random rand = new Random();
+    public List<GameObject> update(final long delta, final WorldView world) {
         resetShootingDirection();
         if (isMoving) {
             delayCounter += delta;
@@ -81,8 +94,7 @@ public final class Bat extends Entity {
                 changeDirection();
             }
         }
-        others.stream().filter((x) -> x instanceof Player)
-                .filter((x) -> x.getHitBox().overlaps(this.radarBox)).findFirst()
+        world.getPlayer().filter((x) -> x.getHitBox().overlaps(this.radarBox))
                 .ifPresentOrElse((x) -> {
                     if (this.weapon.canFire()) {
                         setShootingDirection(x);
@@ -90,18 +102,22 @@ public final class Bat extends Entity {
                 }, () -> this.weapon.setCanFire(false));
 
         if (!this.isAlive()) {
+            final SplittableRandom rand = world.getRandom();
             final List<GameObject> drops = new ArrayList<>();
             this.hasDropped = true;
-            final ObjectFactory objectFactory = new ObjectFactoryImpl(this.tileMap);
+            final ObjectFactory objectFactory = new ObjectFactoryImpl(this.tileMap, rand);
+            final WorldGeometry geometry = this.tileMap.geometry();
             if (rand.nextInt(MAX_CHANCE) + 1 <= POTION_DROP_CHANCE) {
-                drops.addAll(objectFactory.spawnAt(this.getHitBox().getPosX() / AssetManagerProxy.getMapTileSize(), this.getHitBox().getPosY() / AssetManagerProxy.getMapTileSize(),
+                drops.addAll(objectFactory.spawnAt(geometry.toTile(this.getHitBox().getPosX()),
+                        geometry.toTile(this.getHitBox().getPosY()),
                         (x, y, tm) -> {
                             final int healingPower = rand.nextInt(101);
                             return new SimplePotion(healingPower, "Potion", x, y);
                         }));
             }
             if (rand.nextInt(MAX_CHANCE) + 1 <= WEAPON_DROP_CHANCE) {
-                drops.addAll(objectFactory.spawnAt(this.getHitBox().getPosX() / AssetManagerProxy.getMapTileSize(), this.getHitBox().getPosY() / AssetManagerProxy.getMapTileSize(),
+                drops.addAll(objectFactory.spawnAt(geometry.toTile(this.getHitBox().getPosX()),
+                        geometry.toTile(this.getHitBox().getPosY()),
                         (x, y, tm) -> {
                             if (rand.nextInt(2) == 0) {
                                 return new Gun(null, tm, x, y, GameObject.Team.FRIEND);
@@ -112,11 +128,14 @@ public final class Bat extends Entity {
             }
             return drops;
         }
-        super.update(delta, others);
+        super.update(delta, world);
         updateRadarBoxLocation();
-        weapon.update(delta, others);
+        weapon.update(delta, world);
         if (this.weapon.canFire && this.getShootingDirection().getX() != 0 && this.getShootingDirection().getY() != 0) {
-            return weapon.fire((int) getShootingDirection().getX() * weapon.ps, (int) getShootingDirection().getY() * weapon.ps);
+            final List<GameObject> fired = new ArrayList<>(1);
+            weapon.fire((int) getShootingDirection().getX() * weapon.ps,
+                    (int) getShootingDirection().getY() * weapon.ps, world.getProjectilePool(), fired::add);
+            return fired;
         }
         return List.of();
     }
@@ -139,16 +158,6 @@ public final class Bat extends Entity {
         }
     }
 
-    @Override
-    public int getHealth() {
-        return this.hp;
-    }
-
-    @Override
-    public void setHealth(final int health) {
-        this.hp = health;
-    }
-
     /**
      * Utility class that makes the bat change movement direction. As of now bats
      * can only go left or right.
@@ -169,7 +178,7 @@ public final class Bat extends Entity {
      * Updates the aggro radar's Bat box.
      */
     private void updateRadarBoxLocation() {
-        radarBox.setLocation(posX - RADAR_BOX_POSITION_MODIFIER, posY - RADAR_BOX_POSITION_MODIFIER);
+        radarBox.setLocation(getPosX() - radarOffset, getPosY() - radarOffset);
     }
 
     /**
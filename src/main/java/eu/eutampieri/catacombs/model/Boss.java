@@ -3,26 +3,28 @@ package eu.eutampieri.catacombs.model;
 import eu.eutampieri.catacombs.model.gen.MobFactory;
 import eu.eutampieri.catacombs.model.gen.MobFactoryImpl;
 import eu.eutampieri.catacombs.model.map.TileMap;
-import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
 
 /**
  * The game Boss.
  * @see Entity
  */
 public final class Boss extends Entity {
+    private static final long serialVersionUID = 1L;
 
     private static final int HEIGHT = 48;
     private static final int WIDTH = 48;
     private static final int MOVEMENT_SPEED = 4;
     private static final int HEALTH = 100;
-    private static final int RADAR_BOX_POSITION_MODIFIER = 30 * AssetManagerProxy.getMapTileSize();
-    private static final int RADAR_BOX_SIZE = 30 * 2 * AssetManagerProxy.getMapTileSize() + Math.max(WIDTH, HEIGHT);
+    private static final int RADAR_RANGE = 30;
     private static final String NAME = "Boss";
     private static final long MOVE_DELAY = 15L * 100;
     private static final long PAUSE_DELAY = 10L * 100;
@@ -39,10 +41,18 @@ public final class Boss extends Entity {
     private int delayCounter;
     private int pauseCounter;
     private final CollisionBox radarBox;
+    /**
+     * Distance in world units between the radar box and the hit box.
+     */
+    private final int radarOffset;
     private final Point shootingDirection;
     private boolean canSpawnMob;
     private int spawnMobCounter;
-    private final MobFactory mf;
+    /**
+     * Routes across the map, if the world provides them.
+     */
+    private HierarchicalPathfinder pathfinder;
+    private GameObject target;
 
     /**
      * @param x       X spawn position
@@ -54,8 +64,9 @@ public final class Boss extends Entity {
         setSpeed(MOVEMENT_SPEED);
         setHealth(HEALTH);
         face = Direction.RIGHT;
-        radarBox = new CollisionBox(posX - RADAR_BOX_POSITION_MODIFIER, posY - RADAR_BOX_POSITION_MODIFIER, RADAR_BOX_SIZE,
-                RADAR_BOX_SIZE);
+        radarOffset = tileMap.geometry().length(RADAR_RANGE);
+        final int radarSize = 2 * radarOffset + Math.max(WIDTH, HEIGHT);
+        radarBox = new CollisionBox(getPosX() - radarOffset, getPosY() - radarOffset, radarSize, radarSize);
         weapon = new Weapon(this, tileMap, this.getHitBox().getPosX(), this.getHitBox().getPosY(),
                 BASE_DAMAGE, BASE_PROJECTILE_SPEED, BASE_FIRE_RATE, this.getTeam(), GameObjectType.BOSS_BULLET, BULLET_SIZE) { };
         shootingDirection = new Point(0, 0);
@@ -64,15 +75,13 @@ public final class Boss extends Entity {
         this.isMoving = true;
         this.canSpawnMob = false;
         this.spawnMobCounter = 0;
-        this.mf = new MobFactoryImpl(tileMap);
     }
 
     @Override
-    public List<GameObject> update(final long delta, final List<GameObject> others) {
-        final List<GameObject> objs = new ArrayList<>();
-        final Random rand = new Random();
+    public List<GameObject> update(final long delta, final WorldView world) {
         resetShootingDirection();
         if (isMoving) {
+            chase();
             delayCounter += delta;
             if (delayCounter >= MOVE_DELAY) {
                 delayCounter = 0;
@@ -84,28 +93,34 @@ public final class Boss extends Entity {
             if (pauseCounter >= PAUSE_DELAY) {
                 pauseCounter = 0;
                 isMoving = true;
-                changeDirection();
+                changeDirection(world.getRandom());
             }
         }
-        others.stream().filter((x) -> x instanceof Player)
-                .filter((x) -> x.getHitBox().overlaps(this.radarBox)).findFirst()
+        world.getPlayer().filter((x) -> x.getHitBox().overlaps(this.radarBox))
                 .ifPresentOrElse((x) -> {
+                    this.target = x;
                     if (this.weapon.canFire()) {
                         setShootingDirection(x);
                     }
-                }, () -> this.weapon.setCanFire(false));
+                }, () -> {
+                    this.target = null;
+                    this.weapon.setCanFire(false);
+                });
 
-        super.update(delta, others);
+        super.update(delta, world);
         updateRadarBoxLocation();
-        weapon.update(delta, others);
+        weapon.update(delta, world);
         if (canSpawnMob) {
             canSpawnMob = false;
+            final SplittableRandom rand = world.getRandom();
             if (rand.nextInt(MAX_CHANCE) + 1 <= MOB_SPAWN_CHANCE) {
                 System.out.println("spawn");
+                final MobFactory mf = new MobFactoryImpl(this.tileMap, rand);
+                final List<GameObject> objs = new ArrayList<>();
                 if (rand.nextBoolean()) {
-                    objs.addAll(this.mf.spawnNear(SPAWN_RADIUS, this, Slime::new));
+                    objs.addAll(mf.spawnNear(SPAWN_RADIUS, this, Slime::new));
                 } else {
-                    objs.addAll(this.mf.spawnNear(SPAWN_RADIUS, this, Bat::new));
+                    objs.addAll(mf.spawnNear(SPAWN_RADIUS, this, (x, y, tm) -> new Bat(x, y, tm, rand)));
                 }
                 return objs;
             }
@@ -117,22 +132,25 @@ public final class Boss extends Entity {
             }
         }
         if (this.weapon.canFire && this.getShootingDirection().getX() != 0 && this.getShootingDirection().getY() != 0) {
-            objs.addAll(weapon.fire((int) getShootingDirection().getX() * weapon.ps, (int) getShootingDirection().getY() * weapon.ps));
+            final ProjectilePool pool = world.getProjectilePool();
+            final Consumer<GameObject> sink = world.getSpawnSink();
+            final int dx = (int) getShootingDirection().getX() * weapon.ps;
+            final int dy = (int) getShootingDirection().getY() * weapon.ps;
+            weapon.fire(dx, dy, pool, sink);
             this.weapon.setCanFire(true);
-            objs.addAll(weapon.fire((int) getShootingDirection().getX() * -weapon.ps, (int) getShootingDirection().getY() * weapon.ps));
+            weapon.fire(-dx, dy, pool, sink);
             this.weapon.setCanFire(true);
-            objs.addAll(weapon.fire((int) getShootingDirection().getX() * weapon.ps, (int) getShootingDirection().getY() * -weapon.ps));
+            weapon.fire(dx, -dy, pool, sink);
             this.weapon.setCanFire(true);
-            objs.addAll(weapon.fire((int) getShootingDirection().getX() * -weapon.ps, (int) getShootingDirection().getY() * -weapon.ps));
+            weapon.fire(-dx, -dy, pool, sink);
             this.weapon.setCanFire(true);
-            objs.addAll(weapon.fire(0, (int) getShootingDirection().getY() * weapon.ps));
+            weapon.fire(0, dy, pool, sink);
             this.weapon.setCanFire(true);
-            objs.addAll(weapon.fire(0, (int) getShootingDirection().getY() * -weapon.ps));
+            weapon.fire(0, -dy, pool, sink);
             this.weapon.setCanFire(true);
-            objs.addAll(weapon.fire((int) getShootingDirection().getX() * weapon.ps, 0));
+            weapon.fire(dx, 0, pool, sink);
             this.weapon.setCanFire(true);
-            objs.addAll(weapon.fire((int) getShootingDirection().getX() * -weapon.ps, 0));
-            return objs;
+            weapon.fire(-dx, 0, pool, sink);
         }
         return List.of();
     }
@@ -156,11 +174,58 @@ public final class Boss extends Entity {
         }
     }
 
+    /**
+     * @param geometry the geometry of a map
+     * @return the side in tiles of the squares of walkable tiles the Boss fits in on the map, whatever its position
+     *         in them.
+     */
+    public static int footprint(final WorldGeometry geometry) {
+        // the hit box spans one unit more than its size
+        return Math.max(WIDTH, HEIGHT) / geometry.getTileSize() + 1;
+    }
+
+    /**
+     * Sets the pathfinder the Boss uses to chase the player when it's in range.
+     * Without a pathfinder the Boss wanders in random directions.
+     * @param pathfinder a pathfinder on the map of the Boss for footprints of footprint(geometry) tiles, or null
+     */
+    public void setPathfinder(final HierarchicalPathfinder pathfinder) {
+        this.pathfinder = pathfinder;
+    }
+
+    /**
+     * Makes the boss walk toward the center of the next footprint on the way to the target, if there's one.
+     * The footprint of the boss is the one whose center is closest to its own.
+     */
+    private void chase() {
+        if (this.target == null || this.pathfinder == null) {
+            return;
+        }
+        final WorldGeometry geometry = tileMap.geometry();
+        // from the center of a footprint to the center of its top left tile
+        final int offset = (geometry.length(this.pathfinder.getFootprint()) - geometry.getTileSize()) / 2;
+        final int tileX = geometry.toTile(getPosX() + this.width / 2 - offset);
+        final int tileY = geometry.toTile(getPosY() + this.height / 2 - offset);
+        final Optional<Direction> step = this.pathfinder.nextStep(tileX, tileY,
+                geometry.toTile(target.getPosX() + target.getHitBox().getWidth() / 2),
+                geometry.toTile(target.getPosY() + target.getHitBox().getHeight() / 2));
+        if (step.isEmpty()) {
+            return;
+        }
+        resetMovement();
+        final int toCenter = geometry.getTileSize() / 2 + offset;
+        final int targetX = geometry.toWorld(tileX + FlowField.dx(step.get())) + toCenter - this.width / 2;
+        final int targetY = geometry.toWorld(tileY + FlowField.dy(step.get())) + toCenter - this.height / 2;
+        left = targetX < getPosX();
+        right = targetX > getPosX();
+        up = targetY < getPosY();
+        down = targetY > getPosY();
+    }
+
     /**
      * Makes the boss change facing direction.
      */
-    private void changeDirection() {
-        final Random rand = new Random();
+    private void changeDirection(final SplittableRandom rand) {
         final int c = rand.nextInt(8);
         switch (Math.floorDiv(c, 2)) {
             case 0:
@@ -191,17 +256,7 @@ public final class Boss extends Entity {
      * Updates the aggro radar's Boss box.
      */
     private void updateRadarBoxLocation() {
-        radarBox.setLocation(posX - RADAR_BOX_POSITION_MODIFIER, posY - RADAR_BOX_POSITION_MODIFIER);
-    }
-
-    @Override
-    public int getHealth() {
-        return this.hp;
-    }
-
-    @Override
-    public void setHealth(final int health) {
-        this.hp = health;
+        radarBox.setLocation(getPosX() - radarOffset, getPosY() - radarOffset);
     }
 
     /**
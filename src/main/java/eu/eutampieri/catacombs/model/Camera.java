@@ -38,8 +38,19 @@ public final class Camera {
      * @param gameHeight game height
      */
     public void centerOnEntity(final GameObject e, final int gameWidth, final int gameHeight) {
-        xOffset = e.getPosX() - (gameWidth / 2);
-        yOffset = e.getPosY() - (gameHeight / 2);
+        centerOn(e.getPosX(), e.getPosY(), gameWidth, gameHeight);
+    }
+
+    /**
+     * Centers camera on a point.
+     * @param x          X of the point
+     * @param y          Y of the point
+     * @param gameWidth  game width
+     * @param gameHeight game height
+     */
+    public void centerOn(final int x, final int y, final int gameWidth, final int gameHeight) {
+        xOffset = x - (gameWidth / 2);
+        yOffset = y - (gameHeight / 2);
         if (xOffset < 0) {
             xOffset = 0;
         } else if (xOffset > (mapWidth - gameWidth)) {
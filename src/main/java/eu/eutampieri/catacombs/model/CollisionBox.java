@@ -1,11 +1,16 @@
 package eu.eutampieri.catacombs.model;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 /**
  * A general class for GameObjects boxes which define an imaginary box around the object used
  * for collisions, detections and aggro detections.
  * @see GameObject
  */
-public class CollisionBox {
+public class CollisionBox implements Serializable {
+    private static final long serialVersionUID = 1L;
     /**
      * The (X,Y) positions of CollisionBox top-left corner.
      */
@@ -14,6 +19,11 @@ public class CollisionBox {
      * Dimensions of the CollisionBox.
      */
     private int width, height;
+    /**
+     * The store holding the box while its object is in one, or null.
+     */
+    private transient EntityStore store;
+    private transient int handle;
 
     /**
      * General collision box constructor.
@@ -35,10 +45,7 @@ public class CollisionBox {
      * @param box The collision box to duplicate
      */
     public CollisionBox(final CollisionBox box) {
-        this.posX = box.posX;
-        this.posY = box.posY;
-        this.width = box.width;
-        this.height = box.height;
+        this(box.getPosX(), box.getPosY(), box.getWidth(), box.getHeight());
     }
 
     /**
@@ -47,9 +54,10 @@ public class CollisionBox {
      * @param dy Movement made in the Y axis
      */
     public void move(final int dx, final int dy) {
-        if (posX + dx > 0 && posY + dy > 0) {
-            posX += dx;
-            posY += dy;
+        final int x = getPosX() + dx;
+        final int y = getPosY() + dy;
+        if (x > 0 && y > 0) {
+            setLocation(x, y);
         }
     }
 
@@ -59,7 +67,11 @@ public class CollisionBox {
      * @return true if the two boxes overlaps; false otherwise
      */
     public boolean overlaps(final CollisionBox r) {
-        return posX < r.posX + r.width && posX + width > r.posX && posY < r.posY + r.height && posY + height > r.posY;
+        final int x = getPosX();
+        final int y = getPosY();
+        final int rx = r.getPosX();
+        final int ry = r.getPosY();
+        return x < rx + r.getWidth() && x + getWidth() > rx && y < ry + r.getHeight() && y + getHeight() > ry;
     }
 
     /**
@@ -67,7 +79,7 @@ public class CollisionBox {
      * @return Box X position
      */
     public int getPosX() {
-        return posX;
+        return store == null ? posX : store.boxX(handle);
     }
 
     /**
@@ -75,7 +87,11 @@ public class CollisionBox {
      * @param posX X position to set
      */
     public void setPosX(final int posX) {
-        this.posX = posX;
+        if (store == null) {
+            this.posX = posX;
+        } else {
+            store.setBoxX(handle, posX);
+        }
     }
 
     /**
@@ -83,7 +99,7 @@ public class CollisionBox {
      * @return Box Y position
      */
     public int getPosY() {
-        return posY;
+        return store == null ? posY : store.boxY(handle);
     }
 
     /**
@@ -91,7 +107,11 @@ public class CollisionBox {
      * @param posY Y position to set
      */
     public void setPosY(final int posY) {
-        this.posY = posY;
+        if (store == null) {
+            this.posY = posY;
+        } else {
+            store.setBoxY(handle, posY);
+        }
     }
 
     /**
@@ -99,7 +119,7 @@ public class CollisionBox {
      * @return Box width
      */
     public int getWidth() {
-        return width;
+        return store == null ? width : store.boxWidth(handle);
     }
 
     /**
@@ -107,7 +127,11 @@ public class CollisionBox {
      * @param width Width dimension to set
      */
     public void setWidth(final int width) {
-        this.width = width;
+        if (store == null) {
+            this.width = width;
+        } else {
+            store.setBoxWidth(handle, width);
+        }
     }
 
     /**
@@ -115,7 +139,7 @@ public class CollisionBox {
      * @return Box height
      */
     public int getHeight() {
-        return height;
+        return store == null ? height : store.boxHeight(handle);
     }
 
     /**
@@ -123,7 +147,11 @@ public class CollisionBox {
      * @param height Width dimension to set
      */
     public void setHeight(final int height) {
-        this.height = height;
+        if (store == null) {
+            this.height = height;
+        } else {
+            store.setBoxHeight(handle, height);
+        }
     }
 
     /**
@@ -145,4 +173,35 @@ public class CollisionBox {
         this.setWidth(width);
         this.setHeight(height);
     }
+
+    /**
+     * Makes the box read and write its state in a store, which already holds it.
+     */
+    void attach(final EntityStore store, final int handle) {
+        this.store = store;
+        this.handle = handle;
+    }
+
+    /**
+     * Takes the state of the box back from the store it's in.
+     */
+    void detach() {
+        final int x = getPosX();
+        final int y = getPosY();
+        final int w = getWidth();
+        final int h = getHeight();
+        this.store = null;
+        this.posX = x;
+        this.posY = y;
+        this.width = w;
+        this.height = h;
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        this.posX = getPosX();
+        this.posY = getPosY();
+        this.width = getWidth();
+        this.height = getHeight();
+        out.defaultWriteObject();
+    }
 }
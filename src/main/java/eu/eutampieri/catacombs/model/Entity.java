@@ -2,10 +2,12 @@ package eu.eutampieri.catacombs.model;
 
 import eu.eutampieri.catacombs.model.map.Tile;
 import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import eu.eutampieri.catacombs.ui.gamefx.Animatable;
-import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.List;
 
 /**
@@ -14,6 +16,7 @@ import java.util.List;
  * @see LivingCharacter
  */
 public abstract class Entity extends GameObject implements LivingCharacter, Animatable {
+    private static final long serialVersionUID = 1L;
     /**
      * Booleans to keep track of movement direction.
      */
@@ -23,9 +26,9 @@ public abstract class Entity extends GameObject implements LivingCharacter, Anim
      */
     protected Direction face;
     /**
-     * Entity current health.
+     * Entity current health, while the entity isn't in a store.
      */
-    protected int hp;
+    private int hp;
     /**
      * Entity dimensions.
      */
@@ -89,12 +92,26 @@ public abstract class Entity extends GameObject implements LivingCharacter, Anim
         return this.size;
     }
 
+    @Override
+    public int getHealth() {
+        return store == null ? hp : store.health(handle);
+    }
+
+    @Override
+    public void setHealth(final int health) {
+        if (store == null) {
+            this.hp = health;
+        } else {
+            store.setHealth(handle, health);
+        }
+    }
+
     /**
      * Updates entity every delta millis.
      * @param delta Millis between updates
      */
     @Override
-    public List<GameObject> update(final long delta, final List<GameObject> others) {
+    public List<GameObject> update(final long delta, final WorldView world) {
         move();
         updateSpriteLocation();
         return List.of();
@@ -102,95 +119,104 @@ public abstract class Entity extends GameObject implements LivingCharacter, Anim
 
     /**
      * Move the Entity based on its speed and direction facing.
+     * The vertical displacement is resolved first and the horizontal one starts from where it ends, so that
+     * diagonal moves can't cut through the corner of a wall.
      */
     protected void move() {
-
+        final WorldGeometry geometry = tileMap.geometry();
         int dx = 0, dy = 0;
         if (up) {
-            dy = -speedY;
+            dy = -getSpeedY();
             face = Direction.UP;
-            while (isUpCollision(Math.abs(dy))) {
-                dy++;
-            }
         }
         if (down) {
-            dy = speedY;
+            dy = getSpeedY();
             face = Direction.DOWN;
-            while (isDownCollision(dy)) {
-                dy--;
-            }
         }
         if (left) {
-            dx = -speedX;
+            dx = -getSpeedX();
             face = Direction.LEFT;
-            while (isLeftCollision(Math.abs(dx))) {
-                dx++;
-            }
         }
         if (right) {
-            dx = speedX;
+            dx = getSpeedX();
             face = Direction.RIGHT;
-            while (isRightCollision(dx)) {
-                dx--;
-            }
         }
-        hitBox.move(dx, dy);
+        dy = sweepY(dy, geometry);
+        hitBox.move(0, dy);
+        dx = sweepX(dx, geometry);
+        hitBox.move(dx, 0);
     }
 
     /**
-     * Checks if the Entity is going to collide into a wall while moving up.
-     * @param dy Entity speedY
-     * @return true if moving into a wall; false otherwise
+     * Sweeps the hit box vertically, checking only the rows of tiles it would enter.
+     * @param dy       the desired vertical displacement
+     * @param geometry the geometry of the map
+     * @return the largest part of dy the hit box can move without entering a wall
      */
-    protected boolean isUpCollision(final int dy) {
-        return tileMap.at(hitBox.getPosX() / AssetManagerProxy.getMapTileSize(),
-                (hitBox.getPosY() - dy) / AssetManagerProxy.getMapTileSize()) == Tile.WALL
-                || tileMap.at((hitBox.getPosX() + hitBox.getWidth()) / AssetManagerProxy.getMapTileSize(),
-                        (hitBox.getPosY() - dy) / AssetManagerProxy.getMapTileSize()) == Tile.WALL;
+    private int sweepY(final int dy, final WorldGeometry geometry) {
+        if (dy == 0) {
+            return 0;
+        }
+        final int fromColumn = geometry.toTile(hitBox.getPosX());
+        final int toColumn = geometry.toTile(hitBox.getPosX() + hitBox.getWidth());
+        final int edge = dy < 0 ? hitBox.getPosY() : hitBox.getPosY() + hitBox.getHeight();
+        final int step = dy < 0 ? -1 : 1;
+        final int lastRow = geometry.toTile(edge + dy);
+        for (int row = geometry.toTile(edge) + step; row != lastRow + step; row += step) {
+            if (isWallInRow(row, fromColumn, toColumn)) {
+                // stop on the last unit before the wall
+                return dy < 0 ? geometry.toWorld(row + 1) - edge : geometry.toWorld(row) - 1 - edge;
+            }
+        }
+        return dy;
     }
 
     /**
-     * Checks if the Entity is going to collide into a wall while moving right.
-     * @param dx Entity speedX
-     * @return true if moving into a wall; false otherwise
+     * Sweeps the hit box horizontally, checking only the columns of tiles it would enter.
+     * @param dx       the desired horizontal displacement
+     * @param geometry the geometry of the map
+     * @return the largest part of dx the hit box can move without entering a wall
      */
-    protected boolean isRightCollision(final int dx) {
-        return tileMap.at((hitBox.getPosX() + hitBox.getWidth() + dx) / AssetManagerProxy.getMapTileSize(),
-                hitBox.getPosY() / AssetManagerProxy.getMapTileSize()) == Tile.WALL
-                || tileMap.at((hitBox.getPosX() + hitBox.getWidth() + dx) / AssetManagerProxy.getMapTileSize(),
-                        (hitBox.getPosY() + hitBox.getHeight()) / AssetManagerProxy.getMapTileSize()) == Tile.WALL;
+    private int sweepX(final int dx, final WorldGeometry geometry) {
+        if (dx == 0) {
+            return 0;
+        }
+        final int fromRow = geometry.toTile(hitBox.getPosY());
+        final int toRow = geometry.toTile(hitBox.getPosY() + hitBox.getHeight());
+        final int edge = dx < 0 ? hitBox.getPosX() : hitBox.getPosX() + hitBox.getWidth();
+        final int step = dx < 0 ? -1 : 1;
+        final int lastColumn = geometry.toTile(edge + dx);
+        for (int column = geometry.toTile(edge) + step; column != lastColumn + step; column += step) {
+            if (isWallInColumn(column, fromRow, toRow)) {
+                return dx < 0 ? geometry.toWorld(column + 1) - edge : geometry.toWorld(column) - 1 - edge;
+            }
+        }
+        return dx;
     }
 
-    /**
-     * Checks if the Entity is going to collide into a wall while moving down.
-     * @param dy Entity speedY
-     * @return true if moving into a wall; false otherwise
-     */
-    protected boolean isDownCollision(final int dy) {
-        return tileMap.at(hitBox.getPosX() / AssetManagerProxy.getMapTileSize(),
-                (hitBox.getPosY() + hitBox.getHeight() + dy) / AssetManagerProxy.getMapTileSize()) == Tile.WALL
-                || tileMap.at((hitBox.getPosX() + hitBox.getWidth()) / AssetManagerProxy.getMapTileSize(),
-                        (hitBox.getPosY() + hitBox.getHeight() + dy) / AssetManagerProxy.getMapTileSize()) == Tile.WALL;
+    private boolean isWallInRow(final int row, final int fromColumn, final int toColumn) {
+        for (int column = fromColumn; column <= toColumn; column++) {
+            if (tileMap.at(column, row) == Tile.WALL) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    /**
-     * Checks if the Entity is going to collide into a wall while moving left.
-     * @param dx Entity speedX
-     * @return true if moving into a wall; false otherwise
-     */
-    protected boolean isLeftCollision(final int dx) {
-        return tileMap.at((hitBox.getPosX() - dx) / AssetManagerProxy.getMapTileSize(),
-                hitBox.getPosY() / AssetManagerProxy.getMapTileSize()) == Tile.WALL
-                || tileMap.at((hitBox.getPosX() - dx) / AssetManagerProxy.getMapTileSize(),
-                        (hitBox.getPosY() + hitBox.getHeight()) / AssetManagerProxy.getMapTileSize()) == Tile.WALL;
+    private boolean isWallInColumn(final int column, final int fromRow, final int toRow) {
+        for (int row = fromRow; row <= toRow; row++) {
+            if (tileMap.at(column, row) == Tile.WALL) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Updates GameObject location to coincide with hit box position.
      */
     protected void updateSpriteLocation() {
-        posX = hitBox.getPosX();
-        posY = hitBox.getPosY();
+        setPos(hitBox.getPosX(), hitBox.getPosY());
     }
 
     /**
@@ -220,4 +246,16 @@ public abstract class Entity extends GameObject implements LivingCharacter, Anim
     public boolean isMoving() {
         return this.right || this.left || this.up || this.down;
     }
+
+    @Override
+    void detach() {
+        final int health = getHealth();
+        super.detach();
+        this.hp = health;
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        this.hp = getHealth();
+        out.defaultWriteObject();
+    }
 }
@@ -0,0 +1,440 @@
+package eu.eutampieri.catacombs.model;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the state the game loop reads most, i.e. positions, speeds, hit boxes, health, team and kind, of many game
+ * objects in parallel arrays, so that going through all of them reads memory in order.
+ * While an object is in a store its getters and setters, and the ones of its hit box, read and write the arrays;
+ * when it's removed it gets its state back.
+ * The store also keeps the positions the objects had when {@link #savePositions()} was last called, so that
+ * they can be drawn between two updates.
+ * Objects are identified by handles which are never reused for another object, even if the place the object had
+ * in the store is.
+ * Removing an object moves the last one in its place, so objects aren't kept in the order they were added, but
+ * iterating by index from 0 to size() visits every object once, also when objects are added in the meanwhile.
+ */
+public final class EntityStore {
+    /**
+     * A handle no object has.
+     */
+    public static final int NO_HANDLE = -1;
+
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = Integer.MAX_VALUE >>> INDEX_BITS;
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final GameObjectType[] KINDS = GameObjectType.values();
+
+    private int size;
+    private GameObject[] objects;
+    private int[] posX;
+    private int[] posY;
+    private int[] previousPosX;
+    private int[] previousPosY;
+    private int[] speedX;
+    private int[] speedY;
+    private int[] boxX;
+    private int[] boxY;
+    private int[] boxWidth;
+    private int[] boxHeight;
+    private int[] health;
+    private byte[] team;
+    private byte[] kind;
+    /**
+     * The slot each object uses, by index.
+     */
+    private int[] slotOf;
+    /**
+     * The index of the object using each slot, -1 if it's free.
+     */
+    private int[] indexOf;
+    /**
+     * How many times each slot has been freed.
+     */
+    private int[] generations;
+    private int[] freeSlots;
+    private int freeCount;
+    private int slotCount;
+
+    /**
+     * Creates an empty store.
+     */
+    public EntityStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity how many objects the store has room for before it has to grow
+     */
+    public EntityStore(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        objects = new GameObject[capacity];
+        posX = new int[capacity];
+        posY = new int[capacity];
+        previousPosX = new int[capacity];
+        previousPosY = new int[capacity];
+        speedX = new int[capacity];
+        speedY = new int[capacity];
+        boxX = new int[capacity];
+        boxY = new int[capacity];
+        boxWidth = new int[capacity];
+        boxHeight = new int[capacity];
+        health = new int[capacity];
+        team = new byte[capacity];
+        kind = new byte[capacity];
+        slotOf = new int[capacity];
+        indexOf = new int[capacity];
+        generations = new int[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    /**
+     * Moves the state of an object into the store.
+     * @param object an object which isn't in any store
+     * @return the handle of the object
+     */
+    public int add(final GameObject object) {
+        if (object.store != null) {
+            throw new IllegalArgumentException("The object is already in a store");
+        }
+        final int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else if (slotCount > INDEX_MASK) {
+            throw new IllegalStateException("The store is full");
+        } else {
+            slot = slotCount++;
+        }
+        if (size == objects.length) {
+            grow();
+        }
+        final int index = size++;
+        final CollisionBox box = object.getHitBox();
+        objects[index] = object;
+        posX[index] = object.getPosX();
+        posY[index] = object.getPosY();
+        previousPosX[index] = posX[index];
+        previousPosY[index] = posY[index];
+        speedX[index] = object.getSpeedX();
+        speedY[index] = object.getSpeedY();
+        boxX[index] = box.getPosX();
+        boxY[index] = box.getPosY();
+        boxWidth[index] = box.getWidth();
+        boxHeight[index] = box.getHeight();
+        health[index] = object instanceof LivingCharacter ? ((LivingCharacter) object).getHealth() : 0;
+        team[index] = (byte) object.getTeam().ordinal();
+        kind[index] = (byte) object.getKind().ordinal();
+        slotOf[index] = slot;
+        indexOf[slot] = index;
+        final int handle = generations[slot] << INDEX_BITS | slot;
+        object.attach(this, handle);
+        return handle;
+    }
+
+    /**
+     * Gives an object its state back and removes it from the store.
+     * @param handle the handle of the object
+     * @return if the handle was the one of an object in the store
+     */
+    public boolean remove(final int handle) {
+        if (!contains(handle)) {
+            return false;
+        }
+        final int slot = handle & INDEX_MASK;
+        final int index = indexOf[slot];
+        objects[index].detach();
+        final int last = --size;
+        objects[index] = objects[last];
+        posX[index] = posX[last];
+        posY[index] = posY[last];
+        previousPosX[index] = previousPosX[last];
+        previousPosY[index] = previousPosY[last];
+        speedX[index] = speedX[last];
+        speedY[index] = speedY[last];
+        boxX[index] = boxX[last];
+        boxY[index] = boxY[last];
+        boxWidth[index] = boxWidth[last];
+        boxHeight[index] = boxHeight[last];
+        health[index] = health[last];
+        team[index] = team[last];
+        kind[index] = kind[last];
+        slotOf[index] = slotOf[last];
+        indexOf[slotOf[index]] = index;
+        objects[last] = null;
+        indexOf[slot] = -1;
+        generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    /**
+     * Removes the objects which satisfy a condition.
+     * @param filter the condition
+     * @return the number of objects removed
+     */
+    public int removeIf(final Predicate<? super GameObject> filter) {
+        int removed = 0;
+        int i = 0;
+        while (i < size) {
+            if (filter.test(objects[i])) {
+                // the last object takes its place, so the same index is checked again
+                remove(handleAt(i));
+                removed++;
+            } else {
+                i++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every object from the store.
+     */
+    public void clear() {
+        while (size > 0) {
+            remove(handleAt(size - 1));
+        }
+    }
+
+    /**
+     * @param handle a handle
+     * @return if the object with that handle is in the store
+     */
+    public boolean contains(final int handle) {
+        final int slot = handle & INDEX_MASK;
+        return handle >= 0 && slot < slotCount && indexOf[slot] >= 0
+                && generations[slot] == handle >>> INDEX_BITS;
+    }
+
+    /**
+     * @param handle a handle
+     * @return the index of the object with that handle, or -1 if it isn't in the store
+     */
+    public int indexOf(final int handle) {
+        return contains(handle) ? indexOf[handle & INDEX_MASK] : -1;
+    }
+
+    /**
+     * @param handle a handle
+     * @return the object with that handle, if it's in the store
+     */
+    public Optional<GameObject> get(final int handle) {
+        return contains(handle) ? Optional.of(objects[indexOf[handle & INDEX_MASK]]) : Optional.empty();
+    }
+
+    /**
+     * @return the number of objects in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return if there are no objects in the store.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls an action on each object in the store, by index.
+     * @param action the action
+     */
+    public void forEach(final Consumer<? super GameObject> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(objects[i]);
+        }
+    }
+
+    /**
+     * @param index an index between 0 and size()
+     * @return the object at that index.
+     */
+    public GameObject objectAt(final int index) {
+        return objects[checkIndex(index)];
+    }
+
+    /**
+     * @param index an index between 0 and size()
+     * @return the handle of the object at that index.
+     */
+    public int handleAt(final int index) {
+        final int slot = slotOf[checkIndex(index)];
+        return generations[slot] << INDEX_BITS | slot;
+    }
+
+    /**
+     * @param index an index between 0 and size()
+     * @return the X position of the object at that index.
+     */
+    public int posXAt(final int index) {
+        return posX[checkIndex(index)];
+    }
+
+    /**
+     * @param index an index between 0 and size()
+     * @return the Y position of the object at that index.
+     */
+    public int posYAt(final int index) {
+        return posY[checkIndex(index)];
+    }
+
+    /**
+     * @param index an index between 0 and size()
+     * @return the X position the object at that index had when the positions were last saved, or when it was
+     *         added if it was later.
+     */
+    public int previousPosXAt(final int index) {
+        return previousPosX[checkIndex(index)];
+    }
+
+    /**
+     * @param index an index between 0 and size()
+     * @return the Y position the object at that index had when the positions were last saved, or when it was
+     *         added if it was later.
+     */
+    public int previousPosYAt(final int index) {
+        return previousPosY[checkIndex(index)];
+    }
+
+    /**
+     * Remembers the current positions of the objects as their previous ones.
+     */
+    public void savePositions() {
+        System.arraycopy(posX, 0, previousPosX, 0, size);
+        System.arraycopy(posY, 0, previousPosY, 0, size);
+    }
+
+    /**
+     * @param index an index between 0 and size()
+     * @return the kind of the object at that index.
+     */
+    public GameObjectType kindAt(final int index) {
+        return KINDS[kind[checkIndex(index)]];
+    }
+
+    /**
+     * @param index an index between 0 and size()
+     * @return the team of the object at that index, as a bit of the masks of {@link SpatialHashGrid}.
+     */
+    public int teamBitAt(final int index) {
+        return 1 << team[checkIndex(index)];
+    }
+
+    // The state of the objects by handle, for the objects to read and write while they're in the store.
+
+    int posX(final int handle) {
+        return posX[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setPosX(final int handle, final int value) {
+        posX[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    int posY(final int handle) {
+        return posY[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setPosY(final int handle, final int value) {
+        posY[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    int speedX(final int handle) {
+        return speedX[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setSpeedX(final int handle, final int value) {
+        speedX[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    int speedY(final int handle) {
+        return speedY[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setSpeedY(final int handle, final int value) {
+        speedY[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    int boxX(final int handle) {
+        return boxX[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setBoxX(final int handle, final int value) {
+        boxX[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    int boxY(final int handle) {
+        return boxY[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setBoxY(final int handle, final int value) {
+        boxY[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    int boxWidth(final int handle) {
+        return boxWidth[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setBoxWidth(final int handle, final int value) {
+        boxWidth[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    int boxHeight(final int handle) {
+        return boxHeight[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setBoxHeight(final int handle, final int value) {
+        boxHeight[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    int health(final int handle) {
+        return health[indexOf[handle & INDEX_MASK]];
+    }
+
+    void setHealth(final int handle, final int value) {
+        health[indexOf[handle & INDEX_MASK]] = value;
+    }
+
+    GameObjectType kind(final int handle) {
+        return KINDS[kind[indexOf[handle & INDEX_MASK]]];
+    }
+
+    void setKind(final int handle, final GameObjectType value) {
+        kind[indexOf[handle & INDEX_MASK]] = (byte) value.ordinal();
+    }
+
+    private int checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+
+    private void grow() {
+        final int capacity = objects.length * 2;
+        objects = Arrays.copyOf(objects, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        previousPosX = Arrays.copyOf(previousPosX, capacity);
+        previousPosY = Arrays.copyOf(previousPosY, capacity);
+        speedX = Arrays.copyOf(speedX, capacity);
+        speedY = Arrays.copyOf(speedY, capacity);
+        boxX = Arrays.copyOf(boxX, capacity);
+        boxY = Arrays.copyOf(boxY, capacity);
+        boxWidth = Arrays.copyOf(boxWidth, capacity);
+        boxHeight = Arrays.copyOf(boxHeight, capacity);
+        health = Arrays.copyOf(health, capacity);
+        team = Arrays.copyOf(team, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        slotOf = Arrays.copyOf(slotOf, capacity);
+        indexOf = Arrays.copyOf(indexOf, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
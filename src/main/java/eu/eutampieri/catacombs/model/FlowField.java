@@ -0,0 +1,204 @@
+package eu.eutampieri.catacombs.model;
+
+import eu.eutampieri.catacombs.model.map.TileMap;
+
+import java.util.Optional;
+
+/**
+ * A flow field toward a target tile, shared by all the mobs chasing it.
+ * For each walkable tile within a maximum distance from the target it stores the direction of the next step
+ * along a shortest path to the target, so that any mob can look it up in O(1).
+ * The field is recomputed with a breadth first search only when the target moves to another tile, and it
+ * only covers the square of tiles around the target the search can reach, so its cost doesn't depend on
+ * the size of the map.
+ */
+public final class FlowField {
+    /**
+     * Default maximum distance, in steps, a path to the target can have.
+     */
+    public static final int DEFAULT_MAX_DISTANCE = 32;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte NO_STEP = -1;
+
+    private final TileMap tileMap;
+    private final int maxDistance;
+    /**
+     * Side of the square of tiles, centered on the target, covered by the field.
+     */
+    private final int side;
+    /**
+     * The tiles reached by the last search hold the current generation, so there's no need to clear
+     * the other arrays before each search.
+     */
+    private final int[] stamp;
+    private final int[] distance;
+    private final byte[] step;
+    private final int[] queue;
+    /**
+     * Starts from 1 so that the zeroed stamps of a new field don't look visited.
+     */
+    private int generation = 1;
+    private int targetX = -1;
+    private int targetY = -1;
+
+    /**
+     * @param tileMap the map the field is computed on
+     */
+    public FlowField(final TileMap tileMap) {
+        this(tileMap, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * @param tileMap     the map the field is computed on
+     * @param maxDistance the maximum length of the paths to the target, tiles farther than it have no step
+     */
+    public FlowField(final TileMap tileMap, final int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.tileMap = tileMap;
+        this.maxDistance = maxDistance;
+        this.side = 2 * maxDistance + 1;
+        final int tiles = side * side;
+        this.stamp = new int[tiles];
+        this.distance = new int[tiles];
+        this.step = new byte[tiles];
+        this.queue = new int[tiles];
+    }
+
+    /**
+     * Moves the target of the field, recomputing it if the target changed tile.
+     * @param x column of the target
+     * @param y row of the target
+     */
+    public void setTarget(final int x, final int y) {
+        if (x == targetX && y == targetY) {
+            return;
+        }
+        targetX = x;
+        targetY = y;
+        generation++;
+        if (!tileMap.isWalkable(x, y)) {
+            return;
+        }
+        final int start = index(x, y);
+        stamp[start] = generation;
+        distance[start] = 0;
+        step[start] = NO_STEP;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            final int current = queue[head++];
+            if (distance[current] == maxDistance) {
+                continue;
+            }
+            final int cx = current % side + targetX - maxDistance;
+            final int cy = current / side + targetY - maxDistance;
+            for (final Direction d : DIRECTIONS) {
+                final int nx = cx + dx(d);
+                final int ny = cy + dy(d);
+                if (tileMap.isWalkable(nx, ny)) {
+                    final int next = index(nx, ny);
+                    if (stamp[next] != generation) {
+                        stamp[next] = generation;
+                        distance[next] = distance[current] + 1;
+                        // from next, the way back to current is the opposite direction
+                        step[next] = (byte) opposite(d).ordinal();
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index in the field of a tile at most maxDistance tiles away from the target on both axes.
+     */
+    private int index(final int x, final int y) {
+        return (y - targetY + maxDistance) * side + x - targetX + maxDistance;
+    }
+
+    private boolean isCovered(final int x, final int y) {
+        return Math.abs(x - targetX) <= maxDistance && Math.abs(y - targetY) <= maxDistance;
+    }
+
+    /**
+     * @param x column
+     * @param y row
+     * @return the direction of the next step toward the target from the tile at column x and row y, empty if
+     *         the tile is the target or the target can't be reached from it within the maximum distance
+     */
+    public Optional<Direction> directionAt(final int x, final int y) {
+        if (!isCovered(x, y)) {
+            return Optional.empty();
+        }
+        final int i = index(x, y);
+        if (stamp[i] != generation || step[i] == NO_STEP) {
+            return Optional.empty();
+        }
+        return Optional.of(DIRECTIONS[step[i]]);
+    }
+
+    /**
+     * @param x column
+     * @param y row
+     * @return the number of steps from the tile at column x and row y to the target, -1 if it can't be
+     *         reached within the maximum distance
+     */
+    public int distanceAt(final int x, final int y) {
+        if (!isCovered(x, y)) {
+            return -1;
+        }
+        final int i = index(x, y);
+        return stamp[i] == generation ? distance[i] : -1;
+    }
+
+    /**
+     * @param d a direction
+     * @return the horizontal offset of a step in direction d
+     */
+    public static int dx(final Direction d) {
+        switch (d) {
+        case LEFT:
+            return -1;
+        case RIGHT:
+            return 1;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * @param d a direction
+     * @return the vertical offset of a step in direction d
+     */
+    public static int dy(final Direction d) {
+        switch (d) {
+        case UP:
+            return -1;
+        case DOWN:
+            return 1;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * @param d a direction
+     * @return the opposite direction
+     */
+    static Direction opposite(final Direction d) {
+        switch (d) {
+        case LEFT:
+            return Direction.RIGHT;
+        case RIGHT:
+            return Direction.LEFT;
+        case UP:
+            return Direction.DOWN;
+        default:
+            return Direction.UP;
+        }
+    }
+}
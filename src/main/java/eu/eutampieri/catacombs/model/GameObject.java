@@ -1,11 +1,17 @@
 package eu.eutampieri.catacombs.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.List;
 
 /**
  * Abstract class for every game object present in the game.
+ * An object is serialized with the state it has in its store, and read back out of any store.
  */
-public abstract class GameObject {
+public abstract class GameObject implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * A useful enum specifying teams.
@@ -27,21 +33,34 @@ public abstract class GameObject {
     protected final Team team;
 
     /**
-     * Object positions.
+     * Entity hit box.
      */
-    protected int posX, posY;
+    protected final CollisionBox hitBox; // Entity hit box
     /**
-     * Entity kind.
+     * The store holding the state of the object while it's in one, or null.
      */
-    protected GameObjectType kind;
+    transient EntityStore store;
     /**
-     * Object speed.
+     * The handle of the object in its store.
      */
-    protected int speedX, speedY;
+    transient int handle = EntityStore.NO_HANDLE;
     /**
-     * Entity hit box.
+     * The stream of random numbers the RandomService of the world gave to the object, or 0.
+     */
+    long randomStream;
+
+    /**
+     * Object positions, while the object isn't in a store.
+     */
+    private int posX, posY;
+    /**
+     * Entity kind, while the object isn't in a store.
+     */
+    private GameObjectType kind;
+    /**
+     * Object speed, while the object isn't in a store.
      */
-    protected CollisionBox hitBox; // Entity hit box
+    private int speedX, speedY;
 
     /**
      *
@@ -62,17 +81,28 @@ public abstract class GameObject {
     /**
      * Method used in the game loop that updates all elements of a game obj.
      * @param delta time between updates
+     * @param world the other entities updated in the game loop
+     * @return the list of spawned objects
+     */
+    public abstract List<GameObject> update(long delta, WorldView world);
+
+    /**
+     * Updates the object seeing only the objects of a list.
+     * @param delta time between updates
      * @param others list of the other entities updated in the game loop
      * @return the list of spawned objects
      */
-    public abstract List<GameObject> update(long delta, List<GameObject> others);
+    public final List<GameObject> update(final long delta, final List<GameObject> others) {
+        final ListWorldView view = new ListWorldView(others, this);
+        return view.spawnedWith(update(delta, view));
+    }
 
     /**
      * Getter for object X position.
      * @return Object X position
      */
     public int getPosX() {
-        return posX;
+        return store == null ? posX : store.posX(handle);
     }
 
     /**
@@ -80,7 +110,11 @@ public abstract class GameObject {
      * @param posX Object X position to be set
      */
     public void setPosX(final int posX) {
-        this.posX = posX;
+        if (store == null) {
+            this.posX = posX;
+        } else {
+            store.setPosX(handle, posX);
+        }
     }
 
     /**
@@ -88,7 +122,7 @@ public abstract class GameObject {
      * @return Object Y position
      */
     public int getPosY() {
-        return posY;
+        return store == null ? posY : store.posY(handle);
     }
 
     /**
@@ -96,7 +130,11 @@ public abstract class GameObject {
      * @param posY Object Y position to be set
      */
     public void setPosY(final int posY) {
-        this.posY = posY;
+        if (store == null) {
+            this.posY = posY;
+        } else {
+            store.setPosY(handle, posY);
+        }
     }
 
     /**
@@ -105,8 +143,8 @@ public abstract class GameObject {
      * @param posY Position on the Y axis
      */
     public void setPos(final int posX, final int posY) {
-        this.posX = posX;
-        this.posY = posY;
+        this.setPosX(posX);
+        this.setPosY(posY);
     }
 
     /**
@@ -114,7 +152,7 @@ public abstract class GameObject {
      * @return Object X speed
      */
     public int getSpeedX() {
-        return speedX;
+        return store == null ? speedX : store.speedX(handle);
     }
 
     /**
@@ -122,7 +160,11 @@ public abstract class GameObject {
      * @param speedX Speed to be set
      */
     public void setSpeedX(final int speedX) {
-        this.speedX = speedX;
+        if (store == null) {
+            this.speedX = speedX;
+        } else {
+            store.setSpeedX(handle, speedX);
+        }
     }
 
     /**
@@ -130,7 +172,7 @@ public abstract class GameObject {
      * @return Object Y speed
      */
     public int getSpeedY() {
-        return speedY;
+        return store == null ? speedY : store.speedY(handle);
     }
 
     /**
@@ -138,7 +180,11 @@ public abstract class GameObject {
      * @param speedY Speed to be set
      */
     public void setSpeedY(final int speedY) {
-        this.speedY = speedY;
+        if (store == null) {
+            this.speedY = speedY;
+        } else {
+            store.setSpeedY(handle, speedY);
+        }
     }
 
     /**
@@ -155,7 +201,26 @@ public abstract class GameObject {
      * @return Entity Kind
      */
     public GameObjectType getKind() {
-        return kind;
+        return store == null ? kind : store.kind(handle);
+    }
+
+    /**
+     * Setter for GameObject Kind.
+     * @param kind Kind to be set
+     */
+    protected void setKind(final GameObjectType kind) {
+        if (store == null) {
+            this.kind = kind;
+        } else {
+            store.setKind(handle, kind);
+        }
+    }
+
+    /**
+     * @return the handle of the object in the store it's in, or {@link EntityStore#NO_HANDLE}.
+     */
+    public int getHandle() {
+        return handle;
     }
 
     /**
@@ -180,4 +245,49 @@ public abstract class GameObject {
     public Team getTeam() {
         return team;
     }
+
+    /**
+     * Makes the object read and write its state in a store, which already holds it.
+     * @param store  the store
+     * @param handle the handle of the object in store
+     */
+    void attach(final EntityStore store, final int handle) {
+        this.store = store;
+        this.handle = handle;
+        this.hitBox.attach(store, handle);
+    }
+
+    /**
+     * Takes the state of the object back from the store it's in.
+     */
+    void detach() {
+        final int x = getPosX();
+        final int y = getPosY();
+        final int sx = getSpeedX();
+        final int sy = getSpeedY();
+        final GameObjectType k = getKind();
+        this.hitBox.detach();
+        this.store = null;
+        this.handle = EntityStore.NO_HANDLE;
+        this.posX = x;
+        this.posY = y;
+        this.speedX = sx;
+        this.speedY = sy;
+        this.kind = k;
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        // the fields are only read while the object isn't in a store, so they can be brought up to date
+        this.posX = getPosX();
+        this.posY = getPosY();
+        this.speedX = getSpeedX();
+        this.speedY = getSpeedY();
+        this.kind = getKind();
+        out.defaultWriteObject();
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.handle = EntityStore.NO_HANDLE;
+    }
 }
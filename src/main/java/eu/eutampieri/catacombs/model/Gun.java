@@ -7,6 +7,7 @@ import eu.eutampieri.catacombs.model.map.TileMap;
  * @see Weapon
  */
 public class Gun extends Weapon {
+    private static final long serialVersionUID = 1L;
     private static final int STRENGTH = 7;
     private static final int FIRE_RATE = 90;
     private static final int PROJECTILE_SPEED = 15;
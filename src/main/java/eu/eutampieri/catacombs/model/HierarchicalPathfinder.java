@@ -0,0 +1,510 @@
+package eu.eutampieri.catacombs.model;
+
+import eu.eutampieri.catacombs.model.map.TileMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Plans routes across a TileMap in two levels.
+ * The map is split in square clusters; where two clusters touch, every stretch of walkable border becomes a
+ * portal, i.e. a pair of abstract nodes, one for each side. Nodes of the same cluster are linked by the length
+ * of the shortest path between them inside the cluster. Routes are planned with A* on this abstract graph and
+ * only the part of the route inside the cluster of the entity is refined at tile level.
+ * The nodes and links of a cluster are found the first time a search reaches it, so on maps which are generated
+ * lazily only the clusters routes go through are generated.
+ * Routes between clusters are kept in an LRU cache, so entities chasing a target far away usually need only
+ * a search inside their own cluster.
+ * Entities bigger than a tile are planned for on the tiles where a square footprint of walkable tiles starts,
+ * going right and down from them; routes are then made of the top left tiles of the footprint.
+ */
+public final class HierarchicalPathfinder {
+    /**
+     * Side of a cluster in tiles.
+     */
+    public static final int CLUSTER_SIDE = 16;
+    /**
+     * How many routes between clusters are kept by default.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 256;
+    private static final byte NO_STEP = -1;
+    private static final int UNREACHED = -1;
+    // the starting and destination tiles of a search, which aren't nodes
+    private static final int START = -2;
+    private static final int GOAL = -3;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final TileMap tileMap;
+    /**
+     * Side in tiles of the footprint of the entities routes are planned for.
+     */
+    private final int footprint;
+    private final int width;
+    private final int clustersWide;
+    private final int clustersHigh;
+
+    /**
+     * The clusters found so far.
+     */
+    private final Map<Integer, Cluster> clusters = new HashMap<>();
+    private final Map<Long, int[]> routes;
+
+    // scratch space of the searches inside a cluster
+    private final int[] bfsStamp = new int[CLUSTER_SIDE * CLUSTER_SIDE];
+    private final int[] bfsDistance = new int[CLUSTER_SIDE * CLUSTER_SIDE];
+    private final byte[] bfsStep = new byte[CLUSTER_SIDE * CLUSTER_SIDE];
+    private final int[] bfsQueue = new int[CLUSTER_SIDE * CLUSTER_SIDE];
+    private int bfsGeneration;
+
+    /**
+     * The nodes of a cluster, which are identified by their tile, encoded as y * width + x.
+     */
+    private static final class Cluster {
+        private final int[] nodes;
+        /**
+         * Linked nodes and costs of the links, for each node: first the node across its portal, in the
+         * neighbouring cluster, then the nodes of the cluster it can reach.
+         */
+        private final int[][] linkTo;
+        private final int[][] linkCost;
+
+        Cluster(final int[] nodes, final int[][] linkTo, final int[][] linkCost) {
+            this.nodes = nodes;
+            this.linkTo = linkTo;
+            this.linkCost = linkCost;
+        }
+
+        int indexOf(final int node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] == node) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("No node at tile " + node);
+        }
+    }
+
+    /**
+     * Plans routes on a map for entities fitting a tile.
+     * @param tileMap the map to plan routes on
+     */
+    public HierarchicalPathfinder(final TileMap tileMap) {
+        this(tileMap, DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Plans routes on a map for entities fitting a tile.
+     * @param tileMap       the map to plan routes on
+     * @param cacheCapacity how many routes between clusters are kept
+     */
+    public HierarchicalPathfinder(final TileMap tileMap, final int cacheCapacity) {
+        this(tileMap, 1, cacheCapacity);
+    }
+
+    /**
+     * Plans routes on a map.
+     * @param tileMap       the map to plan routes on
+     * @param footprint     side in tiles of the square of walkable tiles the entities need
+     * @param cacheCapacity how many routes between clusters are kept
+     */
+    public HierarchicalPathfinder(final TileMap tileMap, final int footprint, final int cacheCapacity) {
+        if (footprint < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.tileMap = tileMap;
+        this.footprint = footprint;
+        this.width = tileMap.width();
+        this.clustersWide = (tileMap.width() + CLUSTER_SIDE - 1) / CLUSTER_SIDE;
+        this.clustersHigh = (tileMap.height() + CLUSTER_SIDE - 1) / CLUSTER_SIDE;
+        this.routes = new LinkedHashMap<>(cacheCapacity + 1, 1f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, int[]> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    /**
+     * @return the cluster, finding its nodes and links if it's the first time it's needed
+     */
+    private Cluster cluster(final int c) {
+        Cluster found = clusters.get(c);
+        if (found == null) {
+            found = buildCluster(c);
+            clusters.put(c, found);
+        }
+        return found;
+    }
+
+    private Cluster buildCluster(final int c) {
+        final int cx = c % clustersWide;
+        final int cy = c / clustersWide;
+        final int x0 = cx * CLUSTER_SIDE;
+        final int y0 = cy * CLUSTER_SIDE;
+        // portals, walking each border the same way as the cluster on the other side of it does
+        final List<Integer> tiles = new ArrayList<>();
+        final List<Integer> crossings = new ArrayList<>();
+        if (cx + 1 < clustersWide) {
+            addPortals(tiles, crossings, x0 + CLUSTER_SIDE - 1, y0, 0, 1, 1, 0, true);
+        }
+        if (cx > 0) {
+            addPortals(tiles, crossings, x0 - 1, y0, 0, 1, 1, 0, false);
+        }
+        if (cy + 1 < clustersHigh) {
+            addPortals(tiles, crossings, x0, y0 + CLUSTER_SIDE - 1, 1, 0, 0, 1, true);
+        }
+        if (cy > 0) {
+            addPortals(tiles, crossings, x0, y0 - 1, 1, 0, 0, 1, false);
+        }
+        final int nodes = tiles.size();
+        // links across portals and inside the cluster
+        final int[][] linkTo = new int[nodes][];
+        final int[][] linkCost = new int[nodes][];
+        for (int from = 0; from < nodes; from++) {
+            bfs(tiles.get(from));
+            final List<int[]> links = new ArrayList<>();
+            links.add(new int[] {crossings.get(from), 1 });
+            for (int to = 0; to < nodes; to++) {
+                final int d = bfsDistanceTo(tiles.get(to));
+                if (to != from && d != UNREACHED) {
+                    links.add(new int[] {tiles.get(to), d });
+                }
+            }
+            linkTo[from] = links.stream().mapToInt(l -> l[0]).toArray();
+            linkCost[from] = links.stream().mapToInt(l -> l[1]).toArray();
+        }
+        return new Cluster(tiles.stream().mapToInt(Integer::intValue).toArray(), linkTo, linkCost);
+    }
+
+    /**
+     * Adds the nodes on one side of the portals of a border between two clusters, one for every stretch of walkable
+     * tiles along it.
+     * The border starts at (x, y) on the first cluster and goes on by (stepX, stepY); the tiles facing it
+     * on the other cluster are (crossX, crossY) away. The nodes added are on the first cluster if first is true.
+     */
+    private void addPortals(final List<Integer> tiles, final List<Integer> crossings, final int x, final int y,
+            final int stepX, final int stepY, final int crossX, final int crossY, final boolean first) {
+        int runStart = -1;
+        for (int i = 0; i <= CLUSTER_SIDE; i++) {
+            final int bx = x + i * stepX;
+            final int by = y + i * stepY;
+            final boolean open = i < CLUSTER_SIDE && isClear(bx, by)
+                    && isClear(bx + crossX, by + crossY);
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                final int middle = (runStart + i - 1) / 2;
+                final int px = x + middle * stepX;
+                final int py = y + middle * stepY;
+                final int near = py * width + px;
+                final int far = (py + crossY) * width + px + crossX;
+                tiles.add(first ? near : far);
+                crossings.add(first ? far : near);
+                runStart = -1;
+            }
+        }
+    }
+
+    /**
+     * @return if the footprint starting at column x and row y is all walkable
+     */
+    private boolean isClear(final int x, final int y) {
+        for (int dy = 0; dy < footprint; dy++) {
+            for (int dx = 0; dx < footprint; dx++) {
+                if (!tileMap.isWalkable(x + dx, y + dy)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the first of the footprints covering the tile at column x and row y which is all walkable, encoded
+     *         as y * width + x, or -1 if there's none
+     */
+    private int clearFootprintOver(final int x, final int y) {
+        for (int dy = 0; dy < footprint; dy++) {
+            for (int dx = 0; dx < footprint; dx++) {
+                if (isClear(x - dx, y - dy)) {
+                    return (y - dy) * width + x - dx;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the side in tiles of the footprint of the entities routes are planned for.
+     */
+    public int getFootprint() {
+        return footprint;
+    }
+
+    private int clusterOf(final int tile) {
+        return tile / width / CLUSTER_SIDE * clustersWide + tile % width / CLUSTER_SIDE;
+    }
+
+    /**
+     * Breadth first search from a tile, restricted to its cluster.
+     * Afterwards the reached tiles of the cluster hold their distance from the tile and the direction of their
+     * first step toward it.
+     */
+    private void bfs(final int from) {
+        bfsGeneration++;
+        final int x0 = from % width / CLUSTER_SIDE * CLUSTER_SIDE;
+        final int y0 = from / width / CLUSTER_SIDE * CLUSTER_SIDE;
+        final int start = local(from);
+        bfsStamp[start] = bfsGeneration;
+        bfsDistance[start] = 0;
+        bfsStep[start] = NO_STEP;
+        bfsQueue[0] = start;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            final int current = bfsQueue[head++];
+            final int cx = current % CLUSTER_SIDE;
+            final int cy = current / CLUSTER_SIDE;
+            for (final Direction d : DIRECTIONS) {
+                final int nx = cx + FlowField.dx(d);
+                final int ny = cy + FlowField.dy(d);
+                if (nx >= 0 && ny >= 0 && nx < CLUSTER_SIDE && ny < CLUSTER_SIDE
+                        && isClear(x0 + nx, y0 + ny)) {
+                    final int next = ny * CLUSTER_SIDE + nx;
+                    if (bfsStamp[next] != bfsGeneration) {
+                        bfsStamp[next] = bfsGeneration;
+                        bfsDistance[next] = bfsDistance[current] + 1;
+                        bfsStep[next] = (byte) FlowField.opposite(d).ordinal();
+                        bfsQueue[tail++] = next;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of a tile inside its cluster
+     */
+    private int local(final int tile) {
+        return tile / width % CLUSTER_SIDE * CLUSTER_SIDE + tile % width % CLUSTER_SIDE;
+    }
+
+    /**
+     * @return the distance of a tile of the cluster of the last search from its starting tile
+     */
+    private int bfsDistanceTo(final int tile) {
+        final int i = local(tile);
+        return bfsStamp[i] == bfsGeneration ? bfsDistance[i] : UNREACHED;
+    }
+
+    /**
+     * @return the first step from a tile to another one of the same cluster, staying inside the cluster
+     */
+    private Optional<Direction> stepInsideCluster(final int from, final int to) {
+        bfs(to);
+        final int i = local(from);
+        if (bfsStamp[i] != bfsGeneration || bfsStep[i] == NO_STEP) {
+            return Optional.empty();
+        }
+        return Optional.of(DIRECTIONS[bfsStep[i]]);
+    }
+
+    /**
+     * Finds the direction of the first step of a route between two tiles.
+     * @param fromX column of the starting tile, the top left one of the footprint
+     * @param fromY row of the starting tile
+     * @param toX   column of the destination, which only has to be covered by a footprint
+     * @param toY   row of the destination
+     * @return the direction of the first step, empty if the footprint already covers the destination or there's no
+     *         route
+     */
+    public synchronized Optional<Direction> nextStep(final int fromX, final int fromY, final int toX, final int toY) {
+        if (!isClear(fromX, fromY) || covers(fromX, fromY, toX, toY)) {
+            return Optional.empty();
+        }
+        final int from = fromY * width + fromX;
+        final int to = clearFootprintOver(toX, toY);
+        if (to < 0) {
+            return Optional.empty();
+        }
+        final int fromCluster = clusterOf(from);
+        final int toCluster = clusterOf(to);
+        if (fromCluster == toCluster) {
+            final Optional<Direction> step = stepInsideCluster(from, to);
+            if (step.isPresent()) {
+                return step;
+            }
+        }
+        final long key = (long) fromCluster << Integer.SIZE | toCluster;
+        final int[] cached = fromCluster == toCluster ? null : routes.get(key);
+        if (cached != null) {
+            final Optional<Direction> step = stepAlong(cached, from, to);
+            if (step.isPresent()) {
+                return step;
+            }
+        }
+        final int[] route = search(from, to);
+        if (route == null) {
+            return Optional.empty();
+        }
+        if (fromCluster != toCluster) {
+            routes.put(key, route);
+        }
+        return stepAlong(route, from, to);
+    }
+
+    /**
+     * @param fromX column of the starting tile
+     * @param fromY row of the starting tile
+     * @param toX   column of the destination
+     * @param toY   row of the destination
+     * @return if there's a route between the two tiles
+     */
+    public synchronized boolean isReachable(final int fromX, final int fromY, final int toX, final int toY) {
+        return covers(fromX, fromY, toX, toY) && isClear(fromX, fromY)
+                || nextStep(fromX, fromY, toX, toY).isPresent();
+    }
+
+    /**
+     * @return if the footprint starting at column fromX and row fromY covers the tile at column toX and row toY
+     */
+    private boolean covers(final int fromX, final int fromY, final int toX, final int toY) {
+        return toX >= fromX && toY >= fromY && toX < fromX + footprint && toY < fromY + footprint;
+    }
+
+    /**
+     * @return the number of routes between clusters in the cache.
+     */
+    public synchronized int cachedRoutes() {
+        return routes.size();
+    }
+
+    /**
+     * @return the first step along a route, which is a list of node tiles.
+     */
+    private Optional<Direction> stepAlong(final int[] route, final int from, final int to) {
+        final int cluster = clusterOf(from);
+        // the last node of the route in the starting cluster, before the route leaves it
+        int exit = -1;
+        while (exit + 1 < route.length && clusterOf(route[exit + 1]) == cluster) {
+            exit++;
+        }
+        if (exit < 0) {
+            return clusterOf(to) == cluster ? stepInsideCluster(from, to) : Optional.empty();
+        }
+        if (route[exit] != from) {
+            return stepInsideCluster(from, route[exit]);
+        }
+        if (exit + 1 == route.length) {
+            return stepInsideCluster(from, to);
+        }
+        // consecutive nodes of different clusters are the two sides of a portal
+        return directionBetween(from, route[exit + 1]);
+    }
+
+    private Optional<Direction> directionBetween(final int from, final int to) {
+        for (final Direction d : DIRECTIONS) {
+            if (from + FlowField.dy(d) * width + FlowField.dx(d) == to) {
+                return Optional.of(d);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A* on the abstract graph, plus the starting and destination tiles.
+     * @return the tiles of the nodes along the route, null if there's no route
+     */
+    private int[] search(final int from, final int to) {
+        final int fromCluster = clusterOf(from);
+        final int toCluster = clusterOf(to);
+        // links of the starting tile to the nodes of its cluster
+        final int[] startLinks = cluster(fromCluster).nodes;
+        bfs(from);
+        final int[] startCosts = new int[startLinks.length];
+        for (int i = 0; i < startLinks.length; i++) {
+            startCosts[i] = bfsDistanceTo(startLinks[i]);
+        }
+        final int direct = toCluster == fromCluster ? bfsDistanceTo(to) : UNREACHED;
+        // links of the nodes of the destination cluster to the destination
+        final int[] goalLinks = cluster(toCluster).nodes;
+        bfs(to);
+        final Map<Integer, Integer> goalCost = new HashMap<>();
+        for (final int n : goalLinks) {
+            goalCost.put(n, bfsDistanceTo(n));
+        }
+
+        final Map<Integer, Integer> g = new HashMap<>();
+        final Map<Integer, Integer> parent = new HashMap<>();
+        final Set<Integer> closed = new HashSet<>();
+        final PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        g.put(START, 0);
+        open.add(new long[] {distance(from, to), START });
+        while (!open.isEmpty()) {
+            final int current = (int) open.poll()[1];
+            if (!closed.add(current)) {
+                continue;
+            }
+            if (current == GOAL) {
+                return route(parent);
+            }
+            final int[] targets;
+            final int[] costs;
+            if (current == START) {
+                targets = direct == UNREACHED ? startLinks : append(startLinks, GOAL);
+                costs = direct == UNREACHED ? startCosts : append(startCosts, direct);
+            } else {
+                final Cluster in = cluster(clusterOf(current));
+                final int i = in.indexOf(current);
+                final int toGoal = goalCost.getOrDefault(current, UNREACHED);
+                targets = toGoal == UNREACHED ? in.linkTo[i] : append(in.linkTo[i], GOAL);
+                costs = toGoal == UNREACHED ? in.linkCost[i] : append(in.linkCost[i], toGoal);
+            }
+            for (int i = 0; i < targets.length; i++) {
+                final int next = targets[i];
+                if (costs[i] == UNREACHED || closed.contains(next)) {
+                    continue;
+                }
+                final int tentative = g.get(current) + costs[i];
+                if (tentative < g.getOrDefault(next, Integer.MAX_VALUE)) {
+                    g.put(next, tentative);
+                    parent.put(next, current);
+                    open.add(new long[] {tentative + distance(next == GOAL ? to : next, to), next });
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int[] route(final Map<Integer, Integer> parent) {
+        final List<Integer> nodes = new ArrayList<>();
+        for (int n = parent.get(GOAL); n != START; n = parent.get(n)) {
+            nodes.add(n);
+        }
+        final int[] res = new int[nodes.size()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = nodes.get(res.length - 1 - i);
+        }
+        return res;
+    }
+
+    private int distance(final int a, final int b) {
+        return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+    }
+
+    private static int[] append(final int[] array, final int value) {
+        final int[] res = Arrays.copyOf(array, array.length + 1);
+        res[array.length] = value;
+        return res;
+    }
+}
@@ -0,0 +1,102 @@
+package eu.eutampieri.catacombs.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A view of the objects of a list, which it scans for each query.
+ */
+final class ListWorldView implements WorldView {
+    private final List<GameObject> objects;
+    private final GameObject self;
+    private SplittableRandom random;
+    private final List<GameObject> spawned = new ArrayList<>();
+
+    /**
+     * @param objects the objects in the world
+     * @param self    the object the world is seen from, which is skipped if it's in objects
+     */
+    ListWorldView(final List<GameObject> objects, final GameObject self) {
+        this.objects = objects;
+        this.self = self;
+    }
+
+    @Override
+    public Optional<Player> getPlayer() {
+        for (final GameObject o : objects) {
+            if (o != self && o instanceof Player) {
+                return Optional.of((Player) o);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public ProjectilePool getProjectilePool() {
+        return ProjectilePool.unpooled();
+    }
+
+    @Override
+    public Consumer<GameObject> getSpawnSink() {
+        return spawned::add;
+    }
+
+    /**
+     * @param returned the objects returned by the update
+     * @return the objects spawned during the update, the ones given to the spawn sink first
+     */
+    List<GameObject> spawnedWith(final List<GameObject> returned) {
+        if (spawned.isEmpty()) {
+            return returned;
+        }
+        spawned.addAll(returned);
+        return spawned;
+    }
+
+    @Override
+    public SplittableRandom getRandom() {
+        if (random == null) {
+            random = new SplittableRandom();
+        }
+        return random;
+    }
+
+    @Override
+    public void forEach(final Consumer<? super GameObject> action) {
+        for (final GameObject o : objects) {
+            if (o != self) {
+                action.accept(o);
+            }
+        }
+    }
+
+    @Override
+    public void forEachIn(final CollisionBox area, final int teamMask, final int kindMask,
+            final Consumer<? super GameObject> action) {
+        for (final GameObject o : objects) {
+            if (matches(o, area, teamMask, kindMask)) {
+                action.accept(o);
+            }
+        }
+    }
+
+    @Override
+    public Optional<GameObject> findFirstIn(final CollisionBox area, final int teamMask, final int kindMask,
+            final Predicate<? super GameObject> filter) {
+        for (final GameObject o : objects) {
+            if (matches(o, area, teamMask, kindMask) && filter.test(o)) {
+                return Optional.of(o);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private boolean matches(final GameObject o, final CollisionBox area, final int teamMask, final int kindMask) {
+        return o != self && (teamMask & 1 << o.getTeam().ordinal()) != 0
+                && (kindMask & 1 << o.getKind().ordinal()) != 0 && o.getHitBox().overlaps(area);
+    }
+}
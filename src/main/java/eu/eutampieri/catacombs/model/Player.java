@@ -3,17 +3,18 @@ package eu.eutampieri.catacombs.model;
 import eu.eutampieri.catacombs.model.map.TileMap;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.function.Consumer;
 import java.util.List;
 
 /**
  * This class represents a player.
  */
 public final class Player extends Entity {
+    private static final long serialVersionUID = 1L;
     private static final int BASE_MOVEMENT_SPEED = 4;
     private static final int MAX_BASE_HP = 100;
     private static final int SIZE = 28;
 
-    private int health;
     private final String name;
     private boolean fire;
     private Weapon weapon;
@@ -27,26 +28,12 @@ public final class Player extends Entity {
         this.weapon = new Gun(this, tm, x, y, this.getTeam());
     }
 
-    /**
-     * @return Player current health
-     */
-    @Override
-    public int getHealth() {
-        return this.health;
-    }
-
     /**
      * @param health the new health value
      */
     @Override
     public void setHealth(final int health) {
-        this.health = health;
-        if (this.health > 100) {
-            this.health = 100;
-        } else if (this.health < 0) {
-            this.health = 0;
-        }
-
+        super.setHealth(Math.max(0, Math.min(MAX_BASE_HP, health)));
     }
 
     @Override
@@ -111,43 +98,48 @@ public final class Player extends Entity {
         this.fire = true;
     }
 
-    private List<GameObject> spawnObject() {
+    private void spawnObject(final ProjectilePool pool, final Consumer<GameObject> sink) {
         if (this.fire) {
             this.fire = false;
             switch (this.face) {
             case DOWN:
-                return this.weapon.fire(0, 1);
+                this.weapon.fire(0, 1, pool, sink);
+                break;
             case RIGHT:
-                return this.weapon.fire(1, 0);
+                this.weapon.fire(1, 0, pool, sink);
+                break;
             case LEFT:
-                return this.weapon.fire(-1, 0);
+                this.weapon.fire(-1, 0, pool, sink);
+                break;
             case UP:
-                return this.weapon.fire(0, -1);
+                this.weapon.fire(0, -1, pool, sink);
+                break;
             default:
-                return List.of();
+                break;
             }
-        } else {
-            return List.of();
         }
     }
 
     @Override
-    public List<GameObject> update(final long delta, final List<GameObject> others) {
-        super.update(delta, others);
-        this.weapon.update(delta, others);
+    public List<GameObject> update(final long delta, final WorldView world) {
+        super.update(delta, world);
+        this.weapon.update(delta, world);
 
-        others.parallelStream().filter((x) -> x instanceof Weapon)
-                .filter((x) -> x.getHitBox().overlaps(this.getHitBox())).map((x) -> (Weapon) (x)).findAny()
+        world.findFirstIn(this.getHitBox(), SpatialHashGrid.ALL, SpatialHashGrid.ALL, (x) -> x instanceof Weapon)
+                .map((x) -> (Weapon) (x))
                 .ifPresent((x) -> {
                     x.setUser(this);
                     x.setPickedUp();
                     this.weapon = x;
                 });
 
-        others.parallelStream().filter((x) -> x instanceof HealthModifier && !(x instanceof Projectile))
-                .filter((x) -> x.getHitBox().overlaps(this.getHitBox())).map((x) -> (HealthModifier) (x))
-                .forEach((x) -> x.useOn(this));
-        return this.spawnObject();
+        world.forEachIn(this.getHitBox(), SpatialHashGrid.ALL, SpatialHashGrid.ALL, (x) -> {
+            if (x instanceof HealthModifier && !(x instanceof Projectile)) {
+                ((HealthModifier) x).useOn(this);
+            }
+        });
+        this.spawnObject(world.getProjectilePool(), world.getSpawnSink());
+        return List.of();
     }
 
     /**
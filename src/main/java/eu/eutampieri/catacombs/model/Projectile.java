@@ -3,15 +3,20 @@ package eu.eutampieri.catacombs.model;
 import java.util.List;
 
 import eu.eutampieri.catacombs.model.map.TileMap;
-import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 
 /**
  * A GameObject representing a bullet.
  */
 public final class Projectile extends GameObject implements HealthModifier {
-    private final TileMap map;
-    private final int strength;
+    private static final long serialVersionUID = 1L;
+    private TileMap map;
+    private int strength;
     private boolean toErase;
+    /**
+     * Whether the projectile is in a pool, waiting to be fired again.
+     */
+    private boolean pooled;
     private static final int BOX_SIZE = 8;
 
     /**
@@ -26,8 +31,8 @@ public final class Projectile extends GameObject implements HealthModifier {
     public Projectile(final int x, final int y, final int sx, final int sy, final int strength, final TileMap map,
             final Team team) {
         super(x, y, GameObjectType.BULLET, new CollisionBox(x, y, BOX_SIZE, BOX_SIZE), team);
-        this.speedX = sx;
-        this.speedY = sy;
+        this.setSpeedX(sx);
+        this.setSpeedY(sy);
         this.strength = strength;
         this.map = map;
     }
@@ -46,38 +51,59 @@ public final class Projectile extends GameObject implements HealthModifier {
     public Projectile(final int x, final int y, final int sx, final int sy, final int strength, final TileMap map,
             final Team team, final GameObjectType kind, final int size) {
         super(x, y, kind, new CollisionBox(x, y, size, size), team);
-        this.speedX = sx;
-        this.speedY = sy;
+        this.setSpeedX(sx);
+        this.setSpeedY(sy);
         this.strength = strength;
         this.map = map;
     }
 
     @Override
-    public List<GameObject> update(final long delta, final List<GameObject> others) {
-        posX += this.speedX;
-        posY += this.speedY;
-        this.hitBox.move(this.speedX, this.speedY);
-        for (final var o : others) {
-            if (o instanceof LivingCharacter && o.getHitBox().overlaps(this.getHitBox())
-                    && o.getTeam() != this.getTeam()) {
-                this.useOn((LivingCharacter) o);
-                this.toErase = true;
-                break;
-            }
-        }
-        if (!map.at(this.posX / AssetManagerProxy.getMapTileSize(), this.posY / AssetManagerProxy.getMapTileSize())
-                .isWalkable()
-                || !map.at((this.posX + this.getHitBox().getWidth()) / AssetManagerProxy.getMapTileSize(),
-                        this.posY / AssetManagerProxy.getMapTileSize()).isWalkable()
-                || !map.at(this.posX / AssetManagerProxy.getMapTileSize(),
-                        (this.posY + this.getHitBox().getHeight()) / AssetManagerProxy.getMapTileSize()).isWalkable()
-                || !map.at((this.posX + this.getHitBox().getWidth()) / AssetManagerProxy.getMapTileSize(),
-                        (this.posY + this.getHitBox().getHeight()) / AssetManagerProxy.getMapTileSize()).isWalkable()) {
+    public List<GameObject> update(final long delta, final WorldView world) {
+        this.setPos(this.getPosX() + this.getSpeedX(), this.getPosY() + this.getSpeedY());
+        this.hitBox.move(this.getSpeedX(), this.getSpeedY());
+        world.findFirstIn(this.getHitBox(), SpatialHashGrid.ALL, SpatialHashGrid.ALL,
+                (o) -> o instanceof LivingCharacter && o.getTeam() != this.getTeam())
+                .ifPresent((o) -> {
+                    this.useOn((LivingCharacter) o);
+                    this.toErase = true;
+                });
+        final WorldGeometry geometry = map.geometry();
+        final int left = geometry.toTile(this.getPosX());
+        final int right = geometry.toTile(this.getPosX() + this.getHitBox().getWidth());
+        final int top = geometry.toTile(this.getPosY());
+        final int bottom = geometry.toTile(this.getPosY() + this.getHitBox().getHeight());
+        if (!map.isWalkable(left, top) || !map.isWalkable(right, top)
+                || !map.isWalkable(left, bottom) || !map.isWalkable(right, bottom)) {
             this.toErase = true;
         }
         return List.of();
     }
 
+    /**
+     * Makes the projectile as if it had just been created, so that it can be fired again.
+     */
+    void reset(final int x, final int y, final int sx, final int sy, final int strength, final TileMap map,
+            final GameObjectType kind, final int size) {
+        this.setPos(x, y);
+        this.hitBox.setLocation(x, y);
+        this.hitBox.setDimensions(size, size);
+        this.setSpeedX(sx);
+        this.setSpeedY(sy);
+        this.setKind(kind);
+        this.strength = strength;
+        this.map = map;
+        this.toErase = false;
+        this.pooled = false;
+    }
+
+    boolean isPooled() {
+        return this.pooled;
+    }
+
+    void setPooled() {
+        this.pooled = true;
+    }
+
     @Override
     public boolean isMarkedForDeletion() {
         return this.toErase;
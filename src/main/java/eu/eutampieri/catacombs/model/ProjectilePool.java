@@ -0,0 +1,104 @@
+package eu.eutampieri.catacombs.model;
+
+import eu.eutampieri.catacombs.model.map.TileMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the projectiles which have been removed from the world, so that weapons can fire them again instead of
+ * creating new ones.
+ * A projectile is given back to the pool once it's marked for deletion, and it's reset when it's taken again.
+ * A pool isn't thread safe.
+ */
+public final class ProjectilePool {
+    /**
+     * Default number of projectiles of each team a pool keeps.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final ProjectilePool UNPOOLED = new ProjectilePool(0);
+
+    private final int capacity;
+    /**
+     * The projectiles which can be taken, by team.
+     */
+    private final List<List<Projectile>> free = new ArrayList<>();
+
+    /**
+     * Creates a pool with the default capacity.
+     */
+    public ProjectilePool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of projectiles of each team the pool keeps, the others are left to the garbage
+     *                 collector
+     */
+    public ProjectilePool(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        for (int i = 0; i < GameObject.Team.values().length; i++) {
+            free.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * @return a pool which never keeps projectiles, so it always creates new ones.
+     */
+    public static ProjectilePool unpooled() {
+        return UNPOOLED;
+    }
+
+    /**
+     * Takes a projectile from the pool, or creates it if the pool has none of that team.
+     * @param x        coordinate x of the projectile.
+     * @param y        coordinate y of the projectile.
+     * @param sx       x component of the projectile's speed.
+     * @param sy       y component of the projectile's speed.
+     * @param strength damage a projectile is going to inflict.
+     * @param map      TileMap the projectile lives in.
+     * @param team     projectile's Team.
+     * @param kind     GameObjectKind.
+     * @param size     size of the projectile.
+     * @return a projectile as if it had just been created with these values
+     */
+    public Projectile acquire(final int x, final int y, final int sx, final int sy, final int strength,
+            final TileMap map, final GameObject.Team team, final GameObjectType kind, final int size) {
+        final List<Projectile> projectiles = free.get(team.ordinal());
+        if (projectiles.isEmpty()) {
+            return new Projectile(x, y, sx, sy, strength, map, team, kind, size);
+        }
+        final Projectile p = projectiles.remove(projectiles.size() - 1);
+        p.reset(x, y, sx, sy, strength, map, kind, size);
+        return p;
+    }
+
+    /**
+     * Gives a projectile back to the pool.
+     * @param p a projectile marked for deletion, which isn't used anywhere else
+     * @return if the pool kept the projectile; it doesn't if it's full or if it already has it
+     */
+    public boolean release(final Projectile p) {
+        if (!p.isMarkedForDeletion()) {
+            throw new IllegalArgumentException("The projectile is still in use");
+        }
+        final List<Projectile> projectiles = free.get(p.getTeam().ordinal());
+        if (p.isPooled() || projectiles.size() >= capacity) {
+            return false;
+        }
+        p.setPooled();
+        projectiles.add(p);
+        return true;
+    }
+
+    /**
+     * @return the number of projectiles in the pool.
+     */
+    public int available() {
+        return free.stream().mapToInt(List::size).sum();
+    }
+}
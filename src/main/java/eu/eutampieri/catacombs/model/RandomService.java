@@ -0,0 +1,98 @@
+package eu.eutampieri.catacombs.model;
+
+import java.io.Serializable;
+import java.util.SplittableRandom;
+
+/**
+ * Where all the random choices of a world come from, derived from a single session seed.
+ * Every object in the world has a stream of its own, given when it's added, and every subsystem of the world has
+ * one too; the generator of a stream at an update only depends on the seed, the stream and the update, so the
+ * same seed always gives the same game, however the updates are scheduled between threads.
+ * The service only keeps the seed and the number of streams given, so it can be serialized with the world.
+ */
+public final class RandomService implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final long OBJECT_STREAMS = 1;
+    private static final long SUBSYSTEM_STREAMS = 2;
+
+    private final long seed;
+    private long streams;
+
+    /**
+     * The parts of the world making random choices which aren't up to a single object.
+     */
+    public enum Subsystem {
+        /**
+         * The enemies, potions and weapons the world starts with.
+         */
+        POPULATION,
+        /**
+         * Where the boss spawns.
+         */
+        BOSS,
+    }
+
+    /**
+     * @param seed the session seed
+     */
+    public RandomService(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return the session seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gives an object a new stream, replacing the one it had in a world before, if any.
+     * Objects have to be registered in the same order for the game to be the same.
+     * @param object an object being added to the world
+     */
+    public void register(final GameObject object) {
+        streams++;
+        object.randomStream = streams;
+    }
+
+    /**
+     * @param object a registered object
+     * @param tick   the update
+     * @return a generator only the object uses in that update.
+     */
+    public SplittableRandom forObject(final GameObject object, final long tick) {
+        if (object.randomStream == 0) {
+            throw new IllegalArgumentException("The object has no stream");
+        }
+        return new SplittableRandom(hash(OBJECT_STREAMS, object.randomStream, tick));
+    }
+
+    /**
+     * @param subsystem a subsystem
+     * @param tick      the update
+     * @return a generator only the subsystem uses in that update.
+     */
+    public SplittableRandom forSubsystem(final Subsystem subsystem, final long tick) {
+        return new SplittableRandom(hash(SUBSYSTEM_STREAMS, subsystem.ordinal(), tick));
+    }
+
+    /**
+     * @return a well mixed hash of the seed and the arguments.
+     */
+    private long hash(final long kind, final long stream, final long tick) {
+        long h = seed;
+        h = mix(h + kind);
+        h = mix(h + stream);
+        return mix(h + tick);
+    }
+
+    private static long mix(final long value) {
+        // Check:OFF: MagicNumber
+        long z = value + 0x9E37_79B9_7F4A_7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+        return z ^ (z >>> 31);
+        // Check:ON: MagicNumber
+    }
+}
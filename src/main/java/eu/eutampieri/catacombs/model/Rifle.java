@@ -1,17 +1,17 @@
 package eu.eutampieri.catacombs.model;
 
 import eu.eutampieri.catacombs.model.map.TileMap;
-import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
 
 /**
  * A weapon that fires rapidly but deals below average damage.
  * @see Weapon
  */
 public class Rifle extends Weapon {
+    private static final long serialVersionUID = 1L;
     private static final int STRENGTH = 3;
     private static final int FIRE_RATE = 210;
     private static final int PROJECTILE_SPEED = 14;
-    private static final int BOX_WIDTH = (int) (45 * AssetManagerProxy.getWeaponScalingFactor());
+    private static final int BOX_WIDTH = (int) (45 * SCALING_FACTOR);
     private static final int BOX_HEIGHT = 17;
 
     /**
@@ -6,6 +6,7 @@ import java.util.List;
  * A potion that will increase a player's health by a fixed amount.
  */
 public final class SimplePotion extends GameObject implements HealthModifier {
+    private static final long serialVersionUID = 1L;
     private final int healthDelta;
     private final String name;
     private static final int SIZE = 12;
@@ -28,7 +29,7 @@ public final class SimplePotion extends GameObject implements HealthModifier {
     }
 
     @Override
-    public List<GameObject> update(final long delta, final List<GameObject> others) {
+    public List<GameObject> update(final long delta, final WorldView world) {
         return List.of();
     }
 
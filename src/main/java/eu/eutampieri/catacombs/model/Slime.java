@@ -3,12 +3,13 @@ package eu.eutampieri.catacombs.model;
 import eu.eutampieri.catacombs.model.gen.ObjectFactory;
 import eu.eutampieri.catacombs.model.gen.ObjectFactoryImpl;
 import eu.eutampieri.catacombs.model.map.TileMap;
-import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.Optional;
+import java.util.SplittableRandom;
 
 /**
  * Slime class - the slime is an enemy that walks toward the targeted character
@@ -17,14 +18,19 @@ import java.util.Random;
  * @see HealthModifier
  */
 public final class Slime extends Entity implements HealthModifier {
+    private static final long serialVersionUID = 1L;
+    /**
+     * The longest path, in steps, between a slime and a character it can see: its radar reaches RADAR_RANGE tiles
+     * on both axes, plus the tile the slime and the character stand on.
+     */
+    public static final int FOLLOW_DISTANCE = 2 * (Slime.RADAR_RANGE + 1);
 
     private static final int HEIGHT = 16;
     private static final int WIDTH = 16;
     private static final int MOVEMENT_SPEED = 1;
     private static final int HEALTH = 10;
     private static final String NAME = "Slime";
-    private static final int RADAR_BOX_POSITION_MODIFIER = 20 * AssetManagerProxy.getMapTileSize();
-    private static final int RADAR_BOX_SIZE = 20 * 2 * AssetManagerProxy.getMapTileSize() + Math.max(WIDTH, HEIGHT);
+    private static final int RADAR_RANGE = 20;
     private static final int DAMAGE_ON_HIT = 10;
     private static final long HIT_DELAY = 1_000;
     private static final int POTION_DROP_CHANCE = 20;
@@ -39,6 +45,14 @@ public final class Slime extends Entity implements HealthModifier {
      * Slime aggro box.
      */
     private final CollisionBox radarBox;
+    /**
+     * Distance in world units between the radar box and the hit box.
+     */
+    private final int radarOffset;
+    /**
+     * Shared paths toward the player, if the world provides them.
+     */
+    private FlowField flowField;
 
     private boolean canDmg;
     private long dmgDelayCount;
@@ -55,15 +69,15 @@ public final class Slime extends Entity implements HealthModifier {
         setSpeed(MOVEMENT_SPEED);
         setHealth(HEALTH);
         face = Direction.RIGHT;
-        radarBox = new CollisionBox(posX - RADAR_BOX_POSITION_MODIFIER, posY - RADAR_BOX_POSITION_MODIFIER, RADAR_BOX_SIZE,
-                RADAR_BOX_SIZE);
+        radarOffset = tileMap.geometry().length(RADAR_RANGE);
+        final int radarSize = 2 * radarOffset + Math.max(WIDTH, HEIGHT);
+        radarBox = new CollisionBox(getPosX() - radarOffset, getPosY() - radarOffset, radarSize, radarSize);
         this.canDmg = true;
         this.dmgDelayCount = 0;
     }
 
     @Override
-    public List<GameObject> update(final long delta, final List<GameObject> others) {
-        final Random rand = new Random();
+    public List<GameObject> update(final long delta, final WorldView world) {
         this.resetMovement();
         if (!canDmg) {
             dmgDelayCount += delta;
@@ -72,24 +86,27 @@ public final class Slime extends Entity implements HealthModifier {
                 canDmg = true;
             }
         }
-        others.stream().filter((x) -> x instanceof Player)
-                .filter((x) -> x.getHitBox().overlaps(this.radarBox)).findFirst()
+        world.getPlayer().filter((x) -> x.getHitBox().overlaps(this.radarBox))
                 .ifPresentOrElse(this::setCharacterToFollow, () -> setCharacterToFollow(null));
 
         follow();
         if (!this.isAlive()) {
+            final SplittableRandom rand = world.getRandom();
             final List<GameObject> drops = new ArrayList<>();
             this.hasDropped = true;
-            final ObjectFactory objectFactory = new ObjectFactoryImpl(this.tileMap);
+            final ObjectFactory objectFactory = new ObjectFactoryImpl(this.tileMap, rand);
+            final WorldGeometry geometry = this.tileMap.geometry();
             if (rand.nextInt(MAX_CHANCE) + 1 <= POTION_DROP_CHANCE) {
-                drops.addAll(objectFactory.spawnAt(this.getHitBox().getPosX() / AssetManagerProxy.getMapTileSize(), this.getHitBox().getPosY() / AssetManagerProxy.getMapTileSize(),
+                drops.addAll(objectFactory.spawnAt(geometry.toTile(this.getHitBox().getPosX()),
+                        geometry.toTile(this.getHitBox().getPosY()),
                         (x, y, tm) -> {
                             final int healingPower = rand.nextInt(101);
                             return new SimplePotion(healingPower, "Potion", x, y);
                         }));
             }
             if (rand.nextInt(MAX_CHANCE) + 1 <= WEAPON_DROP_CHANCE) {
-                drops.addAll(objectFactory.spawnAt(this.getHitBox().getPosX() / AssetManagerProxy.getMapTileSize(), this.getHitBox().getPosY() / AssetManagerProxy.getMapTileSize(),
+                drops.addAll(objectFactory.spawnAt(geometry.toTile(this.getHitBox().getPosX()),
+                        geometry.toTile(this.getHitBox().getPosY()),
                         (x, y, tm) -> {
                             if (rand.nextInt(2) == 0) {
                                 return new Gun(null, tm, x, y, GameObject.Team.FRIEND);
@@ -100,7 +117,7 @@ public final class Slime extends Entity implements HealthModifier {
             }
             return drops;
         }
-        super.update(delta, others);
+        super.update(delta, world);
         updateRadarBoxLocation();
         return List.of();
     }
@@ -125,16 +142,6 @@ public final class Slime extends Entity implements HealthModifier {
         return action == Action.MOVE;
     }
 
-    @Override
-    public int getHealth() {
-        return this.hp;
-    }
-
-    @Override
-    public void setHealth(final int health) {
-        this.hp = health;
-    }
-
     /**
      * Utility method useful and used in GameState to make the Slime follow a
      * GameObject.
@@ -151,6 +158,15 @@ public final class Slime extends Entity implements HealthModifier {
         return characterToFollow;
     }
 
+    /**
+     * Sets the flow field the Slime uses to find its way toward the character to follow.
+     * Without a flow field the Slime walks straight toward it.
+     * @param flowField a flow field whose target is the character to follow, or null
+     */
+    public void setFlowField(final FlowField flowField) {
+        this.flowField = flowField;
+    }
+
     /**
      * Makes Slime path towards the Character(Entity) to follow.
      */
@@ -158,25 +174,30 @@ public final class Slime extends Entity implements HealthModifier {
         if (characterToFollow == null) {
             return;
         }
-        if ((characterToFollow.getPosX()
-                + (characterToFollow.getHitBox().getWidth() / 2)
-                - (this.width / 2)) < posX) {
+        // walk toward the center of the character, or of the next tile on the way to it
+        int targetX = characterToFollow.getPosX() + characterToFollow.getHitBox().getWidth() / 2;
+        int targetY = characterToFollow.getPosY() + characterToFollow.getHitBox().getHeight() / 2;
+        if (flowField != null) {
+            final WorldGeometry geometry = tileMap.geometry();
+            final int tileX = geometry.toTile(getPosX() + this.width / 2);
+            final int tileY = geometry.toTile(getPosY() + this.height / 2);
+            final Optional<Direction> step = flowField.directionAt(tileX, tileY);
+            if (step.isPresent()) {
+                targetX = geometry.toWorld(tileX + FlowField.dx(step.get())) + geometry.getTileSize() / 2;
+                targetY = geometry.toWorld(tileY + FlowField.dy(step.get())) + geometry.getTileSize() / 2;
+            }
+        }
+        if (targetX - (this.width / 2) < getPosX()) {
             left = true;
-        } else if ((characterToFollow.getPosX()
-                + (characterToFollow.getHitBox().getWidth() / 2)
-                - (this.width / 2)) > posX) {
+        } else if (targetX - (this.width / 2) > getPosX()) {
             right = true;
         } else {
             right = false;
             left = false;
         }
-        if ((characterToFollow.getPosY()
-                + (characterToFollow.getHitBox().getHeight() / 2)
-                - (this.height / 2)) < posY) {
+        if (targetY - (this.height / 2) < getPosY()) {
             up = true;
-        } else if ((characterToFollow.getPosY()
-                + (characterToFollow.getHitBox().getHeight() / 2)
-                - (this.height / 2)) > posY) {
+        } else if (targetY - (this.height / 2) > getPosY()) {
             down = true;
         } else {
             up = false;
@@ -188,7 +209,7 @@ public final class Slime extends Entity implements HealthModifier {
      * Updates the aggro radar's Slime box.
      */
     public void updateRadarBoxLocation() {
-        radarBox.setLocation(posX - RADAR_BOX_POSITION_MODIFIER, posY - RADAR_BOX_POSITION_MODIFIER);
+        radarBox.setLocation(getPosX() - radarOffset, getPosY() - radarOffset);
     }
 
     @Override
@@ -0,0 +1,394 @@
+package eu.eutampieri.catacombs.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A uniform grid of square cells over the world, each one listing the game objects whose hit box touches it,
+ * so that finding the objects in an area only looks at the objects near it.
+ * Objects are moved to other cells only when their hit box crosses a cell border, and queries can be restricted
+ * to some teams and kinds of objects with bit masks.
+ * Results are always in the order the objects were added to the grid.
+ * Queries can run on many threads at once, as long as the cells they look at aren't changed meanwhile.
+ */
+public final class SpatialHashGrid {
+    /**
+     * Default side of a cell in world units.
+     */
+    public static final int DEFAULT_CELL_SIZE = 128;
+    /**
+     * A mask matching every team or kind.
+     */
+    public static final int ALL = -1;
+
+    private static final Comparator<Entry> BY_SEQUENCE = Comparator.comparingLong((e) -> e.sequence);
+
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    /**
+     * The entries in each cell, or null for the cells nothing has been in yet, which on big maps are most of them.
+     */
+    private final List<List<Entry>> cells;
+    private final Map<GameObject, Entry> entries = new IdentityHashMap<>();
+    /**
+     * The objects found by the queries in progress on each thread.
+     */
+    private final ThreadLocal<List<Entry>> foundByThread = ThreadLocal.withInitial(ArrayList::new);
+    private long nextSequence;
+
+    /**
+     * An object and the cells it's in.
+     */
+    private static final class Entry {
+        private final GameObject object;
+        private final long sequence;
+        private int fromColumn;
+        private int fromRow;
+        private int toColumn;
+        private int toRow;
+
+        Entry(final GameObject object, final long sequence) {
+            this.object = object;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * @param width    width of the world in world units
+     * @param height   height of the world in world units
+     * @param cellSize side of a cell in world units
+     */
+    public SpatialHashGrid(final int width, final int height, final int cellSize) {
+        if (width < 1 || height < 1 || cellSize < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cells = new ArrayList<>(Collections.nCopies(columns * rows, null));
+    }
+
+    /**
+     * @param width  width of the world in world units
+     * @param height height of the world in world units
+     */
+    public SpatialHashGrid(final int width, final int height) {
+        this(width, height, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param teams some teams
+     * @return a mask matching the given teams.
+     */
+    public static int teamMask(final GameObject.Team... teams) {
+        int mask = 0;
+        for (final GameObject.Team team : teams) {
+            mask |= 1 << team.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * @param kinds some kinds of objects
+     * @return a mask matching the given kinds.
+     */
+    public static int kindMask(final GameObjectType... kinds) {
+        int mask = 0;
+        for (final GameObjectType kind : kinds) {
+            mask |= 1 << kind.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Adds an object to the grid, if it isn't already in it.
+     * @param object the object to add
+     */
+    public void add(final GameObject object) {
+        if (entries.containsKey(object)) {
+            return;
+        }
+        final Entry entry = new Entry(object, nextSequence++);
+        entries.put(object, entry);
+        place(entry);
+    }
+
+    /**
+     * Removes an object from the grid.
+     * @param object the object to remove
+     * @return if the object was in the grid
+     */
+    public boolean remove(final GameObject object) {
+        final Entry entry = entries.remove(object);
+        if (entry == null) {
+            return false;
+        }
+        unplace(entry);
+        return true;
+    }
+
+    /**
+     * Moves an object to the cells its hit box is in now, adding it if it isn't in the grid.
+     * @param object an object whose hit box may have moved
+     */
+    public void update(final GameObject object) {
+        final Entry entry = entries.get(object);
+        if (entry == null) {
+            add(object);
+            return;
+        }
+        final CollisionBox box = object.getHitBox();
+        if (column(box.getPosX()) == entry.fromColumn && row(box.getPosY()) == entry.fromRow
+                && column(box.getPosX() + box.getWidth()) == entry.toColumn
+                && row(box.getPosY() + box.getHeight()) == entry.toRow) {
+            return;
+        }
+        unplace(entry);
+        place(entry);
+    }
+
+    /**
+     * @param object an object
+     * @return if the object is in the grid
+     */
+    public boolean contains(final GameObject object) {
+        return entries.containsKey(object);
+    }
+
+    /**
+     * @return the number of objects in the grid.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the objects in the grid, in the order they were added to it.
+     */
+    public List<GameObject> objects() {
+        final List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(BY_SEQUENCE);
+        final List<GameObject> objects = new ArrayList<>(sorted.size());
+        sorted.forEach((e) -> objects.add(e.object));
+        return objects;
+    }
+
+    /**
+     * Removes every object from the grid.
+     */
+    public void clear() {
+        entries.clear();
+        Collections.fill(cells, null);
+    }
+
+    /**
+     * Finds the objects whose hit box overlaps a rectangle.
+     * @param x        X of the top left corner of the rectangle
+     * @param y        Y of the top left corner of the rectangle
+     * @param width    width of the rectangle
+     * @param height   height of the rectangle
+     * @param teamMask the teams of the objects to find
+     * @param kindMask the kinds of the objects to find
+     * @param out      where the objects found are added
+     */
+    public void query(final int x, final int y, final int width, final int height, final int teamMask,
+            final int kindMask, final Collection<? super GameObject> out) {
+        forEach(x, y, width, height, teamMask, kindMask, null, out::add);
+    }
+
+    /**
+     * Finds the objects whose hit box overlaps a box.
+     * @param box      the box
+     * @param teamMask the teams of the objects to find
+     * @param kindMask the kinds of the objects to find
+     * @param out      where the objects found are added
+     */
+    public void query(final CollisionBox box, final int teamMask, final int kindMask,
+            final Collection<? super GameObject> out) {
+        query(box.getPosX(), box.getPosY(), box.getWidth(), box.getHeight(), teamMask, kindMask, out);
+    }
+
+    /**
+     * Calls an action on the objects whose hit box overlaps a rectangle, without copying them.
+     * The action can query the grid, but not change it.
+     * @param x        X of the top left corner of the rectangle
+     * @param y        Y of the top left corner of the rectangle
+     * @param width    width of the rectangle
+     * @param height   height of the rectangle
+     * @param teamMask the teams of the objects
+     * @param kindMask the kinds of the objects
+     * @param exclude  an object to skip, or null
+     * @param action   the action
+     */
+    public void forEach(final int x, final int y, final int width, final int height, final int teamMask,
+            final int kindMask, final GameObject exclude, final Consumer<? super GameObject> action) {
+        final List<Entry> found = this.foundByThread.get();
+        final int start = collect(found, x, y, x + width, y + height, teamMask, kindMask, exclude);
+        try {
+            for (int i = start; i < found.size(); i++) {
+                final GameObject object = found.get(i).object;
+                if (overlaps(object.getHitBox(), x, y, width, height)) {
+                    action.accept(object);
+                }
+            }
+        } finally {
+            release(found, start);
+        }
+    }
+
+    /**
+     * @param x        X of the top left corner of the rectangle
+     * @param y        Y of the top left corner of the rectangle
+     * @param width    width of the rectangle
+     * @param height   height of the rectangle
+     * @param teamMask the teams of the objects
+     * @param kindMask the kinds of the objects
+     * @param exclude  an object to skip, or null
+     * @param filter   the condition the object has to satisfy
+     * @return the first object forEach would call an action on which satisfies filter.
+     */
+    public Optional<GameObject> findFirst(final int x, final int y, final int width, final int height,
+            final int teamMask, final int kindMask, final GameObject exclude,
+            final Predicate<? super GameObject> filter) {
+        final List<Entry> found = this.foundByThread.get();
+        final int start = collect(found, x, y, x + width, y + height, teamMask, kindMask, exclude);
+        try {
+            for (int i = start; i < found.size(); i++) {
+                final GameObject object = found.get(i).object;
+                if (overlaps(object.getHitBox(), x, y, width, height) && filter.test(object)) {
+                    return Optional.of(object);
+                }
+            }
+            return Optional.empty();
+        } finally {
+            release(found, start);
+        }
+    }
+
+    /**
+     * Finds the objects whose hit box has a point within some distance from a point.
+     * @param x        X of the center
+     * @param y        Y of the center
+     * @param radius   the distance
+     * @param teamMask the teams of the objects to find
+     * @param kindMask the kinds of the objects to find
+     * @param out      where the objects found are added
+     */
+    public void queryRadius(final int x, final int y, final int radius, final int teamMask, final int kindMask,
+            final Collection<? super GameObject> out) {
+        final List<Entry> found = this.foundByThread.get();
+        final int start = collect(found, x - radius, y - radius, x + radius, y + radius, teamMask, kindMask, null);
+        final long squaredRadius = (long) radius * radius;
+        for (int i = start; i < found.size(); i++) {
+            final CollisionBox box = found.get(i).object.getHitBox();
+            final long dx = x - Math.max(box.getPosX(), Math.min(x, box.getPosX() + box.getWidth()));
+            final long dy = y - Math.max(box.getPosY(), Math.min(y, box.getPosY() + box.getHeight()));
+            if (dx * dx + dy * dy <= squaredRadius) {
+                out.add(found.get(i).object);
+            }
+        }
+        release(found, start);
+    }
+
+    private static boolean overlaps(final CollisionBox box, final int x, final int y, final int width,
+            final int height) {
+        return box.getPosX() < x + width && box.getPosX() + box.getWidth() > x
+                && box.getPosY() < y + height && box.getPosY() + box.getHeight() > y;
+    }
+
+    /**
+     * Appends to found, in the order they were added, the objects of the given teams and kinds in the cells
+     * touching a rectangle.
+     * The objects found by the queries in progress stay before them, so that queries can be nested.
+     * @return the index in found of the first object appended
+     */
+    private int collect(final List<Entry> found, final int fromX, final int fromY, final int toX, final int toY,
+            final int teamMask, final int kindMask, final GameObject exclude) {
+        final int start = found.size();
+        for (int row = row(fromY); row <= row(toY); row++) {
+            for (int column = column(fromX); column <= column(toX); column++) {
+                final List<Entry> cell = cells.get(row * columns + column);
+                if (cell == null) {
+                    continue;
+                }
+                for (final Entry entry : cell) {
+                    if (entry.object != exclude && (teamMask & 1 << entry.object.getTeam().ordinal()) != 0
+                            && (kindMask & 1 << entry.object.getKind().ordinal()) != 0) {
+                        found.add(entry);
+                    }
+                }
+            }
+        }
+        if (found.size() - start > 1) {
+            found.subList(start, found.size()).sort(BY_SEQUENCE);
+            // objects in many cells were found once for each cell, and they're next to each other after sorting
+            int last = start;
+            for (int i = start + 1; i < found.size(); i++) {
+                if (found.get(i) != found.get(last)) {
+                    last++;
+                    found.set(last, found.get(i));
+                }
+            }
+            found.subList(last + 1, found.size()).clear();
+        }
+        return start;
+    }
+
+    /**
+     * Forgets the objects found by the query whose results start at start.
+     */
+    private static void release(final List<Entry> found, final int start) {
+        found.subList(start, found.size()).clear();
+    }
+
+    private void place(final Entry entry) {
+        final CollisionBox box = entry.object.getHitBox();
+        entry.fromColumn = column(box.getPosX());
+        entry.fromRow = row(box.getPosY());
+        entry.toColumn = column(box.getPosX() + box.getWidth());
+        entry.toRow = row(box.getPosY() + box.getHeight());
+        for (int row = entry.fromRow; row <= entry.toRow; row++) {
+            for (int column = entry.fromColumn; column <= entry.toColumn; column++) {
+                if (cells.get(row * columns + column) == null) {
+                    cells.set(row * columns + column, new ArrayList<>(1));
+                }
+                cells.get(row * columns + column).add(entry);
+            }
+        }
+    }
+
+    private void unplace(final Entry entry) {
+        for (int row = entry.fromRow; row <= entry.toRow; row++) {
+            for (int column = entry.fromColumn; column <= entry.toColumn; column++) {
+                final List<Entry> cell = cells.get(row * columns + column);
+                // the order inside a cell doesn't matter, so the last entry can take the place of the removed one
+                final int i = cell.indexOf(entry);
+                cell.set(i, cell.get(cell.size() - 1));
+                cell.remove(cell.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * @return the column of the cells containing X, the nearest one if it's outside of the world.
+     */
+    private int column(final int x) {
+        return Math.max(0, Math.min(columns - 1, Math.floorDiv(x, cellSize)));
+    }
+
+    /**
+     * @return the row of the cells containing Y, the nearest one if it's outside of the world.
+     */
+    private int row(final int y) {
+        return Math.max(0, Math.min(rows - 1, Math.floorDiv(y, cellSize)));
+    }
+}
@@ -0,0 +1,235 @@
+package eu.eutampieri.catacombs.model;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Splits the updates of the objects of a store between vertical strips of the world, which can be updated at the
+ * same time, and a follow-up phase for the updates crossing the border of a strip.
+ * An update moves its object by its speed at most and only affects the objects whose hit box overlaps its own, so
+ * each object has a footprint, i.e. its hit box enlarged by its speed, and the objects whose footprints overlap,
+ * directly or through other objects, are grouped together: the updates of different groups can't affect each other.
+ * A group lying in a single strip is updated with the strip, the other groups in the follow-up phase. Both update
+ * their objects in the order of the store, so the result is the same as updating all the objects in that order.
+ * Strips are as wide as a whole number of cells of the grid the objects are in, so that the updates of a strip
+ * only look at and change its own cells.
+ */
+public final class UpdateRegions {
+    private final int regionWidth;
+    private final int regions;
+    /**
+     * The first index in order of the updates of each strip, and of the follow-up phase after them.
+     */
+    private final int[] regionStart;
+    /**
+     * The indexes of the objects to update, by strip and then in the order of the store.
+     */
+    private int[] order = new int[0];
+    /**
+     * The groups, as a forest whose roots are the first object of each group.
+     */
+    private int[] parent = new int[0];
+    private int[] footprints = new int[0];
+    /**
+     * The leftmost and rightmost X of the footprints of each group, by root.
+     */
+    private int[] left = new int[0];
+    private int[] right = new int[0];
+    private EntityStore store;
+    private final Consumer<GameObject> joinNear = this::joinNear;
+    private int joining;
+
+    /**
+     * @param worldWidth  width of the world in world units
+     * @param regionWidth width of a strip in world units, a multiple of the side of the cells of the grid
+     */
+    public UpdateRegions(final int worldWidth, final int regionWidth) {
+        if (worldWidth < 1 || regionWidth < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.regionWidth = regionWidth;
+        this.regions = (worldWidth + regionWidth - 1) / regionWidth;
+        this.regionStart = new int[regions + 2];
+    }
+
+    /**
+     * Groups the objects of a store and splits the updates between the strips and the follow-up phase.
+     * @param entities the objects
+     * @param grid     a grid with the objects of the store and no others
+     * @param updated  which indexes of the store have to be updated
+     * @param extra    an object which isn't in the store, like the player, and is updated after all the others, so
+     *                 its group is always updated in the follow-up phase
+     */
+    public void split(final EntityStore entities, final SpatialHashGrid grid, final IntPredicate updated,
+            final GameObject extra) {
+        final int size = entities.size();
+        this.store = entities;
+        if (parent.length < size + 1) {
+            final int capacity = Math.max(size + 1, parent.length * 2);
+            parent = new int[capacity];
+            footprints = new int[capacity * 4];
+            left = new int[capacity];
+            right = new int[capacity];
+        }
+        int maxMargin = 0;
+        for (int i = 0; i <= size; i++) {
+            maxMargin = Math.max(maxMargin, setFootprint(i, i < size ? entities.objectAt(i) : extra));
+            parent[i] = i;
+        }
+        // two footprints overlap only if the hit box of either is within both margins from the other
+        for (int i = 0; i <= size; i++) {
+            joining = i;
+            grid.forEach(footprints[i * 4] - maxMargin, footprints[i * 4 + 1] - maxMargin,
+                    footprints[i * 4 + 2] + 2 * maxMargin, footprints[i * 4 + 3] + 2 * maxMargin,
+                    SpatialHashGrid.ALL, SpatialHashGrid.ALL, i < size ? entities.objectAt(i) : extra, joinNear);
+        }
+        this.store = null;
+
+        for (int i = 0; i <= size; i++) {
+            left[i] = Integer.MAX_VALUE;
+            right[i] = Integer.MIN_VALUE;
+        }
+        for (int i = 0; i <= size; i++) {
+            final int root = find(i);
+            left[root] = Math.min(left[root], footprints[i * 4]);
+            right[root] = Math.max(right[root], footprints[i * 4] + footprints[i * 4 + 2]);
+        }
+        final int followUpRoot = find(size);
+        left[followUpRoot] = Integer.MIN_VALUE;
+
+        Arrays.fill(regionStart, 0);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (updated.test(i)) {
+                regionStart[regionOf(i) + 1]++;
+                count++;
+            }
+        }
+        for (int r = 1; r < regionStart.length; r++) {
+            regionStart[r] += regionStart[r - 1];
+        }
+        if (order.length < count) {
+            order = new int[Math.max(count, order.length * 2)];
+        }
+        final int[] next = Arrays.copyOf(regionStart, regionStart.length);
+        for (int i = 0; i < size; i++) {
+            if (updated.test(i)) {
+                order[next[regionOf(i)]++] = i;
+            }
+        }
+    }
+
+    /**
+     * @return the number of strips.
+     */
+    public int regionCount() {
+        return regions;
+    }
+
+    /**
+     * @param region a strip
+     * @return the number of updates of the strip.
+     */
+    public int regionSize(final int region) {
+        checkRegion(region);
+        return regionStart[region + 1] - regionStart[region];
+    }
+
+    /**
+     * @param region a strip
+     * @param k      an update of the strip, from 0 to its size
+     * @return the index in the store of the object to update.
+     */
+    public int regionIndexAt(final int region, final int k) {
+        if (k < 0 || k >= regionSize(region)) {
+            throw new IllegalArgumentException();
+        }
+        return order[regionStart[region] + k];
+    }
+
+    /**
+     * @return the number of updates of the follow-up phase, without the one of the extra object.
+     */
+    public int followUpSize() {
+        return regionStart[regions + 1] - regionStart[regions];
+    }
+
+    /**
+     * @param k an update of the follow-up phase, from 0 to its size
+     * @return the index in the store of the object to update.
+     */
+    public int followUpIndexAt(final int k) {
+        if (k < 0 || k >= followUpSize()) {
+            throw new IllegalArgumentException();
+        }
+        return order[regionStart[regions] + k];
+    }
+
+    /**
+     * @return the strip of the group of an object, or regions if the group crosses the border of a strip.
+     */
+    private int regionOf(final int i) {
+        final int root = find(i);
+        if (left[root] == Integer.MIN_VALUE) {
+            return regions;
+        }
+        final int region = strip(left[root]);
+        return region == strip(right[root] - 1) ? region : regions;
+    }
+
+    private int strip(final int x) {
+        return Math.max(0, Math.min(regions - 1, Math.floorDiv(x, regionWidth)));
+    }
+
+    /**
+     * @return the margin of the footprint.
+     */
+    private int setFootprint(final int i, final GameObject object) {
+        final CollisionBox box = object.getHitBox();
+        // one more unit keeps apart only the footprints which don't even touch
+        final int margin = Math.max(Math.abs(object.getSpeedX()), Math.abs(object.getSpeedY())) + 1;
+        footprints[i * 4] = box.getPosX() - margin;
+        footprints[i * 4 + 1] = box.getPosY() - margin;
+        footprints[i * 4 + 2] = box.getWidth() + 2 * margin;
+        footprints[i * 4 + 3] = box.getHeight() + 2 * margin;
+        return margin;
+    }
+
+    private void joinNear(final GameObject object) {
+        final int other = store.indexOf(object.getHandle());
+        if (other >= 0 && footprintsOverlap(joining, other)) {
+            union(joining, other);
+        }
+    }
+
+    private boolean footprintsOverlap(final int a, final int b) {
+        return footprints[a * 4] < footprints[b * 4] + footprints[b * 4 + 2]
+                && footprints[b * 4] < footprints[a * 4] + footprints[a * 4 + 2]
+                && footprints[a * 4 + 1] < footprints[b * 4 + 1] + footprints[b * 4 + 3]
+                && footprints[b * 4 + 1] < footprints[a * 4 + 1] + footprints[a * 4 + 3];
+    }
+
+    private int find(final int i) {
+        int x = i;
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private void union(final int a, final int b) {
+        final int rootA = find(a);
+        final int rootB = find(b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private void checkRegion(final int region) {
+        if (region < 0 || region >= regions) {
+            throw new IllegalArgumentException();
+        }
+    }
+}
@@ -2,13 +2,20 @@ package eu.eutampieri.catacombs.model;
 
 import eu.eutampieri.catacombs.model.map.TileMap;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A weapon, i.e. an object which, if used, reduces the health of the character it's used against.
  * @see GameObject
  */
 public abstract class Weapon extends GameObject {
+    private static final long serialVersionUID = 1L;
+    /**
+     * How much the sprites of weapons are scaled, which their hit boxes have to match.
+     */
+    public static final double SCALING_FACTOR = 0.85;
 
     private static final float MINUTE_TO_MILLIS = 60_000f;
     private static final int BULLET_DEFAULT_SIZE = 8;
@@ -136,7 +143,7 @@ public abstract class Weapon extends GameObject {
     }
 
     @Override
-    public List<GameObject> update(final long delta, final List<GameObject> others) {
+    public List<GameObject> update(final long delta, final WorldView world) {
         if (!canFire) {
             fireDelayCount += delta;
             if (fireDelayCount >= fireDelay) {
@@ -187,16 +194,25 @@ public abstract class Weapon extends GameObject {
      * @return      A GameObject list composed of the bullet fired.
      */
     public final List<GameObject> fire(final int psx, final int psy) {
-       final Projectile p;
-       if (this.bulletKind != null && bulletSize > 8) {
-           p = new Projectile(this.getHitBox().getPosX(), this.getHitBox().getPosY(),
-                   psx * ps, psy * ps, strength, tileMap, this.getTeam(), this.bulletKind, bulletSize);
-       } else {
-           p = new Projectile(this.getHitBox().getPosX(), this.getHitBox().getPosY(),
-                   psx * ps, psy * ps, strength, tileMap, this.getTeam());
-       }
-       setCanFire(false);
-       return List.of(p);
+        final List<GameObject> fired = new ArrayList<>(1);
+        fire(psx, psy, ProjectilePool.unpooled(), fired::add);
+        return fired;
+    }
+
+    /**
+     * Fires a bullet taken from a pool.
+     * @param psx   Projectile speed modifier in the X axis (1, -1, 0 usually)
+     * @param psy   Projectile speed modifier in the Y axis (1, -1, 0 usually)
+     * @param pool  Where the bullet is taken from
+     * @param sink  What the bullet fired is given to
+     */
+    public final void fire(final int psx, final int psy, final ProjectilePool pool,
+            final Consumer<? super GameObject> sink) {
+        final boolean custom = this.bulletKind != null && bulletSize > BULLET_DEFAULT_SIZE;
+        sink.accept(pool.acquire(this.getHitBox().getPosX(), this.getHitBox().getPosY(), psx * ps, psy * ps,
+                strength, tileMap, this.getTeam(), custom ? this.bulletKind : GameObjectType.BULLET,
+                custom ? bulletSize : BULLET_DEFAULT_SIZE));
+        setCanFire(false);
     }
 
     public void setUser(final Entity user) {
@@ -212,11 +228,11 @@ public abstract class Weapon extends GameObject {
     }
 
     public void setPickedUp() {
-        this.kind = GameObjectType.WEAPON;
+        this.setKind(GameObjectType.WEAPON);
     }
 
     @Override
     public boolean isMarkedForDeletion() {
-        return this.kind == GameObjectType.WEAPON;
+        return this.getKind() == GameObjectType.WEAPON;
     }
 }
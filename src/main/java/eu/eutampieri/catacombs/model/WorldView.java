@@ -0,0 +1,61 @@
+package eu.eutampieri.catacombs.model;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * What a game object can see of the world while it's updated: the other objects, never itself.
+ * A view only reads the world as it is, without copying it, so it must not be kept after the update.
+ * Team and kind masks are built with {@link SpatialHashGrid#teamMask} and {@link SpatialHashGrid#kindMask}.
+ */
+public interface WorldView {
+    /**
+     * @return the player, unless it's the object being updated.
+     */
+    Optional<Player> getPlayer();
+
+    /**
+     * @return the pool the projectiles fired during the update are taken from.
+     */
+    ProjectilePool getProjectilePool();
+
+    /**
+     * @return where the objects spawned during the update can be given instead of being returned, which spares
+     *         collecting them in a new list; the world adds them as if they had been returned.
+     */
+    Consumer<GameObject> getSpawnSink();
+
+    /**
+     * @return the random numbers of the object being updated in this update, always the same for the same seed of
+     *         the world; calls in the same update return the same generator.
+     */
+    SplittableRandom getRandom();
+
+    /**
+     * Calls an action on each of the other objects, in the order they were added to the world, the player last.
+     * @param action the action
+     */
+    void forEach(Consumer<? super GameObject> action);
+
+    /**
+     * Calls an action on each of the other objects of some teams and kinds whose hit box overlaps an area,
+     * in the order they were added to the world, the player last.
+     * @param area     the area
+     * @param teamMask the teams of the objects
+     * @param kindMask the kinds of the objects
+     * @param action   the action
+     */
+    void forEachIn(CollisionBox area, int teamMask, int kindMask, Consumer<? super GameObject> action);
+
+    /**
+     * @param area     the area
+     * @param teamMask the teams of the objects
+     * @param kindMask the kinds of the objects
+     * @param filter   the condition the object has to satisfy
+     * @return the first object forEachIn would call an action on which satisfies filter.
+     */
+    Optional<GameObject> findFirstIn(CollisionBox area, int teamMask, int kindMask,
+            Predicate<? super GameObject> filter);
+}
@@ -25,7 +25,7 @@ public interface MobFactory {
      * Spawns n entities of a specified kind.
      * @param n Number of entities
      * @param f Entity type
-     * @return A list of the n entities
+     * @return A list of the n entities, shorter if the map has no cell to spawn them on
      */
     List<Entity> spawnSome(int n, SingleObject<Entity> f);
 
@@ -35,12 +35,20 @@ public interface MobFactory {
      */
     List<Entity> spawnRandom();
 
+    /**
+     * Spawns some random entities at random positions in the range of another entity.
+     * @param range Radius of spawn range
+     * @param e     Entity at the center of the range, used to get position
+     * @return A list of the random entities
+     */
+    List<Entity> spawnRandomNear(int range, GameObject e);
+
     /**
      * Spawns an entity f in the range of another entity e.
      * @param e     Entity at the center of the range, used to get position
      * @param range Radius of spawn range
      * @param f     Entity to be spawned
-     * @return A list composed of the only created entity
+     * @return A list composed of the only created entity, empty if there's no cell to spawn it on in range
      */
     List<Entity> spawnNear(int range, GameObject e, SingleObject<Entity> f);
 }
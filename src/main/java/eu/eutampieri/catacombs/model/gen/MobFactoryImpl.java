@@ -5,11 +5,12 @@ import eu.eutampieri.catacombs.model.Entity;
 import eu.eutampieri.catacombs.model.GameObject;
 import eu.eutampieri.catacombs.model.Slime;
 import eu.eutampieri.catacombs.model.map.TileMap;
-import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.OptionalInt;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
 
 /**
  * MobFactory Implementation.
@@ -31,14 +32,25 @@ public final class MobFactoryImpl implements MobFactory {
     private static final int MOB_KIND_NUMBER = 2;
 
     private TileMap tileMap;
-    private final transient Random rand = new Random();
+    private final transient SplittableRandom rand;
 
     /**
      *
      * @param tileMap Tile map in which to spawn mobs
      */
     public MobFactoryImpl(final TileMap tileMap) {
+        this(tileMap, new SplittableRandom());
+    }
+
+    /**
+     *
+     * @param tileMap Tile map in which to spawn mobs
+     * @param rand    the source of randomness choosing where and what to spawn, so that a seeded one always
+     *                spawns the same
+     */
+    public MobFactoryImpl(final TileMap tileMap, final SplittableRandom rand) {
         this.tileMap = tileMap;
+        this.rand = rand;
     }
 
     /**
@@ -55,7 +67,7 @@ public final class MobFactoryImpl implements MobFactory {
             return List.of();
         }
         final List<Entity> enemies = new ArrayList<>();
-        enemies.add(f.create(x * AssetManagerProxy.getMapTileSize(), y * AssetManagerProxy.getMapTileSize(), this.tileMap));
+        enemies.add(f.create(tileMap.geometry().toWorld(x), tileMap.geometry().toWorld(y), this.tileMap));
         return enemies;
     }
 
@@ -64,32 +76,51 @@ public final class MobFactoryImpl implements MobFactory {
         if (f == null) {
             return List.of();
         }
-        int randX, randY;
+        final SpawnIndex index = SpawnIndex.of(tileMap);
         final List<Entity> enemies = new ArrayList<>();
         for (int i = 0; i < n; i++) {
-            do {
-                randX = rand.nextInt(tileMap.width());
-                randY = rand.nextInt(tileMap.height());
-            } while (!tileMap.canSpawnAt(randX, randY));
-            enemies.addAll(spawnAt(randX, randY, f));
+            final OptionalInt cell = index.sample(rand);
+            if (cell.isEmpty()) {
+                break;
+            }
+            enemies.addAll(spawnAt(index.xOf(cell.getAsInt()), index.yOf(cell.getAsInt()), f));
         }
         return enemies;
     }
 
     @Override
     public List<Entity> spawnRandom() {
+        final SpawnIndex index = SpawnIndex.of(tileMap);
+        return spawnRandom(index, () -> index.sample(rand));
+    }
+
+    @Override
+    public List<Entity> spawnRandomNear(final int range, final GameObject e) {
+        final SpawnIndex index = SpawnIndex.of(tileMap);
+        final int x = tileMap.geometry().toTile(e.getPosX());
+        final int y = tileMap.geometry().toTile(e.getPosY());
+        return spawnRandom(index, () -> index.sampleNear(rand, x, y, range));
+    }
+
+    /**
+     * @param index the spawn cells of the map
+     * @param cells where each entity is spawned
+     */
+    private List<Entity> spawnRandom(final SpawnIndex index, final Supplier<OptionalInt> cells) {
         int randX, randY, randKind;
         final int mobNum = rand.nextInt(MAX_MOB_NUMBER - MIN_MOB_NUMBER) + MIN_MOB_NUMBER;
 
         final List<Entity> enemies = new ArrayList<>();
         for (int i = 0; i < mobNum; i++) {
-            do {
-                randX = rand.nextInt(tileMap.width());
-                randY = rand.nextInt(tileMap.height());
-            } while (!tileMap.canSpawnAt(randX, randY));
+            final OptionalInt cell = cells.get();
+            if (cell.isEmpty()) {
+                break;
+            }
+            randX = index.xOf(cell.getAsInt());
+            randY = index.yOf(cell.getAsInt());
             randKind = rand.nextInt(MOB_KIND_NUMBER);
             if (randKind == 0) {
-                enemies.addAll(spawnAt(randX, randY, Bat::new));
+                enemies.addAll(spawnAt(randX, randY, (x, y, tm) -> new Bat(x, y, tm, rand)));
             }
             if (randKind == 1) {
                 enemies.addAll(spawnAt(randX, randY, Slime::new));
@@ -100,21 +131,12 @@ public final class MobFactoryImpl implements MobFactory {
 
     @Override
     public List<Entity> spawnNear(final int range, final GameObject e, final SingleObject<Entity> f) {
-        int randX, randY;
-
-        do {
-            randX = rand.nextInt(range) + 1;
-            randY = rand.nextInt(range) + 1;
-            if (rand.nextBoolean()) {
-                randX *= -1;
-            }
-            if (rand.nextBoolean()) {
-                randY *= -1;
-            }
-            randX += e.getPosX() / AssetManagerProxy.getMapTileSize();
-            randY += e.getPosY() / AssetManagerProxy.getMapTileSize();
-
-        } while (!tileMap.canSpawnAt(randX, randY));
-         return spawnAt(randX, randY, f);
+        final SpawnIndex index = SpawnIndex.of(tileMap);
+        final OptionalInt cell = index.sampleNear(rand, tileMap.geometry().toTile(e.getPosX()),
+                tileMap.geometry().toTile(e.getPosY()), range);
+        if (cell.isEmpty()) {
+            return List.of();
+        }
+        return spawnAt(index.xOf(cell.getAsInt()), index.yOf(cell.getAsInt()), f);
     }
 }
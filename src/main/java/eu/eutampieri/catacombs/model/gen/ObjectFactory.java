@@ -22,8 +22,18 @@ public interface ObjectFactory {
      * Spawns n objects of a specified kind.
      * @param n Number of objects
      * @param f Entity type
-     * @return A list of the n objects
+     * @return A list of the n objects, shorter if the map has no cell to spawn them on
      */
     List<GameObject> spawnSome(int n, SingleObject<GameObject> f);
 
+    /**
+     * Spawns n objects of a specified kind in the range of another object.
+     * @param n     Number of objects
+     * @param range Radius of spawn range
+     * @param e     Object at the center of the range, used to get position
+     * @param f     Object type
+     * @return A list of the n objects, shorter if there's no cell to spawn them on in range
+     */
+    List<GameObject> spawnSomeNear(int n, int range, GameObject e, SingleObject<GameObject> f);
+
 }
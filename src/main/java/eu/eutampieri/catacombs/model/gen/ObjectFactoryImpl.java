@@ -2,11 +2,12 @@ package eu.eutampieri.catacombs.model.gen;
 
 import eu.eutampieri.catacombs.model.GameObject;
 import eu.eutampieri.catacombs.model.map.TileMap;
-import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.OptionalInt;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
 
 /**
  * ObjectFactory Implementation.
@@ -15,14 +16,25 @@ import java.util.Random;
 public class ObjectFactoryImpl implements ObjectFactory {
 
     private TileMap tileMap;
-    private final transient Random rand = new Random();
+    private final transient SplittableRandom rand;
 
     /**
      *
      * @param tileMap Tile map in which to spawn mobs
      */
     public ObjectFactoryImpl(final TileMap tileMap) {
+        this(tileMap, new SplittableRandom());
+    }
+
+    /**
+     *
+     * @param tileMap Tile map in which to spawn mobs
+     * @param rand    the source of randomness choosing where and what to spawn, so that a seeded one always
+     *                spawns the same
+     */
+    public ObjectFactoryImpl(final TileMap tileMap, final SplittableRandom rand) {
         this.tileMap = tileMap;
+        this.rand = rand;
     }
 
     /**
@@ -39,23 +51,41 @@ public class ObjectFactoryImpl implements ObjectFactory {
             return List.of();
         }
         final List<GameObject> objects = new ArrayList<>();
-        objects.add(f.create(x * AssetManagerProxy.getMapTileSize(), y * AssetManagerProxy.getMapTileSize(), this.tileMap));
+        objects.add(f.create(tileMap.geometry().toWorld(x), tileMap.geometry().toWorld(y), this.tileMap));
         return objects;
     }
 
     @Override
     public List<GameObject> spawnSome(final int n, final SingleObject<GameObject> f) {
+        final SpawnIndex index = SpawnIndex.of(tileMap);
+        return spawnSome(n, index, () -> index.sample(rand), f);
+    }
+
+    @Override
+    public List<GameObject> spawnSomeNear(final int n, final int range, final GameObject e,
+            final SingleObject<GameObject> f) {
+        final SpawnIndex index = SpawnIndex.of(tileMap);
+        final int x = tileMap.geometry().toTile(e.getPosX());
+        final int y = tileMap.geometry().toTile(e.getPosY());
+        return spawnSome(n, index, () -> index.sampleNear(rand, x, y, range), f);
+    }
+
+    /**
+     * @param index the spawn cells of the map
+     * @param cells where each object is spawned
+     */
+    private List<GameObject> spawnSome(final int n, final SpawnIndex index, final Supplier<OptionalInt> cells,
+            final SingleObject<GameObject> f) {
         if (f == null) {
             return List.of();
         }
-        int randX, randY;
         final List<GameObject> objects = new ArrayList<>();
         for (int i = 0; i < n; i++) {
-            do {
-                randX = rand.nextInt(tileMap.width());
-                randY = rand.nextInt(tileMap.height());
-            } while (!tileMap.canSpawnAt(randX, randY));
-            objects.addAll(spawnAt(randX, randY, f));
+            final OptionalInt cell = cells.get();
+            if (cell.isEmpty()) {
+                break;
+            }
+            objects.addAll(spawnAt(index.xOf(cell.getAsInt()), index.yOf(cell.getAsInt()), f));
         }
         return objects;
     }
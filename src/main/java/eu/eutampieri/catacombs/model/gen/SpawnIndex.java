@@ -0,0 +1,208 @@
+package eu.eutampieri.catacombs.model.gen;
+
+import eu.eutampieri.catacombs.model.map.TileMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.SplittableRandom;
+import java.util.WeakHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * The cells of a TileMap an entity can spawn on, grouped by square chunks of the map.
+ * There's one per map, and each chunk is scanned only the first time it's needed, so that maps which are
+ * generated lazily aren't generated as a whole to pick a few cells.
+ * Cells are represented as y * width + x.
+ */
+final class SpawnIndex {
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_SIDE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_AREA = CHUNK_SIDE * CHUNK_SIDE;
+    private static final int MAX_NEAR_ATTEMPTS = 16;
+    /**
+     * Draws of a chunk before sample gives up on rejection and scans every chunk, which only happens on maps
+     * with hardly any spawn cell.
+     */
+    private static final int MAX_SAMPLE_ATTEMPTS = 1024;
+    private static final Map<TileMap, SpawnIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final TileMap map;
+    private final int width;
+    private final int chunksWide;
+    private final int chunksHigh;
+    /**
+     * The spawn cells of each chunk, or null if it hasn't been scanned yet.
+     */
+    private final int[][] chunkCells;
+
+    private SpawnIndex(final TileMap map) {
+        this.map = map;
+        this.width = map.width();
+        this.chunksWide = (map.width() + CHUNK_SIDE - 1) >> CHUNK_SHIFT;
+        this.chunksHigh = (map.height() + CHUNK_SIDE - 1) >> CHUNK_SHIFT;
+        this.chunkCells = new int[chunksWide * chunksHigh][];
+    }
+
+    /**
+     * @param map the map to index
+     * @return the index of map, which is built only the first time it's requested
+     */
+    static SpawnIndex of(final TileMap map) {
+        synchronized (INDEXES) {
+            return INDEXES.computeIfAbsent(map, SpawnIndex::new);
+        }
+    }
+
+    /**
+     * @param chunk a chunk, as row * chunksWide + column
+     * @return the spawn cells of the chunk, scanning it if it's the first time
+     */
+    private synchronized int[] cellsOf(final int chunk) {
+        if (chunkCells[chunk] == null) {
+            final int x0 = (chunk % chunksWide) << CHUNK_SHIFT;
+            final int y0 = (chunk / chunksWide) << CHUNK_SHIFT;
+            final int[] found = new int[CHUNK_AREA];
+            int count = 0;
+            for (int y = y0; y < Math.min(y0 + CHUNK_SIDE, map.height()); y++) {
+                for (int x = x0; x < Math.min(x0 + CHUNK_SIDE, width); x++) {
+                    if (map.canSpawnAt(x, y)) {
+                        found[count++] = y * width + x;
+                    }
+                }
+            }
+            chunkCells[chunk] = Arrays.copyOf(found, count);
+        }
+        return chunkCells[chunk];
+    }
+
+    /**
+     * @param cell a cell
+     * @return the column of cell
+     */
+    int xOf(final int cell) {
+        return cell % width;
+    }
+
+    /**
+     * @param cell a cell
+     * @return the row of cell
+     */
+    int yOf(final int cell) {
+        return cell / width;
+    }
+
+    /**
+     * @param rand the source of randomness
+     * @return a spawn cell chosen uniformly, if there's any
+     */
+    OptionalInt sample(final SplittableRandom rand) {
+        // every cell of every chunk is drawn with the same probability, and only spawn cells are kept
+        for (int i = 0; i < MAX_SAMPLE_ATTEMPTS; i++) {
+            final int[] cells = cellsOf(rand.nextInt(chunkCells.length));
+            final int drawn = rand.nextInt(CHUNK_AREA);
+            if (drawn < cells.length) {
+                return OptionalInt.of(cells[drawn]);
+            }
+        }
+        return pick(rand, chunksIn(0, chunksWide - 1, 0, chunksHigh - 1), (cell) -> true);
+    }
+
+    /**
+     * Chooses uniformly a spawn cell whose horizontal and vertical distances from (x, y) are both
+     * between 1 and range.
+     * @param rand  the source of randomness
+     * @param x     column of the center
+     * @param y     row of the center
+     * @param range the maximum distance on each axis
+     * @return the chosen cell, if there's any
+     */
+    OptionalInt sampleNear(final SplittableRandom rand, final int x, final int y, final int range) {
+        final int minChunkX = Math.max(0, (x - range) >> CHUNK_SHIFT);
+        final int maxChunkX = Math.min(chunksWide - 1, (x + range) >> CHUNK_SHIFT);
+        final int minChunkY = Math.max(0, (y - range) >> CHUNK_SHIFT);
+        final int maxChunkY = Math.min(chunksHigh - 1, (y + range) >> CHUNK_SHIFT);
+        if (range < 1 || minChunkX > maxChunkX || minChunkY > maxChunkY) {
+            return OptionalInt.empty();
+        }
+        final List<int[]> chunks = chunksIn(minChunkX, maxChunkX, minChunkY, maxChunkY);
+        int candidates = 0;
+        for (final int[] cells : chunks) {
+            candidates += cells.length;
+        }
+        if (candidates == 0) {
+            return OptionalInt.empty();
+        }
+        // Most candidates are usually in range, so a few draws are enough
+        for (int i = 0; i < MAX_NEAR_ATTEMPTS; i++) {
+            final int cell = candidate(chunks, rand.nextInt(candidates));
+            if (isNear(cell, x, y, range)) {
+                return OptionalInt.of(cell);
+            }
+        }
+        return pick(rand, chunks, (cell) -> isNear(cell, x, y, range));
+    }
+
+    /**
+     * @return the spawn cells of the chunks in the rectangle, a chunk each.
+     */
+    private List<int[]> chunksIn(final int minChunkX, final int maxChunkX, final int minChunkY,
+            final int maxChunkY) {
+        final List<int[]> chunks = new ArrayList<>();
+        for (int cy = minChunkY; cy <= maxChunkY; cy++) {
+            for (int cx = minChunkX; cx <= maxChunkX; cx++) {
+                chunks.add(cellsOf(cy * chunksWide + cx));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Candidates are the cells of the chunks, chunk by chunk.
+     */
+    private static int candidate(final List<int[]> chunks, final int i) {
+        int rest = i;
+        int chunk = 0;
+        while (rest >= chunks.get(chunk).length) {
+            rest -= chunks.get(chunk).length;
+            chunk++;
+        }
+        return chunks.get(chunk)[rest];
+    }
+
+    /**
+     * Chooses uniformly one of the accepted cells of the chunks, scanning them once to count them.
+     */
+    private static OptionalInt pick(final SplittableRandom rand, final List<int[]> chunks,
+            final IntPredicate accepted) {
+        int count = 0;
+        for (final int[] cells : chunks) {
+            for (final int cell : cells) {
+                if (accepted.test(cell)) {
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            return OptionalInt.empty();
+        }
+        int chosen = rand.nextInt(count);
+        for (final int[] cells : chunks) {
+            for (final int cell : cells) {
+                if (accepted.test(cell) && chosen-- == 0) {
+                    return OptionalInt.of(cell);
+                }
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private boolean isNear(final int cell, final int x, final int y, final int range) {
+        final int dx = Math.abs(xOf(cell) - x);
+        final int dy = Math.abs(yOf(cell) - y);
+        return dx >= 1 && dx <= range && dy >= 1 && dy <= range;
+    }
+}
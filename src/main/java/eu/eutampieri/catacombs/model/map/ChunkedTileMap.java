@@ -0,0 +1,243 @@
+package eu.eutampieri.catacombs.model.map;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A TileMap which is generated lazily in square chunks.
+ * Every chunk is generated deterministically from the map seed and its coordinates, so a chunk which
+ * has been dropped to save memory is regenerated identical when it is needed again.
+ * Neighbouring chunks agree on the position of the door in their shared edge, which makes the whole
+ * dungeon connected.
+ */
+public final class ChunkedTileMap implements TileMap {
+    /**
+     * Side of a chunk in tiles.
+     */
+    public static final int CHUNK_SIDE = 64;
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_MASK = CHUNK_SIDE - 1;
+    /**
+     * Chunks within this distance (in chunks) from the focus are generated in advance.
+     */
+    private static final int LOAD_RADIUS = 1;
+    /**
+     * Chunks farther than this distance (in chunks) from the focus are dropped.
+     */
+    private static final int DROP_RADIUS = 2;
+    private static final int DOOR_MARGIN = 8;
+    private static final int ROOM_MARGIN = 2;
+    private static final int MIN_ROOM_SIDE = 8;
+    private static final int MAX_ROOM_SIDE = 16;
+    private static final int MAX_EXTRA_ROOMS = 2;
+    private static final long EAST = 1;
+    private static final long SOUTH = 2;
+    private static final long ROOMS = 3;
+
+    private final long seed;
+    private final int chunksWide;
+    private final int chunksHigh;
+    private final Map<Long, PackedTileMap> chunks = new ConcurrentHashMap<>();
+    /**
+     * The last accessed chunk, which serves most of the queries without a hash lookup.
+     */
+    private volatile LoadedChunk last;
+
+    /**
+     * A chunk with its coordinates.
+     */
+    private static final class LoadedChunk {
+        private final int cx;
+        private final int cy;
+        private final PackedTileMap tiles;
+
+        LoadedChunk(final int cx, final int cy, final PackedTileMap tiles) {
+            this.cx = cx;
+            this.cy = cy;
+            this.tiles = tiles;
+        }
+    }
+
+    /**
+     * @param seed       seed for the rng
+     * @param chunksWide width of the map in chunks
+     * @param chunksHigh height of the map in chunks
+     */
+    public ChunkedTileMap(final long seed, final int chunksWide, final int chunksHigh) {
+        if (chunksWide < 1 || chunksHigh < 1 || chunksWide > Integer.MAX_VALUE / CHUNK_SIDE
+                || chunksHigh > Integer.MAX_VALUE / CHUNK_SIDE) {
+            throw new IllegalArgumentException();
+        }
+        this.seed = seed;
+        this.chunksWide = chunksWide;
+        this.chunksHigh = chunksHigh;
+    }
+
+    @Override
+    public int height() {
+        return chunksHigh * CHUNK_SIDE;
+    }
+
+    @Override
+    public int width() {
+        return chunksWide * CHUNK_SIDE;
+    }
+
+    @Override
+    public Tile at(final int x, final int y) {
+        if (y < 0 || x < 0 || y >= height() || x >= width()) {
+            return Tile.VOID;
+        }
+        return chunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT).at(x & CHUNK_MASK, y & CHUNK_MASK);
+    }
+
+    @Override
+    public boolean isWalkable(final int x, final int y) {
+        if (y < 0 || x < 0 || y >= height() || x >= width()) {
+            return false;
+        }
+        return chunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT).isWalkable(x & CHUNK_MASK, y & CHUNK_MASK);
+    }
+
+    @Override
+    public boolean canSpawnAt(final int x, final int y) {
+        return isWalkable(x, y) && isWalkable(x - 1, y) && isWalkable(x + 1, y) && isWalkable(x, y - 1)
+                && isWalkable(x, y + 1);
+    }
+
+    /**
+     * Generates the chunks around the focus and drops the far ones.
+     */
+    @Override
+    public void focusOn(final int x, final int y) {
+        final int fx = Math.floorDiv(x, CHUNK_SIDE);
+        final int fy = Math.floorDiv(y, CHUNK_SIDE);
+        chunks.keySet().removeIf(k -> Math.max(Math.abs(chunkX(k) - fx), Math.abs(chunkY(k) - fy)) > DROP_RADIUS);
+        for (int cy = Math.max(0, fy - LOAD_RADIUS); cy <= Math.min(chunksHigh - 1, fy + LOAD_RADIUS); cy++) {
+            for (int cx = Math.max(0, fx - LOAD_RADIUS); cx <= Math.min(chunksWide - 1, fx + LOAD_RADIUS); cx++) {
+                chunk(cx, cy);
+            }
+        }
+    }
+
+    /**
+     * Every tile up to LOAD_RADIUS chunks from the focus is in a generated chunk.
+     */
+    @Override
+    public int focusRange() {
+        return LOAD_RADIUS * CHUNK_SIDE;
+    }
+
+    /**
+     * @return the number of chunks currently kept in memory.
+     */
+    public int loadedChunks() {
+        return chunks.size();
+    }
+
+    private PackedTileMap chunk(final int cx, final int cy) {
+        final LoadedChunk cached = last;
+        if (cached != null && cached.cx == cx && cached.cy == cy) {
+            return cached.tiles;
+        }
+        final PackedTileMap tiles = chunks.computeIfAbsent(key(cx, cy), k -> generate(cx, cy));
+        last = new LoadedChunk(cx, cy, tiles);
+        return tiles;
+    }
+
+    private static long key(final int cx, final int cy) {
+        return (long) cy << Integer.SIZE | cx & 0xFFFF_FFFFL;
+    }
+
+    private static int chunkX(final long key) {
+        return (int) key;
+    }
+
+    private static int chunkY(final long key) {
+        return (int) (key >> Integer.SIZE);
+    }
+
+    /**
+     * @return a well mixed hash of the seed and the arguments.
+     */
+    private long hash(final int cx, final int cy, final long salt) {
+        long h = seed;
+        h = mix(h + cx);
+        h = mix(h + cy);
+        return mix(h + salt);
+    }
+
+    private static long mix(final long value) {
+        // Check:OFF: MagicNumber
+        long z = value + 0x9E37_79B9_7F4A_7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+        return z ^ (z >>> 31);
+        // Check:ON: MagicNumber
+    }
+
+    /**
+     * @return the offset along the edge of the door between chunk (cx, cy) and its neighbour in the given
+     *         direction
+     */
+    private int door(final int cx, final int cy, final long direction) {
+        return DOOR_MARGIN + (int) Math.floorMod(hash(cx, cy, direction), (long) (CHUNK_SIDE - 2 * DOOR_MARGIN));
+    }
+
+    /**
+     * Generates a chunk: a hub room connected to the doors towards the neighbouring chunks and some more
+     * rooms connected to the hub.
+     */
+    private PackedTileMap generate(final int cx, final int cy) {
+        final Random rand = new Random(hash(cx, cy, ROOMS));
+        final var res = new PackedTileMap.Builder(CHUNK_SIDE, CHUNK_SIDE).fill(Tile.WALL);
+        final Point hub = makeRoom(rand, res);
+        final int nExtraRooms = rand.nextInt(MAX_EXTRA_ROOMS + 1);
+        for (int i = 0; i < nExtraRooms; i++) {
+            TileMapFactoryImpl.makeCorridor(rand, hub, makeRoom(rand, res), res);
+        }
+        if (cx + 1 < chunksWide) {
+            makeDoor(rand, hub, CHUNK_SIDE - 1, door(cx, cy, EAST), res);
+        }
+        if (cx > 0) {
+            makeDoor(rand, hub, 0, door(cx - 1, cy, EAST), res);
+        }
+        if (cy + 1 < chunksHigh) {
+            makeDoor(rand, hub, door(cx, cy, SOUTH), CHUNK_SIDE - 1, res);
+        }
+        if (cy > 0) {
+            makeDoor(rand, hub, door(cx, cy - 1, SOUTH), 0, res);
+        }
+        return res.build();
+    }
+
+    /**
+     * Adds a room with random size and position.
+     * @return the center of the room
+     */
+    private static Point makeRoom(final Random rand, final PackedTileMap.Builder res) {
+        final int roomH = rand.nextInt(MAX_ROOM_SIDE - MIN_ROOM_SIDE + 1) + MIN_ROOM_SIDE;
+        final int roomW = rand.nextInt(MAX_ROOM_SIDE - MIN_ROOM_SIDE + 1) + MIN_ROOM_SIDE;
+        final int span = CHUNK_SIDE - 2 * ROOM_MARGIN - MAX_ROOM_SIDE - 1;
+        final int x0 = ROOM_MARGIN + rand.nextInt(span);
+        final int y0 = ROOM_MARGIN + rand.nextInt(span);
+        for (int y = y0; y <= y0 + roomH; y++) {
+            for (int x = x0; x <= x0 + roomW; x++) {
+                res.set(x, y, Tile.FLOOR);
+            }
+        }
+        return new Point(x0 + roomW / 2, y0 + roomH / 2);
+    }
+
+    /**
+     * Connects the hub to a door on the edge of the chunk, keeping the corridor off the edge.
+     */
+    private static void makeDoor(final Random rand, final Point hub, final int x, final int y,
+            final PackedTileMap.Builder res) {
+        final int insideX = Math.max(1, Math.min(CHUNK_SIDE - 2, x));
+        final int insideY = Math.max(1, Math.min(CHUNK_SIDE - 2, y));
+        TileMapFactoryImpl.makeCorridor(rand, hub, new Point(insideX, insideY), res);
+        res.set(x, y, Tile.FLOOR);
+    }
+}
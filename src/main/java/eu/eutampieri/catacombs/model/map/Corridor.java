@@ -0,0 +1,61 @@
+package eu.eutampieri.catacombs.model.map;
+
+/**
+ * A corridor dug by the map generator, starting from a room.
+ */
+public final class Corridor {
+    private final int from;
+    private final int to;
+    private final int width;
+    private final int[] path;
+
+    /**
+     * @param from  index of the room the corridor starts from
+     * @param to    index of the room the corridor ends in, -1 if it ends outside of the rooms
+     * @param width width of the map, used to decode the path
+     * @param path  the tiles of the corridor, encoded as y * width + x
+     */
+    Corridor(final int from, final int to, final int width, final int[] path) {
+        this.from = from;
+        this.to = to;
+        this.width = width;
+        this.path = path;
+    }
+
+    /**
+     * @return the index of the room the corridor starts from.
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the index of the room the corridor ends in, -1 if it's a dead end.
+     */
+    public int getTo() {
+        return to;
+    }
+
+    /**
+     * @return the number of tiles of the corridor.
+     */
+    public int getLength() {
+        return path.length;
+    }
+
+    /**
+     * @param i the position of a tile along the corridor, 0 being the one next to the starting point
+     * @return the column of the tile
+     */
+    public int getX(final int i) {
+        return path[i] % width;
+    }
+
+    /**
+     * @param i the position of a tile along the corridor, 0 being the one next to the starting point
+     * @return the row of the tile
+     */
+    public int getY(final int i) {
+        return path[i] / width;
+    }
+}
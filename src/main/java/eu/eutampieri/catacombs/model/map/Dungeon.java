@@ -0,0 +1,32 @@
+package eu.eutampieri.catacombs.model.map;
+
+/**
+ * A generated map together with the layout of its rooms.
+ */
+public final class Dungeon {
+    private final TileMap map;
+    private final RoomGraph rooms;
+
+    /**
+     * @param map   the tiles of the dungeon
+     * @param rooms the rooms of the dungeon
+     */
+    Dungeon(final TileMap map, final RoomGraph rooms) {
+        this.map = map;
+        this.rooms = rooms;
+    }
+
+    /**
+     * @return the tiles of the dungeon.
+     */
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * @return the rooms of the dungeon and the corridors linking them.
+     */
+    public RoomGraph getRooms() {
+        return rooms;
+    }
+}
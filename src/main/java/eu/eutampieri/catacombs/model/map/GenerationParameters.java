@@ -0,0 +1,139 @@
+package eu.eutampieri.catacombs.model.map;
+
+import java.util.Objects;
+
+/**
+ * The parameters used to generate a dungeon made of rooms connected by corridors.
+ */
+public final class GenerationParameters {
+    /**
+     * The parameters used by TileMapFactory.def().
+     */
+    public static final GenerationParameters DEFAULT = new GenerationParameters(16, 8, 16, 32, 42);
+    /**
+     * Width in tiles of the corridors unless otherwise requested.
+     */
+    public static final int DEFAULT_CORRIDOR_WIDTH = 1;
+
+    private final int nRooms;
+    private final int minRoomSide;
+    private final int maxRoomSide;
+    private final int minRoomDist;
+    private final int maxRoomDist;
+    private final int corridorWidth;
+
+    /**
+     * Parameters for corridors DEFAULT_CORRIDOR_WIDTH tiles wide.
+     * minRoomDist &gt; maxRoomSide is recommended.
+     * @param nRooms      number of rooms to generate
+     * @param minRoomSide minimum side length of a room
+     * @param maxRoomSide maximum side length of a room
+     * @param minRoomDist minimum distance between two rooms' centers
+     * @param maxRoomDist maximum distance with the closest room's center for each
+     *                    room center
+     */
+    public GenerationParameters(final int nRooms, final int minRoomSide, final int maxRoomSide,
+            final int minRoomDist, final int maxRoomDist) {
+        this(nRooms, minRoomSide, maxRoomSide, minRoomDist, maxRoomDist, DEFAULT_CORRIDOR_WIDTH);
+    }
+
+    /**
+     * minRoomDist &gt; maxRoomSide is recommended.
+     * @param nRooms        number of rooms to generate
+     * @param minRoomSide   minimum side length of a room
+     * @param maxRoomSide   maximum side length of a room
+     * @param minRoomDist   minimum distance between two rooms' centers
+     * @param maxRoomDist   maximum distance with the closest room's center for each
+     *                      room center
+     * @param corridorWidth width in tiles of the corridors
+     */
+    public GenerationParameters(final int nRooms, final int minRoomSide, final int maxRoomSide,
+            final int minRoomDist, final int maxRoomDist, final int corridorWidth) {
+        if (nRooms <= 0 || minRoomSide <= 0 || maxRoomSide < minRoomSide || minRoomDist < 0
+                || maxRoomDist < minRoomDist || corridorWidth <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.nRooms = nRooms;
+        this.minRoomSide = minRoomSide;
+        this.maxRoomSide = maxRoomSide;
+        this.minRoomDist = minRoomDist;
+        this.maxRoomDist = maxRoomDist;
+        this.corridorWidth = corridorWidth;
+    }
+
+    /**
+     * @param width width in tiles of the corridors
+     * @return the same parameters, with corridors width tiles wide
+     */
+    public GenerationParameters withCorridorWidth(final int width) {
+        return new GenerationParameters(nRooms, minRoomSide, maxRoomSide, minRoomDist, maxRoomDist, width);
+    }
+
+    /**
+     * @return number of rooms to generate
+     */
+    public int getRooms() {
+        return nRooms;
+    }
+
+    /**
+     * @return minimum side length of a room
+     */
+    public int getMinRoomSide() {
+        return minRoomSide;
+    }
+
+    /**
+     * @return maximum side length of a room
+     */
+    public int getMaxRoomSide() {
+        return maxRoomSide;
+    }
+
+    /**
+     * @return minimum distance between two rooms' centers
+     */
+    public int getMinRoomDist() {
+        return minRoomDist;
+    }
+
+    /**
+     * @return maximum distance with the closest room's center for each room center
+     */
+    public int getMaxRoomDist() {
+        return maxRoomDist;
+    }
+
+    /**
+     * @return width in tiles of the corridors
+     */
+    public int getCorridorWidth() {
+        return corridorWidth;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nRooms, minRoomSide, maxRoomSide, minRoomDist, maxRoomDist, corridorWidth);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final GenerationParameters other = (GenerationParameters) o;
+        return nRooms == other.nRooms && minRoomSide == other.minRoomSide && maxRoomSide == other.maxRoomSide
+                && minRoomDist == other.minRoomDist && maxRoomDist == other.maxRoomDist
+                && corridorWidth == other.corridorWidth;
+    }
+
+    @Override
+    public String toString() {
+        return "GenerationParameters [nRooms=" + nRooms + ", minRoomSide=" + minRoomSide + ", maxRoomSide="
+                + maxRoomSide + ", minRoomDist=" + minRoomDist + ", maxRoomDist=" + maxRoomDist + ", corridorWidth="
+                + corridorWidth + "]";
+    }
+}
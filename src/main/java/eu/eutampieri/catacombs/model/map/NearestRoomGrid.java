@@ -0,0 +1,104 @@
+package eu.eutampieri.catacombs.model.map;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds, among the room centers added so far, the closest one to a point.
+ * Centers are bucketed in a uniform grid, which is searched in growing rings of cells around the point.
+ */
+final class NearestRoomGrid {
+    private final List<Point> centers;
+    private final int cellSide;
+    private final int minX;
+    private final int minY;
+    private final int cellsWide;
+    private final int cellsHigh;
+    /**
+     * Index of the last center added in each cell, -1 if the cell is empty.
+     */
+    private final int[] head;
+    /**
+     * Index of the center added before each center in the same cell, -1 if it's the first one.
+     */
+    private final int[] next;
+
+    /**
+     * @param centers  all the room centers which may be added
+     * @param cellSide side of a cell of the grid, ideally close to the usual distance between rooms
+     */
+    NearestRoomGrid(final List<Point> centers, final int cellSide) {
+        if (centers.isEmpty() || cellSide < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.centers = centers;
+        this.cellSide = cellSide;
+        int x0 = Integer.MAX_VALUE;
+        int y0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE;
+        int y1 = Integer.MIN_VALUE;
+        for (final Point p : centers) {
+            x0 = Math.min(x0, p.getX());
+            y0 = Math.min(y0, p.getY());
+            x1 = Math.max(x1, p.getX());
+            y1 = Math.max(y1, p.getY());
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.cellsWide = (x1 - x0) / cellSide + 1;
+        this.cellsHigh = (y1 - y0) / cellSide + 1;
+        this.head = new int[cellsWide * cellsHigh];
+        this.next = new int[centers.size()];
+        Arrays.fill(head, -1);
+    }
+
+    /**
+     * @param i index of the center to add
+     */
+    void add(final int i) {
+        final Point p = centers.get(i);
+        final int cell = (p.getY() - minY) / cellSide * cellsWide + (p.getX() - minX) / cellSide;
+        next[i] = head[cell];
+        head[cell] = i;
+    }
+
+    /**
+     * @param i index of a center
+     * @return the index of the closest center added so far to center i, the lowest one in case of ties,
+     *         -1 if no center has been added
+     */
+    int nearest(final int i) {
+        final Point p = centers.get(i);
+        final int cx = (p.getX() - minX) / cellSide;
+        final int cy = (p.getY() - minY) / cellSide;
+        final int maxRing = Math.max(Math.max(cx, cellsWide - 1 - cx), Math.max(cy, cellsHigh - 1 - cy));
+        int best = -1;
+        int bestDist = Integer.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // points in the following rings are farther than ring * cellSide on at least one axis
+            if (best >= 0 && bestDist <= (ring - 1) * cellSide) {
+                break;
+            }
+            for (int y = cy - ring; y <= cy + ring; y++) {
+                if (y < 0 || y >= cellsHigh) {
+                    continue;
+                }
+                final boolean edgeRow = y == cy - ring || y == cy + ring;
+                final int step = edgeRow ? 1 : 2 * ring;
+                for (int x = cx - ring; x <= cx + ring; x += Math.max(step, 1)) {
+                    if (x < 0 || x >= cellsWide) {
+                        continue;
+                    }
+                    for (int j = head[y * cellsWide + x]; j >= 0; j = next[j]) {
+                        final int d = p.dist(centers.get(j));
+                        if (d < bestDist || d == bestDist && j < best) {
+                            best = j;
+                            bestDist = d;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,265 @@
+package eu.eutampieri.catacombs.model.map;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A TileMap which packs its tiles in a byte buffer, using 2 bits per tile, and keeps a precomputed
+ * bitset of the walkable tiles.
+ * The buffer may be a memory-mapped file, whose tiles are then read straight from the file.
+ */
+public final class PackedTileMap implements TileMap {
+    private static final Tile[] TILES = Tile.values();
+    private static final int BITS_PER_TILE = 2;
+    private static final int TILES_PER_BYTE = 4;
+    private static final int TILE_MASK = 3;
+    private static final int WORD_SHIFT = 6;
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer tiles;
+    private final long[] walkable;
+
+    private PackedTileMap(final int width, final int height, final ByteBuffer tiles) {
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+        this.walkable = new long[(width * height >>> WORD_SHIFT) + 1];
+        for (int i = 0; i < width * height; i++) {
+            if (tileAt(tiles, i).isWalkable()) {
+                walkable[i >>> WORD_SHIFT] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * @param width  width of the map in tiles
+     * @param height height of the map in tiles
+     * @param tiles  tiles packed as getPackedTiles() returns them, which the map takes ownership of
+     * @return a PackedTileMap backed by tiles
+     */
+    static PackedTileMap wrap(final int width, final int height, final byte[] tiles) {
+        return wrap(width, height, ByteBuffer.wrap(tiles));
+    }
+
+    /**
+     * @param width  width of the map in tiles
+     * @param height height of the map in tiles
+     * @param tiles  a buffer holding between its position and its limit the tiles packed as getPackedTiles()
+     *               returns them, which mustn't change afterwards
+     * @return a PackedTileMap backed by the content of tiles
+     */
+    static PackedTileMap wrap(final int width, final int height, final ByteBuffer tiles) {
+        if (width < 1 || height < 1 || tiles.remaining() != packedLength(width, height)) {
+            throw new IllegalArgumentException();
+        }
+        return new PackedTileMap(width, height, tiles.slice().asReadOnlyBuffer());
+    }
+
+    /**
+     * @param width  width of the map in tiles
+     * @param height height of the map in tiles
+     * @return the number of bytes needed to pack the tiles of such a map
+     */
+    static int packedLength(final int width, final int height) {
+        return (width * height + TILES_PER_BYTE - 1) / TILES_PER_BYTE;
+    }
+
+    /**
+     * Packs an existing TileMap.
+     * @param map the TileMap to copy
+     * @return a PackedTileMap with the same tiles as map
+     */
+    public static PackedTileMap of(final TileMap map) {
+        if (map instanceof PackedTileMap) {
+            return (PackedTileMap) map;
+        }
+        final Builder builder = new Builder(map.width(), map.height());
+        for (int y = 0; y < map.height(); y++) {
+            for (int x = 0; x < map.width(); x++) {
+                builder.set(x, y, map.at(x, y));
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public Tile at(final int x, final int y) {
+        if (y < 0 || x < 0 || y >= height || x >= width) {
+            return Tile.VOID;
+        }
+        return tileAt(tiles, y * width + x);
+    }
+
+    @Override
+    public boolean isWalkable(final int x, final int y) {
+        if (y < 0 || x < 0 || y >= height || x >= width) {
+            return false;
+        }
+        return isWalkable(y * width + x);
+    }
+
+    @Override
+    public boolean canSpawnAt(final int x, final int y) {
+        // every tile on the border has a void neighbour
+        if (y < 1 || x < 1 || y >= height - 1 || x >= width - 1) {
+            return false;
+        }
+        final int i = y * width + x;
+        return isWalkable(i) && isWalkable(i - 1) && isWalkable(i + 1) && isWalkable(i - width)
+                && isWalkable(i + width);
+    }
+
+    private boolean isWalkable(final int i) {
+        return (walkable[i >>> WORD_SHIFT] & 1L << i) != 0;
+    }
+
+    private static Tile tileAt(final ByteBuffer tiles, final int i) {
+        return TILES[tiles.get(i / TILES_PER_BYTE) >> (i % TILES_PER_BYTE * BITS_PER_TILE) & TILE_MASK];
+    }
+
+    private static Tile tileAt(final byte[] tiles, final int i) {
+        return TILES[tiles[i / TILES_PER_BYTE] >> (i % TILES_PER_BYTE * BITS_PER_TILE) & TILE_MASK];
+    }
+
+    /**
+     * @return the packed representation of the tiles, row by row, 4 tiles per byte starting from the
+     *         least significant bits.
+     */
+    public byte[] getPackedTiles() {
+        final byte[] res = new byte[tiles.capacity()];
+        tiles.duplicate().clear().get(res);
+        return res;
+    }
+
+    /**
+     * @return a read-only buffer holding the tiles packed as getPackedTiles() returns them, without copying them.
+     */
+    ByteBuffer packedTiles() {
+        return tiles.duplicate().clear();
+    }
+
+    /**
+     * A mutable grid of tiles used to build a PackedTileMap.
+     */
+    public static final class Builder {
+        private final int width;
+        private final int height;
+        private final byte[] tiles;
+
+        /**
+         * Creates a builder with every tile set to Tile.VOID.
+         * @param width  width of the map in tiles
+         * @param height height of the map in tiles
+         */
+        public Builder(final int width, final int height) {
+            if (width < 1 || height < 1) {
+                throw new IllegalArgumentException();
+            }
+            this.width = width;
+            this.height = height;
+            this.tiles = new byte[packedLength(width, height)];
+        }
+
+        /**
+         * Creates a builder from already packed tiles.
+         * @param width  width of the map in tiles
+         * @param height height of the map in tiles
+         * @param packed tiles packed as returned by PackedTileMap.getPackedTiles()
+         */
+        public Builder(final int width, final int height, final byte[] packed) {
+            this(width, height);
+            if (packed.length != tiles.length) {
+                throw new IllegalArgumentException();
+            }
+            System.arraycopy(packed, 0, tiles, 0, tiles.length);
+        }
+
+        /**
+         * @return the width of the map in tiles.
+         */
+        public int width() {
+            return width;
+        }
+
+        /**
+         * @return the height of the map in tiles.
+         */
+        public int height() {
+            return height;
+        }
+
+        /**
+         * Sets every tile.
+         * @param tile the tile to fill the map with
+         * @return this builder
+         */
+        public Builder fill(final Tile tile) {
+            int b = 0;
+            for (int k = 0; k < TILES_PER_BYTE; k++) {
+                b |= tile.ordinal() << (k * BITS_PER_TILE);
+            }
+            Arrays.fill(tiles, (byte) b);
+            return this;
+        }
+
+        /**
+         * @param x    column
+         * @param y    row
+         * @param tile the tile to put at column x and row y
+         * @return this builder
+         */
+        public Builder set(final int x, final int y, final Tile tile) {
+            if (y < 0 || x < 0 || y >= height || x >= width) {
+                throw new IndexOutOfBoundsException();
+            }
+            final int i = y * width + x;
+            final int shift = i % TILES_PER_BYTE * BITS_PER_TILE;
+            tiles[i / TILES_PER_BYTE] = (byte) (tiles[i / TILES_PER_BYTE] & ~(TILE_MASK << shift)
+                    | tile.ordinal() << shift);
+            return this;
+        }
+
+        /**
+         * @param x column
+         * @param y row
+         * @return the Tile at column x and row y, Tile.VOID if out of bounds
+         */
+        public Tile get(final int x, final int y) {
+            if (y < 0 || x < 0 || y >= height || x >= width) {
+                return Tile.VOID;
+            }
+            return tileAt(tiles, y * width + x);
+        }
+
+        /**
+         * @return a matrix with the tiles set so far.
+         */
+        Tile[][] toArray() {
+            final Tile[][] res = new Tile[height][width];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    res[y][x] = tileAt(tiles, y * width + x);
+                }
+            }
+            return res;
+        }
+
+        /**
+         * @return a PackedTileMap with the tiles set so far.
+         */
+        public PackedTileMap build() {
+            return new PackedTileMap(width, height, ByteBuffer.wrap(tiles.clone()).asReadOnlyBuffer());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package eu.eutampieri.catacombs.model.map;
+
+/**
+ * A useful helper class for map generation.
+ */
+final class Point {
+    private final int x;
+    private final int y;
+
+    Point(final int x, final int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @param o the other point
+     * @return the manhattan distance between this point and o
+     */
+    public int dist(final Point o) {
+        return Math.abs(x - o.x) + Math.abs(y - o.y);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + x;
+        result = prime * result + y;
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Point point = (Point) o;
+        return x == point.x && y == point.y;
+    }
+}
@@ -0,0 +1,98 @@
+package eu.eutampieri.catacombs.model.map;
+
+/**
+ * A rectangular room of a generated map.
+ */
+public final class Room {
+    private final int index;
+    private final int centerX;
+    private final int centerY;
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    /**
+     * @param index   index of the room in its RoomGraph
+     * @param centerX column of the center
+     * @param centerY row of the center
+     * @param minX    leftmost column of the room
+     * @param minY    topmost row of the room
+     * @param maxX    rightmost column of the room
+     * @param maxY    bottom row of the room
+     */
+    Room(final int index, final int centerX, final int centerY, final int minX, final int minY, final int maxX,
+            final int maxY) {
+        this.index = index;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * @return the index of the room in its RoomGraph.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the column of the center of the room.
+     */
+    public int getCenterX() {
+        return centerX;
+    }
+
+    /**
+     * @return the row of the center of the room.
+     */
+    public int getCenterY() {
+        return centerY;
+    }
+
+    /**
+     * @return the leftmost column of the room.
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return the topmost row of the room.
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return the rightmost column of the room.
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return the bottom row of the room.
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @param x column
+     * @param y row
+     * @return if the tile at column x and row y is inside the bounds of the room
+     */
+    public boolean contains(final int x, final int y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    @Override
+    public String toString() {
+        return "Room [index=" + index + ", minX=" + minX + ", minY=" + minY + ", maxX=" + maxX + ", maxY=" + maxY
+                + "]";
+    }
+}
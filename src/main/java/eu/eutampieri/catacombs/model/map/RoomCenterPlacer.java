@@ -0,0 +1,213 @@
+package eu.eutampieri.catacombs.model.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Chooses room centers for the map generator.
+ * Distances from the chosen centers are kept in a dense int grid which grows when a new center gets
+ * close to its borders, and the candidate points are kept in an array pool which supports O(1) removal.
+ * Given the same Random, the chosen centers are the same ones the former HashMap based placement chose.
+ */
+final class RoomCenterPlacer {
+    private static final int NOT_IN_POOL = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Random rand;
+    private final int minRoomDist;
+    private final int maxRoomDist;
+
+    /**
+     * Grid of the distances from the closest chosen center, farther points hold maxRoomDist + 1.
+     */
+    private int[] dist;
+    /**
+     * Grid of the positions in the pool, NOT_IN_POOL for points which are not candidates.
+     */
+    private int[] poolIndex;
+    private int gridX;
+    private int gridY;
+    private int gridW;
+    private int gridH;
+
+    private int[] poolX = new int[INITIAL_CAPACITY];
+    private int[] poolY = new int[INITIAL_CAPACITY];
+    private int poolSize;
+    /**
+     * Scratch buffer for the pool positions to remove after each placement.
+     */
+    private int[] tooClose = new int[INITIAL_CAPACITY];
+
+    /**
+     * @param rand        prng used to pick the centers
+     * @param minRoomDist minimum distance between two rooms' centers
+     * @param maxRoomDist maximum distance with the closest room's center for each
+     *                    room center
+     */
+    RoomCenterPlacer(final Random rand, final int minRoomDist, final int maxRoomDist) {
+        this.rand = rand;
+        this.minRoomDist = minRoomDist;
+        this.maxRoomDist = maxRoomDist;
+        final int side = 2 * maxRoomDist + 1;
+        allocateGrid(-maxRoomDist, -maxRoomDist, side, side);
+    }
+
+    /**
+     * @param nRooms      number of rooms to generate
+     * @param maxRoomSide maximum side length of a room
+     * @return A List with nRooms points for room centers, shifted so that every room fits in the map
+     */
+    List<Point> place(final int nRooms, final int maxRoomSide) {
+        final int[] centersX = new int[nRooms];
+        final int[] centersY = new int[nRooms];
+        addToPool(0, 0); // starting point does not matter to the final structure
+        dist[index(0, 0)] = 0;
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        for (int room = 0; room < nRooms; room++) {
+            final int picked = rand.nextInt(poolSize); // get a random point from the pool
+            final int x = poolX[picked];
+            final int y = poolY[picked];
+            centersX[room] = x;
+            centersY[room] = y;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            updateDistances(x, y);
+            removeTooClose(x, y);
+        }
+        // shift coordinates so that the leftmost and topmost rooms do not touch the edges
+        final int dx = 2 + (maxRoomSide + 1) / 2 - minX;
+        final int dy = 2 + (maxRoomSide + 1) / 2 - minY;
+        final List<Point> centers = new ArrayList<>(nRooms);
+        for (int i = 0; i < nRooms; i++) {
+            centers.add(new Point(centersX[i] + dx, centersY[i] + dy));
+        }
+        return centers;
+    }
+
+    /**
+     * Recalculates the distances of all points in range of a new center, adding to the pool the points
+     * that were too far before.
+     */
+    private void updateDistances(final int cx, final int cy) {
+        ensureCovered(cx - maxRoomDist, cy - maxRoomDist, cx + maxRoomDist, cy + maxRoomDist);
+        for (int dy = -maxRoomDist; dy <= maxRoomDist; dy++) {
+            final int span = maxRoomDist - Math.abs(dy);
+            final int row = (cy + dy - gridY) * gridW - gridX;
+            for (int dx = -span; dx <= span; dx++) {
+                final int i = row + cx + dx;
+                final int formerDist = dist[i];
+                final int currentDist = Math.abs(dx) + Math.abs(dy);
+                if (currentDist < formerDist) {
+                    dist[i] = currentDist;
+                    if (formerDist > maxRoomDist) {
+                        addToPool(cx + dx, cy + dy);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes from the pool the points which are now too close to the new center.
+     * The removal order is the one of a front to back scan of the pool which swaps every removed point
+     * with the last one, so that the pool keeps the exact same ordering.
+     */
+    private void removeTooClose(final int cx, final int cy) {
+        int count = 0;
+        for (int dy = 1 - minRoomDist; dy < minRoomDist; dy++) {
+            final int span = minRoomDist - 1 - Math.abs(dy);
+            final int row = (cy + dy - gridY) * gridW - gridX;
+            for (int dx = -span; dx <= span; dx++) {
+                final int pos = poolIndex[row + cx + dx];
+                if (pos != NOT_IN_POOL) {
+                    if (count == tooClose.length) {
+                        tooClose = Arrays.copyOf(tooClose, count * 2);
+                    }
+                    tooClose[count++] = pos;
+                }
+            }
+        }
+        Arrays.sort(tooClose, 0, count);
+        for (int k = 0; k < count; k++) {
+            final int pos = tooClose[k];
+            if (pos >= poolSize) {
+                continue; // already dropped from the tail of the pool
+            }
+            while (poolSize - 1 > pos && isTooClose(poolSize - 1)) {
+                dropLast();
+            }
+            final int last = poolSize - 1;
+            poolIndex[index(poolX[pos], poolY[pos])] = NOT_IN_POOL;
+            if (last != pos) {
+                poolX[pos] = poolX[last];
+                poolY[pos] = poolY[last];
+                poolIndex[index(poolX[pos], poolY[pos])] = pos;
+            }
+            poolSize--;
+        }
+    }
+
+    private boolean isTooClose(final int pos) {
+        return dist[index(poolX[pos], poolY[pos])] < minRoomDist;
+    }
+
+    private void dropLast() {
+        poolSize--;
+        poolIndex[index(poolX[poolSize], poolY[poolSize])] = NOT_IN_POOL;
+    }
+
+    private void addToPool(final int x, final int y) {
+        if (poolSize == poolX.length) {
+            poolX = Arrays.copyOf(poolX, poolSize * 2);
+            poolY = Arrays.copyOf(poolY, poolSize * 2);
+        }
+        poolX[poolSize] = x;
+        poolY[poolSize] = y;
+        poolIndex[index(x, y)] = poolSize;
+        poolSize++;
+    }
+
+    private int index(final int x, final int y) {
+        return (y - gridY) * gridW + x - gridX;
+    }
+
+    /**
+     * Grows the grids, doubling them in every direction that does not cover the given rectangle.
+     */
+    private void ensureCovered(final int x0, final int y0, final int x1, final int y1) {
+        if (x0 >= gridX && y0 >= gridY && x1 < gridX + gridW && y1 < gridY + gridH) {
+            return;
+        }
+        final int newX = x0 < gridX ? Math.min(x0, gridX - gridW) : gridX;
+        final int newY = y0 < gridY ? Math.min(y0, gridY - gridH) : gridY;
+        final int newRight = x1 >= gridX + gridW ? Math.max(x1 + 1, gridX + 2 * gridW) : gridX + gridW;
+        final int newBottom = y1 >= gridY + gridH ? Math.max(y1 + 1, gridY + 2 * gridH) : gridY + gridH;
+        final int[] oldDist = dist;
+        final int[] oldPoolIndex = poolIndex;
+        final int oldX = gridX;
+        final int oldY = gridY;
+        final int oldW = gridW;
+        final int oldH = gridH;
+        allocateGrid(newX, newY, newRight - newX, newBottom - newY);
+        for (int row = 0; row < oldH; row++) {
+            final int from = row * oldW;
+            final int to = index(oldX, oldY + row);
+            System.arraycopy(oldDist, from, dist, to, oldW);
+            System.arraycopy(oldPoolIndex, from, poolIndex, to, oldW);
+        }
+    }
+
+    private void allocateGrid(final int x, final int y, final int w, final int h) {
+        gridX = x;
+        gridY = y;
+        gridW = w;
+        gridH = h;
+        dist = new int[w * h];
+        poolIndex = new int[w * h];
+        Arrays.fill(dist, maxRoomDist + 1);
+        Arrays.fill(poolIndex, NOT_IN_POOL);
+    }
+}
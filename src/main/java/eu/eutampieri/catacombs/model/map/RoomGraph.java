@@ -0,0 +1,105 @@
+package eu.eutampieri.catacombs.model.map;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rooms of a generated map and the corridors linking them.
+ * Rooms are linked when a corridor starts in one and ends in the other one; the corridors dug to connect
+ * the rooms form a spanning tree, so every room can be reached from any other.
+ */
+public final class RoomGraph {
+    private static final int NO_ROOM = -1;
+
+    private final int width;
+    private final int height;
+    private final List<Room> rooms;
+    private final List<Corridor> corridors;
+    private final int[][] adjacency;
+    /**
+     * Index of the room of each tile, encoded as y * width + x, NO_ROOM outside of the rooms.
+     */
+    private final int[] roomOf;
+
+    /**
+     * @param width     width of the map in tiles
+     * @param height    height of the map in tiles
+     * @param rooms     the rooms, each one at the position of its index
+     * @param corridors the corridors
+     * @param roomOf    index of the room of each tile, -1 outside of the rooms
+     */
+    RoomGraph(final int width, final int height, final List<Room> rooms, final List<Corridor> corridors,
+            final int[] roomOf) {
+        this.width = width;
+        this.height = height;
+        this.rooms = Collections.unmodifiableList(rooms);
+        this.corridors = Collections.unmodifiableList(corridors);
+        this.roomOf = roomOf;
+        final int[] degree = new int[rooms.size()];
+        for (final Corridor c : corridors) {
+            if (isLink(c)) {
+                degree[c.getFrom()]++;
+                degree[c.getTo()]++;
+            }
+        }
+        this.adjacency = new int[rooms.size()][];
+        for (int i = 0; i < rooms.size(); i++) {
+            adjacency[i] = new int[degree[i]];
+        }
+        Arrays.fill(degree, 0);
+        for (final Corridor c : corridors) {
+            if (isLink(c)) {
+                adjacency[c.getFrom()][degree[c.getFrom()]++] = c.getTo();
+                adjacency[c.getTo()][degree[c.getTo()]++] = c.getFrom();
+            }
+        }
+    }
+
+    private static boolean isLink(final Corridor c) {
+        return c.getTo() != NO_ROOM && c.getTo() != c.getFrom();
+    }
+
+    /**
+     * @return the rooms, each one at the position of its index.
+     */
+    public List<Room> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * @return the corridors, the first rooms - 1 of which connect the rooms in a tree.
+     */
+    public List<Corridor> getCorridors() {
+        return corridors;
+    }
+
+    /**
+     * @param room index of a room
+     * @return the indexes of the rooms linked to room by a corridor, possibly repeated
+     */
+    public int[] adjacentRooms(final int room) {
+        return adjacency[room].clone();
+    }
+
+    /**
+     * @param room index of a room
+     * @return the number of corridors linking room to another room
+     */
+    public int degree(final int room) {
+        return adjacency[room].length;
+    }
+
+    /**
+     * @param x column
+     * @param y row
+     * @return the index of the room the tile at column x and row y belongs to, -1 if it's not in a room.
+     *         Where rooms overlap, the tile belongs to the last generated one.
+     */
+    public int roomIndexAt(final int x, final int y) {
+        if (y < 0 || x < 0 || y >= height || x >= width) {
+            return NO_ROOM;
+        }
+        return roomOf[y * width + x];
+    }
+}
@@ -21,10 +21,43 @@ public interface TileMap {
      */
     Tile at(int x, int y);
 
+    /**
+     * @param x column.
+     * @param y row.
+     * @return if the Tile at column x and row y can be walked on.
+     */
+    default boolean isWalkable(int x, int y) {
+        return at(x, y).isWalkable();
+    }
+
     /**
      * @param x column.
      * @param y row.
      * @return if the Tile at column x and row y is a tile an entity can spawn on.
      */
     boolean canSpawnAt(int x, int y);
+
+    /**
+     * Hints that the area around column x and row y is going to be accessed soon.
+     * Maps which are generated lazily can prepare that area and free the farther ones.
+     * @param x column.
+     * @param y row.
+     */
+    default void focusOn(int x, int y) {
+    }
+
+    /**
+     * @return how far, in tiles on each axis, from the point the map was last focused on its tiles are ready, or 0
+     *         if the whole map always is.
+     */
+    default int focusRange() {
+        return 0;
+    }
+
+    /**
+     * @return how the tiles of the map relate to the world units positions of game objects are measured in.
+     */
+    default WorldGeometry geometry() {
+        return WorldGeometry.DEFAULT;
+    }
 }
@@ -0,0 +1,259 @@
+package eu.eutampieri.catacombs.model.map;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary format for generated maps.
+ * A map is stored as a header, with the seed, the version of the generator and the parameters it was generated
+ * with, followed by its tiles either bit-packed (2 bits per tile) or run-length encoded, whichever is smaller.
+ */
+public final class TileMapCodec {
+    private static final int MAGIC = 0x43_54_4D_50; // "CTMP"
+    private static final byte VERSION = 3;
+    /**
+     * Maps of this version don't store the version of the generator.
+     */
+    private static final byte UNVERSIONED_GENERATOR_VERSION = 2;
+    /**
+     * Maps of this version don't store the version of the generator nor the width of their corridors, which were
+     * all one tile wide.
+     */
+    private static final byte NARROW_CORRIDORS_VERSION = 1;
+    /**
+     * The version of the generator of the maps which don't store it.
+     */
+    public static final int UNKNOWN_GENERATOR_VERSION = 0;
+    private static final byte PACKED = 0;
+    private static final byte RUN_LENGTH = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + 2 * Byte.BYTES + Long.BYTES + 10 * Integer.BYTES;
+    private static final int INITIAL_RUNS_CAPACITY = 256;
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final int ENCODING_OFFSET = Integer.BYTES + Byte.BYTES;
+    private static final int TILE_BITS = 2;
+    private static final int TILE_MASK = 3;
+    private static final int TILES_PER_BYTE = 4;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = 0x7F;
+    private static final int VARINT_MORE = 0x80;
+
+    private TileMapCodec() {
+    }
+
+    /**
+     * The header of a stored map.
+     */
+    public static final class Header {
+        private final long seed;
+        private final int generatorVersion;
+        private final GenerationParameters parameters;
+        private final int width;
+        private final int height;
+
+        private Header(final long seed, final int generatorVersion, final GenerationParameters parameters,
+                final int width, final int height) {
+            this.seed = seed;
+            this.generatorVersion = generatorVersion;
+            this.parameters = parameters;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * @return the seed the map was generated with.
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * @return the TileMapFactoryImpl.GENERATOR_VERSION the map was generated by, or UNKNOWN_GENERATOR_VERSION
+         *         if the map was stored before it was recorded.
+         */
+        public int getGeneratorVersion() {
+            return generatorVersion;
+        }
+
+        /**
+         * @return the parameters the map was generated with.
+         */
+        public GenerationParameters getParameters() {
+            return parameters;
+        }
+
+        /**
+         * @return the width of the map in tiles.
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * @return the height of the map in tiles.
+         */
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    /**
+     * @param seed       the seed the map was generated with by the current TileMapFactoryImpl
+     * @param parameters the parameters the map was generated with
+     * @param map        the map to encode
+     * @return a buffer, ready to be read, holding the encoded map
+     */
+    public static ByteBuffer encode(final long seed, final GenerationParameters parameters, final TileMap map) {
+        final ByteBuffer packed = PackedTileMap.of(map).packedTiles();
+        final ByteBuffer runs = runLength(map);
+        final boolean useRuns = runs.remaining() < packed.remaining();
+        final ByteBuffer payload = useRuns ? runs : packed;
+        final ByteBuffer res = ByteBuffer.allocate(HEADER_SIZE + payload.remaining());
+        res.putInt(MAGIC).put(VERSION).put(useRuns ? RUN_LENGTH : PACKED).putLong(seed)
+                .putInt(TileMapFactoryImpl.GENERATOR_VERSION);
+        res.putInt(parameters.getRooms()).putInt(parameters.getMinRoomSide()).putInt(parameters.getMaxRoomSide())
+                .putInt(parameters.getMinRoomDist()).putInt(parameters.getMaxRoomDist())
+                .putInt(parameters.getCorridorWidth());
+        res.putInt(map.width()).putInt(map.height()).putInt(payload.remaining()).put(payload);
+        return res.flip();
+    }
+
+    /**
+     * Reads the header of an encoded map, leaving the buffer position unchanged.
+     * @param buffer a buffer holding an encoded map from its position
+     * @return the header of the map
+     */
+    public static Header readHeader(final ByteBuffer buffer) {
+        final ByteBuffer in = buffer.duplicate();
+        if (in.remaining() < headerSize(NARROW_CORRIDORS_VERSION) || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an encoded map");
+        }
+        final byte version = in.get();
+        if (version != VERSION && version != UNVERSIONED_GENERATOR_VERSION && version != NARROW_CORRIDORS_VERSION
+                || in.remaining() < headerSize(version) - Integer.BYTES - Byte.BYTES) {
+            throw new IllegalArgumentException("Not an encoded map");
+        }
+        in.get();
+        final long seed = in.getLong();
+        final int generatorVersion = version == VERSION ? in.getInt() : UNKNOWN_GENERATOR_VERSION;
+        // Check:OFF: MagicNumber
+        final GenerationParameters parameters = new GenerationParameters(in.getInt(), in.getInt(), in.getInt(),
+                in.getInt(), in.getInt(),
+                version == NARROW_CORRIDORS_VERSION ? GenerationParameters.DEFAULT_CORRIDOR_WIDTH : in.getInt());
+        // Check:ON: MagicNumber
+        final int width = in.getInt();
+        final int height = in.getInt();
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Corrupted map");
+        }
+        return new Header(seed, generatorVersion, parameters, width, height);
+    }
+
+    /**
+     * @param buffer a buffer holding an encoded map from its position
+     * @return the decoded map
+     */
+    public static PackedTileMap decode(final ByteBuffer buffer) {
+        final Header header = readHeader(buffer);
+        final ByteBuffer in = buffer.duplicate();
+        final byte encoding = in.get(in.position() + ENCODING_OFFSET);
+        in.position(in.position() + headerSize(in.get(in.position() + Integer.BYTES)) - Integer.BYTES);
+        final int length = in.getInt();
+        if (length < 0 || in.remaining() < length) {
+            throw new IllegalArgumentException("Truncated map");
+        }
+        final int size = PackedTileMap.packedLength(header.getWidth(), header.getHeight());
+        if (encoding == PACKED && length == size) {
+            // the map reads its tiles from the buffer, which a memory-mapped file doesn't even load up front
+            return PackedTileMap.wrap(header.getWidth(), header.getHeight(), in.limit(in.position() + length));
+        } else if (encoding == RUN_LENGTH) {
+            final byte[] tiles = new byte[size];
+            decodeRuns(in.slice().limit(length), tiles, header.getWidth() * header.getHeight());
+            return PackedTileMap.wrap(header.getWidth(), header.getHeight(), tiles);
+        }
+        throw new IllegalArgumentException("Unknown tile encoding");
+    }
+
+    /**
+     * @return the size in bytes of the header of the given version, the length of the tiles included
+     */
+    private static int headerSize(final byte version) {
+        if (version == NARROW_CORRIDORS_VERSION) {
+            return HEADER_SIZE - 2 * Integer.BYTES;
+        }
+        return version == UNVERSIONED_GENERATOR_VERSION ? HEADER_SIZE - Integer.BYTES : HEADER_SIZE;
+    }
+
+    /**
+     * Encodes the tiles as a sequence of varints, each holding the length of a run shifted left by two bits
+     * and the ordinal of the tile of the run in the two lowest bits.
+     * @return a buffer, ready to be read, holding the runs
+     */
+    private static ByteBuffer runLength(final TileMap map) {
+        ByteBuffer out = ByteBuffer.allocate(INITIAL_RUNS_CAPACITY);
+        Tile current = map.at(0, 0);
+        int run = 0;
+        for (int y = 0; y < map.height(); y++) {
+            for (int x = 0; x < map.width(); x++) {
+                final Tile tile = map.at(x, y);
+                if (tile != current) {
+                    out = ensureRemaining(out, MAX_VARINT_BYTES);
+                    putVarInt(out, run << TILE_BITS | current.ordinal());
+                    current = tile;
+                    run = 0;
+                }
+                run++;
+            }
+        }
+        out = ensureRemaining(out, MAX_VARINT_BYTES);
+        putVarInt(out, run << TILE_BITS | current.ordinal());
+        return out.flip();
+    }
+
+    /**
+     * @return out, or a copy of it twice as large if it has less than n bytes left
+     */
+    private static ByteBuffer ensureRemaining(final ByteBuffer out, final int n) {
+        if (out.remaining() >= n) {
+            return out;
+        }
+        return ByteBuffer.allocate(Math.max(2 * out.capacity(), out.position() + n)).put(out.flip());
+    }
+
+    private static void decodeRuns(final ByteBuffer in, final byte[] tiles, final int nTiles) {
+        int i = 0;
+        while (in.hasRemaining()) {
+            final int run = getVarInt(in);
+            final int tile = run & TILE_MASK;
+            if (run >>> TILE_BITS > nTiles - i) {
+                throw new IllegalArgumentException("Corrupted map");
+            }
+            final int end = i + (run >>> TILE_BITS);
+            for (; i < end; i++) {
+                tiles[i / TILES_PER_BYTE] |= tile << (i % TILES_PER_BYTE * TILE_BITS);
+            }
+        }
+        if (i != nTiles) {
+            throw new IllegalArgumentException("Corrupted map");
+        }
+    }
+
+    private static void putVarInt(final ByteBuffer out, final int value) {
+        int v = value;
+        while ((v & ~VARINT_MASK) != 0) {
+            out.put((byte) (v & VARINT_MASK | VARINT_MORE));
+            v >>>= VARINT_BITS;
+        }
+        out.put((byte) v);
+    }
+
+    private static int getVarInt(final ByteBuffer in) {
+        int res = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += VARINT_BITS) {
+            final int b = in.get();
+            res |= (b & VARINT_MASK) << shift;
+            if ((b & VARINT_MORE) == 0) {
+                return res;
+            }
+        }
+        throw new IllegalArgumentException("Corrupted map");
+    }
+}
@@ -1,5 +1,8 @@
 package eu.eutampieri.catacombs.model.map;
 
+import java.util.List;
+import java.util.stream.LongStream;
+
 /**
  * A factory for TileMap.
  */
@@ -16,6 +19,42 @@ public interface TileMapFactory {
      */
     TileMap seededDef(long seed);
 
+    /**
+     * @param params parameters of the generation.
+     * @return a TileMap made of rooms connected by corridors, created with the given parameters and a
+     *         non deterministic seed.
+     */
+    TileMap normal(GenerationParameters params);
+
+    /**
+     * @param seed   seed for the rng.
+     * @param params parameters of the generation.
+     * @return a TileMap made of rooms connected by corridors, created with the given parameters and seed.
+     */
+    TileMap seeded(long seed, GenerationParameters params);
+
+    /**
+     * @param seed   seed for the rng.
+     * @param params parameters of the generation.
+     * @return the same map seeded creates, together with its rooms and the corridors linking them.
+     */
+    Dungeon dungeon(long seed, GenerationParameters params);
+
+    /**
+     * Generates many maps in parallel.
+     * @param seeds seeds for the rng, one for each map.
+     * @return for each seed, in the same order, the TileMap seededDef would create.
+     */
+    List<TileMap> generateAll(LongStream seeds);
+
+    /**
+     * @param seed       seed for the rng.
+     * @param chunksWide width of the TileMap in chunks.
+     * @param chunksHigh height of the TileMap in chunks.
+     * @return a TileMap which is generated chunk by chunk, as it gets explored.
+     */
+    TileMap chunked(long seed, int chunksWide, int chunksHigh);
+
     /**
      * @param h height of the TileMap in tiles.
      * @param w Width of the TileMap in tiles.
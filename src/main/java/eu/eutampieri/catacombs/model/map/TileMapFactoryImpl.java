@@ -1,228 +1,255 @@
 package eu.eutampieri.catacombs.model.map;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.LongStream;
 
 /**
  * A TileMapFactory.
+ * Every generation uses its own prng, so a factory can be shared between threads.
  */
 public final class TileMapFactoryImpl implements TileMapFactory {
-    private static final int NORMAL_N_ROOMS = 16;
-    private static final int NORMAL_MIN_ROOM_SIDE = 8;
-    private static final int NORMAL_MAX_ROOM_SIDE = 16;
-    private static final int NORMAL_MIN_ROOM_DIST = 32;
-    private static final int NORMAL_MAX_ROOM_DIST = 42;
-
     /**
-     * prng used to generate maps.
+     * The version of the generator, to be increased whenever the maps it generates for some seed and parameters
+     * change, so that stored maps generated by older versions aren't taken for the ones it generates.
      */
-    private final transient Random rand = new Random();
-
+    public static final int GENERATOR_VERSION = 1;
     /**
-     * A useful helper class for map generation.
+     * whether to build PackedTileMaps instead of TileMapImpls.
      */
-    private class Point {
-        private final int x;
-        private final int y;
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + getEnclosingInstance().hashCode();
-            result = prime * result + x;
-            result = prime * result + y;
-            return result;
-        }
-
-        @Override
-        public boolean equals(final Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-            final Point point = (Point) o;
-            return x == point.x && y == point.y;
-        }
+    private final boolean packed;
 
-        Point(final int x, final int y) {
-            this.x = x;
-            this.y = y;
-        }
-
-        public int getX() {
-            return x;
-        }
+    /**
+     * Creates a factory of TileMapImpl.
+     */
+    public TileMapFactoryImpl() {
+        this(false);
+    }
 
-        public int getY() {
-            return y;
-        }
+    /**
+     * @param packed whether the factory should build PackedTileMaps instead of
+     *               TileMapImpls
+     */
+    public TileMapFactoryImpl(final boolean packed) {
+        this.packed = packed;
+    }
 
-        public int dist(final Point o) {
-            return Math.abs(x - o.x) + Math.abs(y - o.y);
-        }
+    /**
+     * @param res the tiles of the map
+     * @return a TileMap of the kind this factory builds
+     */
+    private TileMap build(final PackedTileMap.Builder res) {
+        return packed ? res.build() : new TileMapImpl(res.toArray());
+    }
 
-        private TileMapFactoryImpl getEnclosingInstance() {
-            return TileMapFactoryImpl.this;
-        }
+    /**
+     * @param rand prng used to generate the map
+     * @param a    a point to connect
+     * @param b    the other point to connect
+     * @param res  the map in which to connect them with a corridor one tile wide
+     */
+    static void makeCorridor(final Random rand, final Point a, final Point b, final PackedTileMap.Builder res) {
+        makeCorridor(rand, a, b, GenerationParameters.DEFAULT_CORRIDOR_WIDTH, res, null);
     }
 
     /**
-     * @param a   a point to connect
-     * @param b   the other point to connect
-     * @param res the map in which to connect them
+     * @param rand  prng used to generate the map
+     * @param a     a point to connect
+     * @param b     the other point to connect
+     * @param width width in tiles of the corridor, which goes right and down from the tiles between a and b
+     * @param res   the map in which to connect them
+     * @param path  where to store the a.dist(b) tiles the corridor follows, from the one next to a to b, encoded
+     *              as y * res.width() + x, or null not to store them
      */
-    private void makeCorridor(final Point a, final Point b, final Tile[][] res) {
-        int y = a.y;
-        int x = a.x;
-        while (y != b.y && x != b.x) {
+    private static void makeCorridor(final Random rand, final Point a, final Point b, final int width,
+            final PackedTileMap.Builder res, final int[] path) {
+        int length = 0;
+        int y = a.getY();
+        int x = a.getX();
+        while (y != b.getY() && x != b.getX()) {
             if (rand.nextBoolean()) {
-                if (y < b.y) {
+                if (y < b.getY()) {
                     y++;
                 } else {
                     y--;
                 }
             } else {
-                if (x < b.x) {
+                if (x < b.getX()) {
                     x++;
                 } else {
                     x--;
                 }
             }
-            res[y][x] = Tile.FLOOR;
+            dig(x, y, width, res);
+            if (path != null) {
+                path[length++] = y * res.width() + x;
+            }
         }
-        while (y != b.y) {
-            if (y < b.y) {
+        while (y != b.getY()) {
+            if (y < b.getY()) {
                 y++;
             } else {
                 y--;
             }
-            res[y][x] = Tile.FLOOR;
+            dig(x, y, width, res);
+            if (path != null) {
+                path[length++] = y * res.width() + x;
+            }
         }
-        while (x != b.x) {
-            if (x < b.x) {
+        while (x != b.getX()) {
+            if (x < b.getX()) {
                 x++;
             } else {
                 x--;
             }
-            res[y][x] = Tile.FLOOR;
+            dig(x, y, width, res);
+            if (path != null) {
+                path[length++] = y * res.width() + x;
+            }
         }
     }
 
     /**
-     * @param nRooms      number of rooms to generate
-     * @param maxRoomSide maximum side length of a room
-     * @param minRoomDist minimum distance between two rooms' centers
-     * @param maxRoomDist maximum distance with the closest room's center for each
-     *                    room center
-     * @return A List with nRooms points for room centers according to the
-     *         parameters
+     * Digs the square of width tiles whose top left tile is at column x and row y, which is always dug, leaving
+     * the edges of the map as they are for the other tiles.
      */
-    private List<Point> decideRoomCenters(final int nRooms, final int maxRoomSide, final int minRoomDist,
-            final int maxRoomDist) {
-        final List<Point> pool = new ArrayList<>(); // pool of all points at acceptable distances from the already
-                                                    // selected
-        // rooms
-        final var centers = new ArrayList<Point>(); // selected rooms' centers
-        final var dist = new HashMap<Point, Integer>(); // distance to closest selected center for all points
-        pool.add(new Point(0, 0)); // starting point does not matter to the final structure
-        dist.put(pool.get(0), 0);
-        for (int room = 0; room < nRooms; room++) {
-            final Point p = pool.get(rand.nextInt(pool.size())); // get a random point from the pool
-            centers.add(p);
-            for (int dy = -maxRoomDist; dy <= maxRoomDist; dy++) { // recalculate distances of all points in range
-                for (int dx = Math.abs(dy) - maxRoomDist; dx <= maxRoomDist - Math.abs(dy); dx++) {
-                    final Point cp = new Point(p.x + dx, p.y + dy);
-                    final int formerDist = dist.getOrDefault(cp, maxRoomDist + 1);
-                    final int currentDist = cp.dist(p);
-                    if (currentDist < formerDist) {
-                        dist.put(cp, currentDist);
-                        if (formerDist > maxRoomDist) {
-                            pool.add(cp); // add points that were too far before
-                        }
-                    }
+    private static void dig(final int x, final int y, final int width, final PackedTileMap.Builder res) {
+        res.set(x, y, Tile.FLOOR);
+        for (int ty = y; ty < y + width; ty++) {
+            for (int tx = x; tx < x + width; tx++) {
+                if (tx > 0 && ty > 0 && tx < res.width() - 1 && ty < res.height() - 1) {
+                    res.set(tx, ty, Tile.FLOOR);
                 }
             }
-            for (int i = 0; i < pool.size(); i++) {
-                if (dist.get(pool.get(i)) < minRoomDist) { // remove points that are now too close
-                    pool.set(i, pool.get(pool.size() - 1));
-                    pool.remove(pool.size() - 1);
-                    i--;
-                }
-            }
-        }
-        // get map boundaries to shift coordinates and calculate map size
-        final int minY = centers.stream().map(p -> p.y).min((a, b) -> a.compareTo(b)).get();
-        final int minX = centers.stream().map(p -> p.x).min((a, b) -> a.compareTo(b)).get();
-        final int dx = 2 + (maxRoomSide + 1) / 2 - minX;
-        final int dy = 2 + (maxRoomSide + 1) / 2 - minY;
-        for (int i = 0; i < centers.size(); i++) {
-            final var p = centers.get(i);
-            centers.set(i, new Point(p.x + dx, p.y + dy));
         }
-        return centers;
     }
 
     /**
+     * @param rand        prng used to generate the map
      * @param nRooms      number of rooms to generate
-     * @param minRoomSide minimum side length of a room
      * @param maxRoomSide maximum side length of a room
      * @param minRoomDist minimum distance between two rooms' centers
      * @param maxRoomDist maximum distance with the closest room's center for each
      *                    room center
-     * @return A Tilemap with nRooms square rooms connected by corridors in a tree,
-     *         plus some random corridors minRoomDist &gt; maxRoomSide is recommended
+     * @return A List with nRooms points for room centers according to the
+     *         parameters
      */
-    private TileMap normal(final int nRooms, final int minRoomSide, final int maxRoomSide, final int minRoomDist,
-            final int maxRoomDist) {
-        if (nRooms <= 0 || minRoomSide <= 0 || maxRoomSide < minRoomSide || minRoomDist < 0
-                || maxRoomDist < minRoomDist) {
-            throw new IllegalArgumentException();
-        }
-        final List<Point> centers = decideRoomCenters(nRooms, maxRoomSide, minRoomDist, maxRoomDist);
-        final int minY = centers.stream().map(p -> p.y).min((a, b) -> a.compareTo(b)).get();
-        final int maxY = centers.stream().map(p -> p.y).max((a, b) -> a.compareTo(b)).get();
-        final int minX = centers.stream().map(p -> p.x).min((a, b) -> a.compareTo(b)).get();
-        final int maxX = centers.stream().map(p -> p.x).max((a, b) -> a.compareTo(b)).get();
+    private List<Point> decideRoomCenters(final Random rand, final int nRooms, final int maxRoomSide,
+            final int minRoomDist, final int maxRoomDist) {
+        return new RoomCenterPlacer(rand, minRoomDist, maxRoomDist).place(nRooms, maxRoomSide);
+    }
+
+    /**
+     * @param rand   prng used to generate the map
+     * @param params parameters of the generation
+     * @param rooms  where to collect the rooms and the corridors, or null if only the tiles are needed
+     * @return A TileMap with params.getRooms() square rooms connected by corridors in a tree,
+     *         plus some random corridors
+     */
+    private TileMap normal(final Random rand, final GenerationParameters params, final RoomCollector rooms) {
+        final int minRoomSide = params.getMinRoomSide();
+        final int maxRoomSide = params.getMaxRoomSide();
+        final int maxRoomDist = params.getMaxRoomDist();
+        final List<Point> centers = decideRoomCenters(rand, params.getRooms(), maxRoomSide,
+                params.getMinRoomDist(), maxRoomDist);
+        final int minY = centers.stream().map(p -> p.getY()).min((a, b) -> a.compareTo(b)).get();
+        final int maxY = centers.stream().map(p -> p.getY()).max((a, b) -> a.compareTo(b)).get();
+        final int minX = centers.stream().map(p -> p.getX()).min((a, b) -> a.compareTo(b)).get();
+        final int maxX = centers.stream().map(p -> p.getX()).max((a, b) -> a.compareTo(b)).get();
 
         final int w = maxX - minX + maxRoomSide + 4; // this way a room should not touch the edges
         final int h = maxY - minY + maxRoomSide + 4;
-        final var res = new Tile[h][w]; // new tile map initially filled with wall
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                res[y][x] = Tile.WALL;
-            }
+        final var res = new PackedTileMap.Builder(w, h).fill(Tile.WALL); // new tile map initially filled with wall
+        if (rooms != null) {
+            rooms.start(w, h, centers.size());
         }
         for (final Point p : centers) { // add the rooms with random sizes
             final int roomH = rand.nextInt(maxRoomSide - minRoomSide + 1) + minRoomSide;
             final int roomW = rand.nextInt(maxRoomSide - minRoomSide + 1) + minRoomSide;
-            for (int y = p.y - roomH / 2; y <= p.y + (roomH + 1) / 2; y++) {
-                for (int x = p.x - roomW / 2; x <= p.x + (roomW + 1) / 2; x++) {
-                    res[y][x] = Tile.FLOOR;
+            for (int y = p.getY() - roomH / 2; y <= p.getY() + (roomH + 1) / 2; y++) {
+                for (int x = p.getX() - roomW / 2; x <= p.getX() + (roomW + 1) / 2; x++) {
+                    res.set(x, y, Tile.FLOOR);
                 }
             }
+            if (rooms != null) {
+                rooms.addRoom(p, p.getX() - roomW / 2, p.getY() - roomH / 2, p.getX() + (roomW + 1) / 2,
+                        p.getY() + (roomH + 1) / 2);
+            }
         }
+        final NearestRoomGrid connected = new NearestRoomGrid(centers, Math.max(1, maxRoomDist));
+        connected.add(0);
         for (int i = 1; i < centers.size(); i++) {
             final var p = centers.get(i);
-            var p0 = centers.get(0);
-            for (int j = 1; j < i; j++) { // get closest room already connected to the tree
-                if (p.dist(centers.get(j)) < p.dist(p0)) {
-                    p0 = centers.get(j);
-                }
+            final int nearest = connected.nearest(i); // get closest room already connected to the tree
+            connected.add(i);
+            final var p0 = centers.get(nearest);
+            final int[] path = rooms == null ? null : new int[p0.dist(p)];
+            makeCorridor(rand, p0, p, params.getCorridorWidth(), res, path); // add the corridor to the tree
+            if (rooms != null) {
+                rooms.addCorridor(nearest, i, path, true);
             }
-            makeCorridor(p0, p, res); // add the corridor to the tree
             if (rand.nextInt(4) == 0) { // choose if to add a random corridor (dead end or cycle) to this room too
                 final var randomPoint = new Point(rand.nextInt(w - 2) + 1, rand.nextInt(h - 2) + 1);
                 if (p.dist(randomPoint) <= 2 * maxRoomDist) { // if the corridor would be too long, don't add it
-                    makeCorridor(p, randomPoint, res);
+                    final int[] extra = rooms == null ? null : new int[p.dist(randomPoint)];
+                    makeCorridor(rand, p, randomPoint, params.getCorridorWidth(), res, extra);
+                    if (rooms != null) {
+                        rooms.addCorridor(i, rooms.roomAt(randomPoint), extra, false);
+                    }
                 }
             }
         }
-        return new TileMapImpl(res);
+        return build(res);
+    }
+
+    /**
+     * Collects the rooms and the corridors of a map being generated, which only dungeons need.
+     */
+    private static final class RoomCollector {
+        private int width;
+        private int height;
+        private List<Room> rooms;
+        private List<Corridor> tree;
+        private final List<Corridor> extra = new ArrayList<>();
+        private int[] roomOf;
+
+        void start(final int w, final int h, final int count) {
+            this.width = w;
+            this.height = h;
+            this.rooms = new ArrayList<>(count);
+            this.tree = new ArrayList<>(count);
+            this.roomOf = new int[w * h];
+            Arrays.fill(this.roomOf, -1);
+        }
+
+        void addRoom(final Point center, final int minX, final int minY, final int maxX, final int maxY) {
+            final Room room = new Room(rooms.size(), center.getX(), center.getY(), minX, minY, maxX, maxY);
+            for (int y = minY; y <= maxY; y++) {
+                Arrays.fill(roomOf, y * width + minX, y * width + maxX + 1, room.getIndex());
+            }
+            rooms.add(room);
+        }
+
+        int roomAt(final Point p) {
+            return roomOf[p.getY() * width + p.getX()];
+        }
+
+        /**
+         * @param inTree whether the corridor links a room to the tree, or is one of the random ones which are
+         *               listed after those
+         */
+        void addCorridor(final int from, final int to, final int[] path, final boolean inTree) {
+            (inTree ? tree : extra).add(new Corridor(from, to, width, path));
+        }
+
+        RoomGraph graph() {
+            tree.addAll(extra);
+            return new RoomGraph(width, height, rooms, tree, roomOf);
+        }
     }
 
     /**
@@ -230,9 +257,82 @@ public final class TileMapFactoryImpl implements TileMapFactory {
      */
     @Override
     public TileMap seededDef(final long seed) {
-        rand.setSeed(seed);
-        return normal(NORMAL_N_ROOMS, NORMAL_MIN_ROOM_SIDE, NORMAL_MAX_ROOM_SIDE, NORMAL_MIN_ROOM_DIST,
-                NORMAL_MAX_ROOM_DIST); // and call the normal builder with default parameters
+        return seeded(seed, GenerationParameters.DEFAULT); // call the normal builder with default parameters
+    }
+
+    /**
+     * @return a TileMap with the given parameters using a given seed
+     */
+    @Override
+    public TileMap seeded(final long seed, final GenerationParameters params) {
+        return normal(new Random(seed), params, null);
+    }
+
+    /**
+     * @return a Dungeon with the given parameters using a given seed
+     */
+    @Override
+    public Dungeon dungeon(final long seed, final GenerationParameters params) {
+        final RoomCollector rooms = new RoomCollector();
+        final TileMap map = normal(new Random(seed), params, rooms);
+        return new Dungeon(map, rooms.graph());
+    }
+
+    /**
+     * @return a TileMap with the given parameters using a seed based on time
+     */
+    @Override
+    public TileMap normal(final GenerationParameters params) {
+        return seeded(System.currentTimeMillis(), params);
+    }
+
+    /**
+     * @return the maps generated with the default settings from each seed, in the same order, on the
+     *         common fork-join pool
+     */
+    @Override
+    public List<TileMap> generateAll(final LongStream seeds) {
+        return generateAll(seeds, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param seeds seeds of the maps to generate
+     * @param pool  the pool in which the maps are generated
+     * @return the maps generated with the default settings from each seed, in the same order
+     */
+    public List<TileMap> generateAll(final LongStream seeds, final ForkJoinPool pool) {
+        final long[] toGenerate = seeds.toArray();
+        final TileMap[] res = new TileMap[toGenerate.length];
+        pool.invoke(new BatchGeneration(toGenerate, res, 0, toGenerate.length));
+        return Arrays.asList(res);
+    }
+
+    /**
+     * Generates the maps of a range of seeds, splitting it in halves until a single map is left.
+     */
+    private final class BatchGeneration extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final long[] seeds;
+        private final TileMap[] res;
+        private final int from;
+        private final int to;
+
+        BatchGeneration(final long[] seeds, final TileMap[] res, final int from, final int to) {
+            this.seeds = seeds;
+            this.res = res;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                res[from] = seededDef(seeds[from]);
+            } else if (to - from > 1) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new BatchGeneration(seeds, res, from, mid), new BatchGeneration(seeds, res, mid, to));
+            }
+        }
     }
 
     /**
@@ -243,6 +343,14 @@ public final class TileMapFactoryImpl implements TileMapFactory {
         return seededDef(System.currentTimeMillis());
     }
 
+    /**
+     * @return a ChunkedTileMap, whose chunks are generated when they are first accessed
+     */
+    @Override
+    public TileMap chunked(final long seed, final int chunksWide, final int chunksHigh) {
+        return new ChunkedTileMap(seed, chunksWide, chunksHigh);
+    }
+
     /**
      * @return an hxw TileMap with walls on the borders and floor inside
      */
@@ -251,21 +359,21 @@ public final class TileMapFactoryImpl implements TileMapFactory {
         if (h < 1 || w < 1) {
             throw new IllegalArgumentException();
         }
-        final var res = new Tile[h][w];
+        final var res = new PackedTileMap.Builder(w, h);
         for (int y = 0; y < h; y++) {
-            res[y][0] = Tile.WALL;
-            res[y][w - 1] = Tile.WALL;
+            res.set(0, y, Tile.WALL);
+            res.set(w - 1, y, Tile.WALL);
         }
         for (int x = 0; x < w; x++) {
-            res[0][x] = Tile.WALL;
-            res[h - 1][x] = Tile.WALL;
+            res.set(x, 0, Tile.WALL);
+            res.set(x, h - 1, Tile.WALL);
         }
         for (int y = 1; y < h - 1; y++) {
             for (int x = 1; x < w - 1; x++) {
-                res[y][x] = Tile.FLOOR;
+                res.set(x, y, Tile.FLOOR);
             }
         }
-        return new TileMapImpl(res);
+        return build(res);
     }
 
 }
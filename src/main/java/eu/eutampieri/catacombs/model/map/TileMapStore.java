@@ -0,0 +1,184 @@
+package eu.eutampieri.catacombs.model.map;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Persists generated maps in a directory, one file per seed, so that a map is generated only once.
+ * Stored maps are loaded by memory-mapping their file, and the most recently used ones are kept in memory.
+ */
+public final class TileMapStore {
+    private static final String EXTENSION = ".map";
+    private static final int HEX_RADIX = 16;
+
+    private final Path directory;
+    private final Map<Long, Stored> cache;
+
+    /**
+     * A stored map and the header it was stored with.
+     */
+    private static final class Stored {
+        private final TileMapCodec.Header header;
+        private final TileMap map;
+
+        Stored(final TileMapCodec.Header header, final TileMap map) {
+            this.header = header;
+            this.map = map;
+        }
+    }
+
+    /**
+     * @param directory     the directory the maps are stored in, which is created if missing
+     * @param cacheCapacity the maximum number of maps kept in memory
+     * @throws IOException if the directory can't be created
+     */
+    public TileMapStore(final Path directory, final int cacheCapacity) throws IOException {
+        if (cacheCapacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.directory = Files.createDirectories(directory);
+        this.cache = new LinkedHashMap<>(cacheCapacity + 1, 1f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Stored> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    private Path pathOf(final long seed) {
+        return directory.resolve(String.format("%016x", seed) + EXTENSION);
+    }
+
+    /**
+     * @param seed the seed the map was generated with
+     * @return if a map generated with seed is stored
+     */
+    public boolean contains(final long seed) {
+        synchronized (cache) {
+            if (cache.containsKey(seed)) {
+                return true;
+            }
+        }
+        return Files.isRegularFile(pathOf(seed));
+    }
+
+    /**
+     * @return the seeds of the stored maps, in ascending order.
+     * @throws IOException if the directory can't be read
+     */
+    public Set<Long> seeds() throws IOException {
+        final Set<Long> res = new TreeSet<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(EXTENSION))
+                    .map(name -> name.substring(0, name.length() - EXTENSION.length()))
+                    .forEach(name -> {
+                        try {
+                            res.add(Long.parseUnsignedLong(name, HEX_RADIX));
+                        } catch (NumberFormatException e) {
+                            // Not a map saved by this store
+                        }
+                    });
+        }
+        return res;
+    }
+
+    /**
+     * @param seed the seed the map was generated with
+     * @return the stored map, if any
+     * @throws IOException if the map file can't be read
+     */
+    public Optional<TileMap> load(final long seed) throws IOException {
+        return loadStored(seed).map(stored -> stored.map);
+    }
+
+    private Optional<Stored> loadStored(final long seed) throws IOException {
+        synchronized (cache) {
+            final Stored cached = cache.get(seed);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        final Path path = pathOf(seed);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        final Stored stored;
+        // the mapping stays valid once the channel is closed, and the map reads its tiles from it
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final TileMapCodec.Header header = TileMapCodec.readHeader(buffer);
+            if (header.getSeed() != seed) {
+                throw new IOException("Map file " + path + " doesn't hold the map for its seed");
+            }
+            stored = new Stored(header, TileMapCodec.decode(buffer));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted map file " + path, e);
+        }
+        synchronized (cache) {
+            cache.put(seed, stored);
+        }
+        return Optional.of(stored);
+    }
+
+    /**
+     * Stores a map, replacing the one previously stored for the same seed.
+     * @param seed       the seed the map was generated with
+     * @param parameters the parameters the map was generated with
+     * @param map        the map to store
+     * @throws IOException if the map can't be written
+     */
+    public void save(final long seed, final GenerationParameters parameters, final TileMap map) throws IOException {
+        final ByteBuffer encoded = TileMapCodec.encode(seed, parameters, map);
+        final TileMapCodec.Header header = TileMapCodec.readHeader(encoded);
+        final Path path = pathOf(seed);
+        final Path tmp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (encoded.hasRemaining()) {
+                    channel.write(encoded);
+                }
+            }
+            // Readers never see a partially written map
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        synchronized (cache) {
+            cache.put(seed, new Stored(header, PackedTileMap.of(map)));
+        }
+    }
+
+    /**
+     * Loads the map generated with a seed, generating and storing it if it isn't stored yet.
+     * A stored map generated by another version of the generator, or with other parameters, is generated again.
+     * @param seed    the seed of the map
+     * @param factory the factory used to generate the map, with TileMapFactory.seededDef(seed)
+     * @return the map generated with seed
+     * @throws IOException if the map can't be read or written
+     */
+    public TileMap loadOrGenerate(final long seed, final TileMapFactory factory) throws IOException {
+        final Optional<Stored> stored = loadStored(seed);
+        if (stored.isPresent() && stored.get().header.getGeneratorVersion() == TileMapFactoryImpl.GENERATOR_VERSION
+                && stored.get().header.getParameters().equals(GenerationParameters.DEFAULT)) {
+            return stored.get().map;
+        }
+        final TileMap map = factory.seededDef(seed);
+        save(seed, GenerationParameters.DEFAULT, map);
+        return map;
+    }
+}
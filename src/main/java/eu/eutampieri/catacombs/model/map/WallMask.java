@@ -0,0 +1,102 @@
+package eu.eutampieri.catacombs.model.map;
+
+/**
+ * Which of the eight tiles around a tile can't be walked on, packed in the bits of a byte.
+ * It's what tiles are drawn from, so that walls get edges and corners where they meet floors.
+ */
+public final class WallMask {
+    /**
+     * The tile above.
+     */
+    public static final int NORTH = 1;
+    /**
+     * The tile above on the right.
+     */
+    public static final int NORTH_EAST = 1 << 1;
+    /**
+     * The tile on the right.
+     */
+    public static final int EAST = 1 << 2;
+    /**
+     * The tile below on the right.
+     */
+    public static final int SOUTH_EAST = 1 << 3;
+    /**
+     * The tile below.
+     */
+    public static final int SOUTH = 1 << 4;
+    /**
+     * The tile below on the left.
+     */
+    public static final int SOUTH_WEST = 1 << 5;
+    /**
+     * The tile on the left.
+     */
+    public static final int WEST = 1 << 6;
+    /**
+     * The tile above on the left.
+     */
+    public static final int NORTH_WEST = 1 << 7;
+
+    private static final int[] DX = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DY = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    private WallMask() {
+    }
+
+    /**
+     * @param map a map
+     * @param x   column
+     * @param y   row
+     * @return the mask of the tile at column x and row y
+     */
+    public static int of(final TileMap map, final int x, final int y) {
+        int mask = 0;
+        for (int i = 0; i < DX.length; i++) {
+            if (!map.isWalkable(x + DX[i], y + DY[i])) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Computes the masks of all the tiles of a map, reading each tile once.
+     * @param map a map
+     * @return the masks of the tiles of map, the one of column x and row y at index y * width + x
+     */
+    public static byte[] of(final TileMap map) {
+        final int width = map.width();
+        final int height = map.height();
+        final byte[] masks = new byte[width * height];
+        // which tiles of the rows above, at and below the current one are blocked, from column -1 to width
+        boolean[] above = blockedRow(map, -1, width);
+        boolean[] row = blockedRow(map, 0, width);
+        for (int y = 0; y < height; y++) {
+            final boolean[] below = blockedRow(map, y + 1, width);
+            for (int x = 0; x < width; x++) {
+                int mask = 0;
+                mask |= above[x + 1] ? NORTH : 0;
+                mask |= above[x + 2] ? NORTH_EAST : 0;
+                mask |= row[x + 2] ? EAST : 0;
+                mask |= below[x + 2] ? SOUTH_EAST : 0;
+                mask |= below[x + 1] ? SOUTH : 0;
+                mask |= below[x] ? SOUTH_WEST : 0;
+                mask |= row[x] ? WEST : 0;
+                mask |= above[x] ? NORTH_WEST : 0;
+                masks[y * width + x] = (byte) mask;
+            }
+            above = row;
+            row = below;
+        }
+        return masks;
+    }
+
+    private static boolean[] blockedRow(final TileMap map, final int y, final int width) {
+        final boolean[] blocked = new boolean[width + 2];
+        for (int x = -1; x <= width; x++) {
+            blocked[x + 1] = !map.isWalkable(x, y);
+        }
+        return blocked;
+    }
+}
@@ -0,0 +1,164 @@
+package eu.eutampieri.catacombs.model.map;
+
+/**
+ * How tiles map to world units, the units positions and sizes of game objects are measured in.
+ * It only concerns the model: how many pixels a world unit takes on screen is up to the renderer.
+ * When the tile size is a power of two, conversions are done with shifts and masks.
+ * A map is measured with {@link #DEFAULT} unless it's wrapped with {@link #on(TileMap)}.
+ */
+public final class WorldGeometry {
+    /**
+     * Side in world units of the tiles of DEFAULT.
+     * This is the one setting the size of tiles comes from: the renderer scales the sprites of tiles to it.
+     */
+    public static final int DEFAULT_TILE_SIZE = 36;
+    /**
+     * The geometry used by default.
+     */
+    public static final WorldGeometry DEFAULT = new WorldGeometry(DEFAULT_TILE_SIZE);
+
+    private final int tileSize;
+    /**
+     * log2(tileSize) if tileSize is a power of two, -1 otherwise.
+     */
+    private final int shift;
+    private final int mask;
+
+    /**
+     * @param tileSize side of a tile in world units
+     */
+    public WorldGeometry(final int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.tileSize = tileSize;
+        final boolean powerOfTwo = (tileSize & (tileSize - 1)) == 0;
+        this.shift = powerOfTwo ? Integer.numberOfTrailingZeros(tileSize) : -1;
+        this.mask = tileSize - 1;
+    }
+
+    /**
+     * @return the side of a tile in world units.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @return if the side of a tile is a power of two.
+     */
+    public boolean isPowerOfTwo() {
+        return shift >= 0;
+    }
+
+    /**
+     * @param coordinate a coordinate in world units
+     * @return the column or row of the tile the coordinate falls in
+     */
+    public int toTile(final int coordinate) {
+        return shift >= 0 ? coordinate >> shift : Math.floorDiv(coordinate, tileSize);
+    }
+
+    /**
+     * @param tile a column or row
+     * @return the coordinate in world units of the first unit of the tile
+     */
+    public int toWorld(final int tile) {
+        return shift >= 0 ? tile << shift : tile * tileSize;
+    }
+
+    /**
+     * @param coordinate a coordinate in world units
+     * @return the offset of the coordinate inside its tile
+     */
+    public int offsetInTile(final int coordinate) {
+        return shift >= 0 ? coordinate & mask : Math.floorMod(coordinate, tileSize);
+    }
+
+    /**
+     * @param tiles a number of tiles
+     * @return the length in world units of that many tiles
+     */
+    public int length(final int tiles) {
+        return toWorld(tiles);
+    }
+
+    /**
+     * @param map a map
+     * @return a view of map measured with this geometry, or map itself if it already is.
+     */
+    public TileMap on(final TileMap map) {
+        if (this.equals(map.geometry())) {
+            return map;
+        }
+        return new GeometryTileMap(map instanceof GeometryTileMap ? ((GeometryTileMap) map).map : map, this);
+    }
+
+    /**
+     * A TileMap whose tiles are measured with a different geometry.
+     */
+    private static final class GeometryTileMap implements TileMap {
+        private final TileMap map;
+        private final WorldGeometry geometry;
+
+        GeometryTileMap(final TileMap map, final WorldGeometry geometry) {
+            this.map = map;
+            this.geometry = geometry;
+        }
+
+        @Override
+        public int height() {
+            return map.height();
+        }
+
+        @Override
+        public int width() {
+            return map.width();
+        }
+
+        @Override
+        public Tile at(final int x, final int y) {
+            return map.at(x, y);
+        }
+
+        @Override
+        public boolean isWalkable(final int x, final int y) {
+            return map.isWalkable(x, y);
+        }
+
+        @Override
+        public boolean canSpawnAt(final int x, final int y) {
+            return map.canSpawnAt(x, y);
+        }
+
+        @Override
+        public void focusOn(final int x, final int y) {
+            map.focusOn(x, y);
+        }
+
+        @Override
+        public int focusRange() {
+            return map.focusRange();
+        }
+
+        @Override
+        public WorldGeometry geometry() {
+            return geometry;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return tileSize;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof WorldGeometry && ((WorldGeometry) o).tileSize == tileSize;
+    }
+
+    @Override
+    public String toString() {
+        return "WorldGeometry [tileSize=" + tileSize + "]";
+    }
+}
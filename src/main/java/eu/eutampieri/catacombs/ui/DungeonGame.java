@@ -46,6 +46,9 @@ public final class DungeonGame extends Game {
      */
 
     public void setState(final State state) {
+        if (this.state != null && this.state != state) {
+            this.state.leave();
+        }
         this.state = state;
     }
 
@@ -57,6 +60,15 @@ public final class DungeonGame extends Game {
         setState(this.menuState);
     }
 
+    /**
+     * This method leaves the current state, as the game has ended.
+     */
+
+    @Override
+    public void end() {
+        this.state.leave();
+    }
+
     /**
      * This method update the current state.
      *
@@ -77,6 +89,17 @@ public final class DungeonGame extends Game {
         this.state.render(this.getGraphics());
     }
 
+    /**
+     * This method takes what the next frame of the current state shows.
+     *
+     * @return what the next frame shows
+     */
+
+    @Override
+    public RenderSnapshot snapshot() {
+        return this.state.snapshot();
+    }
+
     /**
      * This method start the transition state from the menu to the game it self.
      */
@@ -0,0 +1,86 @@
+package eu.eutampieri.catacombs.ui;
+
+/**
+ * Turns the time measured between frames into a number of updates of fixed length, so that the game runs at the
+ * same speed and in the same way whatever the frame rate is.
+ * The time left over, less than an update, tells how far the game is between the last update and the next one.
+ */
+public final class FixedTimestep {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long MILLIS_PER_SECOND = 1_000L;
+
+    private final int ticksPerSecond;
+    private final int maxCatchUpTicks;
+    private final long tickNanos;
+    /**
+     * Time measured and not simulated yet, in nanoseconds.
+     */
+    private long accumulator;
+    /**
+     * Number of ticks simulated so far.
+     */
+    private long ticks;
+
+    /**
+     * @param ticksPerSecond  the number of updates in a second
+     * @param maxCatchUpTicks the maximum number of updates in a frame; the time they can't cover is dropped, so
+     *                        that after a hitch the game slows down instead of running many updates in a row
+     */
+    public FixedTimestep(final int ticksPerSecond, final int maxCatchUpTicks) {
+        if (ticksPerSecond < 1 || maxCatchUpTicks < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.ticksPerSecond = ticksPerSecond;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+        this.tickNanos = NANOS_PER_SECOND / ticksPerSecond;
+    }
+
+    /**
+     * Adds the time elapsed since the last frame.
+     * @param elapsedNanos nanoseconds elapsed since the last call
+     * @return the number of updates to run in this frame, each of which has to call nextDelta
+     */
+    public int advance(final long elapsedNanos) {
+        accumulator += Math.max(0, elapsedNanos);
+        final long due = accumulator / tickNanos;
+        if (due > maxCatchUpTicks) {
+            accumulator %= tickNanos;
+            return maxCatchUpTicks;
+        }
+        accumulator -= due * tickNanos;
+        return (int) due;
+    }
+
+    /**
+     * Counts an update.
+     * @return the milliseconds the update simulates; they aren't always the same, so that they add up to a second
+     *         every ticksPerSecond updates
+     */
+    public long nextDelta() {
+        final long delta = (ticks % ticksPerSecond + 1) * MILLIS_PER_SECOND / ticksPerSecond
+                - ticks % ticksPerSecond * MILLIS_PER_SECOND / ticksPerSecond;
+        ticks++;
+        return delta;
+    }
+
+    /**
+     * @return how far the game is between the last update and the next one, from 0 to 1.
+     */
+    public float getInterpolation() {
+        return (float) accumulator / tickNanos;
+    }
+
+    /**
+     * @return the length of an update in nanoseconds.
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * @return the number of updates counted so far.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+}
@@ -8,9 +8,13 @@ import java.awt.GraphicsConfiguration;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.KeyAdapter;
+import java.awt.event.WindowAdapter;
 import java.awt.image.BufferStrategy;
 import java.awt.image.VolatileImage;
 import java.awt.event.WindowEvent;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import eu.eutampieri.catacombs.ui.input.KeyManager;
 import eu.eutampieri.catacombs.window.MainWindow;
@@ -22,15 +26,9 @@ import javax.swing.JFrame;
  * it controls the thread the render and the update of the entire game.
  */
 
-public abstract class Game implements Runnable {
-    /**
-     * minimum delta.
-     */
-    protected static final long DELTA_MIN = 16_000_000;
-    /**
-     * this constant indicates the thread sleep time.
-     */
-    protected static final float THREAD_SLEEP_CONST = 1_000_000f;
+public abstract class Game implements Runnable, Viewport {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
     /**
      *  Font used to render fps counter.
      */
@@ -48,9 +46,13 @@ public abstract class Game implements Runnable {
     private GraphicsConfiguration gc;
     private VolatileImage vImage;
     /**
-     * boolean value for the loop of the game.
+     * boolean value for the loop of the game, read by the render thread too.
      */
-    private boolean running;
+    private volatile boolean running;
+    /**
+     * released once the loop of the game has stopped and the game has ended, null until the loop runs.
+     */
+    private volatile CountDownLatch stopped;
     /**
      * the graphical element used in the game.
      */
@@ -59,6 +61,27 @@ public abstract class Game implements Runnable {
      * fps of the game.
      */
     private int fps;
+    /**
+     * the fixed length updates of the game.
+     */
+    private FixedTimestep timestep;
+    /**
+     * how far the game is between the last update and the next one.
+     */
+    private float interpolation;
+
+    /**
+     * A snapshot published by the update loop and the time it was taken.
+     */
+    private static final class PublishedFrame {
+        private final RenderSnapshot snapshot;
+        private final long time;
+
+        PublishedFrame(final RenderSnapshot snapshot, final long time) {
+            this.snapshot = snapshot;
+            this.time = time;
+        }
+    }
 
     /**
      * This method returns the graphical element used.
@@ -69,21 +92,49 @@ public abstract class Game implements Runnable {
         return this.graphics;
     }
 
+    /**
+     * This method returns how far the game is between the last update and the next one, from 0 to 1.
+     * Rendering can use it to draw objects between the positions they had in the last two updates.
+     * @return the fraction of an update elapsed since the last one
+     */
+    public float getInterpolation() {
+        return this.interpolation;
+    }
+
     public abstract void create();
 
+    /**
+     * This method is called by the loop of the game once it has stopped, before the window is closed.
+     * By default it does nothing.
+     */
+    public void end() {
+    }
+
     /**
      *
-     * @param delta gap time from previous render
+     * @param delta the milliseconds simulated by this update, which are always about the same
      */
 
     public abstract void update(long delta);
 
     public abstract void render();
 
+    /**
+     * This method takes what the next frame shows, after the last update.
+     * In pipelined mode it's called by the update loop, and the snapshot is drawn by the render thread while the
+     * game goes on, so it must not read the game state when it's drawn.
+     * By default the snapshot calls render, which is safe only when the game isn't pipelined.
+     * @return what the next frame shows
+     */
+    public RenderSnapshot snapshot() {
+        return (g2, i) -> this.render();
+    }
+
     /**
      * This game returns the width of the main frame.
      * @return width of the main frame
      */
+    @Override
     public int getWidth() {
         return this.mainFrame.getCanvas().getWidth();
     }
@@ -93,6 +144,7 @@ public abstract class Game implements Runnable {
      * @return height of the main frame
      */
 
+    @Override
     public int getHeight() {
         return this.mainFrame.getCanvas().getHeight();
     }
@@ -114,6 +166,33 @@ public abstract class Game implements Runnable {
         return this.gameConfiguration.getGameHeight();
     }
 
+    /**
+     * This method returns true if the independent parts of the game are updated in parallel.
+     * @return true if the independent parts of the game are updated in parallel
+     */
+
+    public boolean isParallelUpdate() {
+        return this.gameConfiguration.isParallelUpdate();
+    }
+
+    /**
+     * This method returns the file the game is recorded to, if it's recorded.
+     * @return the file the game is recorded to
+     */
+
+    public Optional<String> getReplayFile() {
+        return this.gameConfiguration.getReplayFile();
+    }
+
+    /**
+     * This method returns the side in chunks of the map, if the game is played on a chunked map.
+     * @return the side in chunks of the map, or 0 if the game is played on a dungeon
+     */
+
+    public int getMapChunks() {
+        return this.gameConfiguration.getMapChunks();
+    }
+
     /**
      * This method initialize the game.
      * @param config the style choose for the frame
@@ -124,6 +203,7 @@ public abstract class Game implements Runnable {
                 config.isFullScreen(), config.isResizeable());
         mainFrame.getCanvas().setBackground(Color.BLACK);
         this.fps = config.getFps();
+        this.timestep = new FixedTimestep(config.getTicksPerSecond(), config.getMaxCatchUpTicks());
         gc = mainFrame.getCanvas().getGraphicsConfiguration();
         mainFrame.getFrame().addComponentListener(new ComponentListener() {
 
@@ -152,6 +232,22 @@ public abstract class Game implements Runnable {
 
         });
 
+        // closing the window stops the loop, and waits for the game to end before the program exits
+        mainFrame.getFrame().addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(final WindowEvent e) {
+                stop();
+                final CountDownLatch ended = stopped;
+                if (ended != null) {
+                    try {
+                        ended.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+
         addKeyAdapter(KeyManager.getKeyManager());
     }
 
@@ -236,37 +332,96 @@ public abstract class Game implements Runnable {
 
     /**
      * this is the loop of the game that manage the update and render of the game.
+     * The game is updated at a fixed rate, as many times as the time elapsed requires, and rendered once per frame,
+     * by the same thread or, if the game is pipelined, by a thread of its own.
      */
     @Override
     public final void run() {
+        this.stopped = new CountDownLatch(1);
         create();
-        long lastUpdateTime;
-        long now;
         this.start();
+        try {
+            if (this.gameConfiguration.isPipelined()) {
+                runPipelined();
+            } else {
+                runSequential();
+            }
+            end();
+        } finally {
+            this.stopped.countDown();
+        }
+        this.mainFrame.getFrame().dispatchEvent(new WindowEvent(mainFrame.getFrame(), WindowEvent.WINDOW_CLOSING));
+    }
 
-        /* final double tickPerTime = 1f / fps; */
-        lastUpdateTime = System.currentTimeMillis();
+    private void runSequential() {
+        final long frameTime = NANOS_PER_SECOND / this.fps;
+        long lastFrameTime = System.nanoTime();
         while (this.running) {
-            now = System.currentTimeMillis();
-            long delta;
-            delta = now - lastUpdateTime;
-            delta = Math.min(delta, DELTA_MIN);
-            update(delta);
-            lastUpdateTime = now;
+            final long now = System.nanoTime();
+            final int ticks = this.timestep.advance(now - lastFrameTime);
+            lastFrameTime = now;
+            for (int i = 0; i < ticks; i++) {
+                update(this.timestep.nextDelta());
+            }
+            this.interpolation = this.timestep.getInterpolation();
             preRender();
             render();
             show();
-            final long timeTake = System.currentTimeMillis() - now;
-            final long timeToFrame = 1_000 / this.fps - timeTake;
-            if (timeToFrame > 0) {
-                try {
-                    Thread.sleep(timeToFrame);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+            sleepUntil(now + frameTime);
+        }
+    }
+
+    /**
+     * Updates the game in this thread and draws it in another one.
+     * After the updates of each tick the update loop publishes a snapshot, and the render thread draws the latest
+     * one it finds, interpolated by the time elapsed since it was published, so neither thread waits for the other.
+     */
+    private void runPipelined() {
+        final AtomicReference<PublishedFrame> latest = new AtomicReference<>(
+                new PublishedFrame(this.snapshot(), System.nanoTime()));
+        final long tickNanos = this.timestep.getTickNanos();
+        final long frameTime = NANOS_PER_SECOND / this.fps;
+        final Thread renderThread = new Thread(() -> {
+            while (this.running) {
+                final long now = System.nanoTime();
+                final PublishedFrame frame = latest.get();
+                preRender();
+                frame.snapshot.render(this.graphics, Math.min(1f, (float) (now - frame.time) / tickNanos));
+                show();
+                sleepUntil(now + frameTime);
+            }
+        }, "render");
+        renderThread.start();
+
+        long lastTickTime = System.nanoTime();
+        while (this.running) {
+            final long now = System.nanoTime();
+            final int ticks = this.timestep.advance(now - lastTickTime);
+            lastTickTime = now;
+            for (int i = 0; i < ticks; i++) {
+                update(this.timestep.nextDelta());
+            }
+            if (ticks > 0) {
+                latest.set(new PublishedFrame(this.snapshot(), System.nanoTime()));
+            }
+            sleepUntil(now + tickNanos - (long) (this.timestep.getInterpolation() * tickNanos));
+        }
+        try {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void sleepUntil(final long time) {
+        final long timeToWait = time - System.nanoTime();
+        if (timeToWait > 0) {
+            try {
+                Thread.sleep(timeToWait / NANOS_PER_MILLI, (int) (timeToWait % NANOS_PER_MILLI));
+            } catch (InterruptedException e) {
+                e.printStackTrace();
             }
         }
-        this.mainFrame.getFrame().dispatchEvent(new WindowEvent(mainFrame.getFrame(), WindowEvent.WINDOW_CLOSING));
     }
 
     /**
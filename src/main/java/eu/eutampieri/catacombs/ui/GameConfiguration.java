@@ -1,5 +1,7 @@
 package eu.eutampieri.catacombs.ui;
 
+import java.util.Optional;
+
 /**
  * This class keeps all the information about the game features.
  */
@@ -7,11 +9,21 @@ package eu.eutampieri.catacombs.ui;
 public final class GameConfiguration {
 
     private static final int DEFAULT_FPS = 60;
+    private static final int DEFAULT_TICKS_PER_SECOND = 30;
+    private static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
     /**
      * Indicates the dimension of the canvas.
      */
     private int gameHeight, gameWidth;
     private int fps = DEFAULT_FPS;
+    /**
+     * Indicates how many times in a second the game is updated.
+     */
+    private int ticksPerSecond = DEFAULT_TICKS_PER_SECOND;
+    /**
+     * Indicates how many updates can be run in a frame to catch up with time.
+     */
+    private int maxCatchUpTicks = DEFAULT_MAX_CATCH_UP_TICKS;
     /**
      * Indicates the title of the game.
      */
@@ -28,6 +40,22 @@ public final class GameConfiguration {
      * Indicates if the game is resizeable.
      */
     private boolean resizeable;
+    /**
+     * Indicates if the game is drawn by a thread of its own while it's updated.
+     */
+    private boolean pipelined;
+    /**
+     * Indicates if the independent parts of the world are updated in parallel.
+     */
+    private boolean parallelUpdate;
+    /**
+     * Indicates the file the game is recorded to, if it is.
+     */
+    private String replayFile;
+    /**
+     * Indicates the side in chunks of the map, which is generated as it's explored, or 0 for a dungeon.
+     */
+    private int mapChunks;
 
     /**
      * This method returns the the width of the canvas.
@@ -65,6 +93,24 @@ public final class GameConfiguration {
         return this.fps;
     }
 
+    /**
+     * This method returns how many times in a second the game is updated.
+     * @return the game updates in a second
+     */
+
+    public int getTicksPerSecond() {
+        return this.ticksPerSecond;
+    }
+
+    /**
+     * This method returns how many updates can be run in a frame when the game is late.
+     * @return the maximum number of updates in a frame
+     */
+
+    public int getMaxCatchUpTicks() {
+        return this.maxCatchUpTicks;
+    }
+
     /**
      * This method returns true if the game is fullScreen.
      * @return true if the game is fullScreen
@@ -138,6 +184,99 @@ public final class GameConfiguration {
         this.fps = fps;
     }
 
+    /**
+     * This method set how many times in a second the game is updated, whatever the fps are.
+     * @param ticksPerSecond the game updates in a second
+     */
+
+    public void setTicksPerSecond(final int ticksPerSecond) {
+        this.ticksPerSecond = ticksPerSecond;
+    }
+
+    /**
+     * This method set how many updates can be run in a frame when the game is late.
+     * @param maxCatchUpTicks the maximum number of updates in a frame
+     */
+
+    public void setMaxCatchUpTicks(final int maxCatchUpTicks) {
+        this.maxCatchUpTicks = maxCatchUpTicks;
+    }
+
+    /**
+     * This method returns true if the game is drawn by a thread of its own.
+     * @return true if the game is drawn by a thread of its own
+     */
+
+    public boolean isPipelined() {
+        return this.pipelined;
+    }
+
+    /**
+     * This method set true if the game has to be drawn by a thread of its own, so that frames are drawn while the
+     * next updates are run.
+     * @param p true if the game has to be drawn by a thread of its own
+     */
+
+    public void setPipelined(final boolean p) {
+        this.pipelined = p;
+    }
+
+    /**
+     * This method returns true if the independent parts of the world are updated in parallel.
+     * @return true if the independent parts of the world are updated in parallel
+     */
+
+    public boolean isParallelUpdate() {
+        return this.parallelUpdate;
+    }
+
+    /**
+     * This method set true if the parts of the world which don't affect each other have to be updated in parallel,
+     * which gives the same result as updating them one after the other.
+     * @param p true if the independent parts of the world have to be updated in parallel
+     */
+
+    public void setParallelUpdate(final boolean p) {
+        this.parallelUpdate = p;
+    }
+
+    /**
+     * This method returns the file the game is recorded to when it ends, if it's recorded.
+     * @return the file the game is recorded to
+     */
+
+    public Optional<String> getReplayFile() {
+        return Optional.ofNullable(this.replayFile);
+    }
+
+    /**
+     * This method set the file the game has to be recorded to when it ends, or null if it hasn't to be recorded.
+     * @param p the file the game has to be recorded to
+     */
+
+    public void setReplayFile(final String p) {
+        this.replayFile = p;
+    }
+
+    /**
+     * This method returns the side in chunks of the map, if the game is played on a chunked map.
+     * @return the side in chunks of the map, or 0 if the game is played on a dungeon
+     */
+
+    public int getMapChunks() {
+        return this.mapChunks;
+    }
+
+    /**
+     * This method set the side in chunks of the map the game is played on, which is generated as it's explored,
+     * or 0 to play on a dungeon.
+     * @param c the side in chunks of the map, or 0 for a dungeon
+     */
+
+    public void setMapChunks(final int c) {
+        this.mapChunks = c;
+    }
+
     /**
      * This method set true if the game  can scale.
      * @param s true if the game  can scale
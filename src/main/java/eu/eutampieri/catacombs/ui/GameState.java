@@ -1,7 +1,12 @@
 package eu.eutampieri.catacombs.ui;
 
+import eu.eutampieri.catacombs.game.ReplayRecorder;
+import eu.eutampieri.catacombs.model.Boss;
+import eu.eutampieri.catacombs.model.map.GenerationParameters;
+import eu.eutampieri.catacombs.model.map.TileMap;
 import eu.eutampieri.catacombs.model.map.TileMapFactory;
 import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import eu.eutampieri.catacombs.ui.input.KeyManager;
 import eu.eutampieri.catacombs.ui.utils.FontUtils;
 
@@ -9,6 +14,11 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
 
 /**
  * This class manages the graphical aspects of the game interface.
@@ -23,10 +33,18 @@ public class GameState extends State {
      * x offset of health position.
      */
     private static final int HEALTH_POS = 5;
+    /**
+     * updates between two states of the world recorded in a replay.
+     */
+    private static final int KEYFRAME_INTERVAL = 300;
     /**
      * The world that has been generated.
      */
     private final World world;
+    /**
+     * The recorder of the game, or null if it isn't recorded.
+     */
+    private final ReplayRecorder recorder;
     // private Player player;
     /**
      * This varaible is used to pause the game.
@@ -56,8 +74,23 @@ public class GameState extends State {
     public GameState(final DungeonGame game) {
         super(game);
         this.game = game;
-        final TileMapFactory tmf = new TileMapFactoryImpl();
-        this.world = new World(tmf.def(), this.game);
+        final TileMapFactory tmf = new TileMapFactoryImpl(true);
+        final SplittableRandom seeds = new SplittableRandom();
+        final long mapSeed = seeds.nextLong();
+        final int chunks = this.game.getMapChunks();
+        // corridors wide enough for the Boss to follow the player through them
+        final GenerationParameters parameters = GenerationParameters.DEFAULT
+                .withCorridorWidth(Boss.footprint(WorldGeometry.DEFAULT));
+        final TileMap map = chunks == 0 ? tmf.seeded(mapSeed, parameters) : tmf.chunked(mapSeed, chunks, chunks);
+        this.world = new World(map, this.game, KeyManager.getKeyManager(), seeds.nextLong());
+        this.world.setParallelUpdate(this.game.isParallelUpdate());
+        if (this.game.getReplayFile().isEmpty()) {
+            this.recorder = null;
+        } else if (chunks == 0) {
+            this.recorder = new ReplayRecorder(mapSeed, parameters, this.world, this.game, KEYFRAME_INTERVAL);
+        } else {
+            this.recorder = new ReplayRecorder(mapSeed, chunks, this.world, this.game, KEYFRAME_INTERVAL);
+        }
         // TODO WorldLoader class
         // this.player = world.getPlayer();
     }
@@ -81,7 +114,11 @@ public class GameState extends State {
         if (this.paused) {
             return;
         }
-        this.world.update(delta);
+        if (this.recorder == null) {
+            this.world.update(delta);
+        } else {
+            this.recorder.update(delta);
+        }
         if (!this.world.getPlayer().isAlive()) {
             this.game.endGame();
         }
@@ -90,6 +127,22 @@ public class GameState extends State {
         }
     }
 
+    /**
+     * This method saves the replay of the game, if one is recorded, however the game is left.
+     */
+
+    @Override
+    public void leave() {
+        if (this.recorder == null) {
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(Paths.get(this.game.getReplayFile().get()))) {
+            this.recorder.getReplay().write(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * This method renders the Pause message and the entire World.
      *
@@ -98,14 +151,35 @@ public class GameState extends State {
 
     @Override
     public void render(final Graphics2D g2) {
+        this.snapshot().render(g2, this.game.getInterpolation());
+    }
+
+    /**
+     * This method takes the World and the player statistics as they are after the last update.
+     *
+     * @return what the next frame shows
+     */
+
+    @Override
+    public RenderSnapshot snapshot() {
         // WorldLoader needed
-        this.world.render(g2);
+        final RenderSnapshot worldSnapshot = this.world.snapshot();
+        final int health = this.world.getPlayer().getHealth();
+        final boolean isPaused = this.paused;
+        return (g2, interpolation) -> {
+            // while paused the world stays where the last update left it
+            worldSnapshot.render(g2, isPaused ? 1f : interpolation);
+            this.renderStatistics(g2, health, isPaused);
+        };
+    }
+
+    private void renderStatistics(final Graphics2D g2, final int health, final boolean isPaused) {
         g2.setColor(Color.orange);
         g2.setFont(font);
-        g2.drawString("HEALTH : " + this.world.getPlayer().getHealth(), HEALTH_POS, font.getSize());
+        g2.drawString("HEALTH : " + health, HEALTH_POS, font.getSize());
         // g2.drawString("COINS : " + player.getCoins(), 5, font.getSize() * 2 + 10);
 
-        if (this.paused) {
+        if (isPaused) {
             g2.setFont(this.pauseFont);
             final String msg = "Paused";
             final float x = (game.getGameWidth() - FontUtils.getTextWidth(pauseFont, msg)) / 2f;
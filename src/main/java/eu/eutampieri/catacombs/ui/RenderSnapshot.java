@@ -0,0 +1,18 @@
+package eu.eutampieri.catacombs.ui;
+
+import java.awt.Graphics2D;
+
+/**
+ * What a frame shows, taken from the game after an update, so that it can be drawn while the game goes on
+ * updating.
+ */
+@FunctionalInterface
+public interface RenderSnapshot {
+    /**
+     * Draws the frame.
+     * @param g2            the canvas
+     * @param interpolation how far the game is between the update before the snapshot was taken and the next
+     *                      one, from 0 to 1
+     */
+    void render(Graphics2D g2, float interpolation);
+}
@@ -42,6 +42,27 @@ public abstract class State {
 
     public abstract void render(Graphics2D g2);
 
+    /**
+     * This method takes what the next frame shows, so that it can be drawn while the game goes on.
+     * By default the frame draws the state as it is when the frame is drawn, which is enough for the states
+     * which barely change.
+     *
+     * @return what the next frame shows
+     */
+
+    public RenderSnapshot snapshot() {
+        return (g2, interpolation) -> this.render(g2);
+    }
+
+    /**
+     * This method is called when the state stops being the current one, because the game moves to another state
+     * or because the game ends.
+     * By default it does nothing.
+     */
+
+    public void leave() {
+    }
+
     /**
      *
      * @return the game manager used
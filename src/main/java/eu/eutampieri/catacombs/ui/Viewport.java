@@ -0,0 +1,38 @@
+package eu.eutampieri.catacombs.ui;
+
+/**
+ * The area of the world which is shown, and so updated, around the player.
+ */
+public interface Viewport {
+    /**
+     * @return the width of the area in world units.
+     */
+    int getWidth();
+
+    /**
+     * @return the height of the area in world units.
+     */
+    int getHeight();
+
+    /**
+     * @param width  the width of the area in world units
+     * @param height the height of the area in world units
+     * @return a viewport whose size never changes.
+     */
+    static Viewport of(final int width, final int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException();
+        }
+        return new Viewport() {
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+        };
+    }
+}
@@ -3,66 +3,206 @@ package eu.eutampieri.catacombs.ui;
 import eu.eutampieri.catacombs.model.*;
 import eu.eutampieri.catacombs.model.gen.*;
 import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
-import eu.eutampieri.catacombs.ui.input.KeyManager;
+import eu.eutampieri.catacombs.ui.gamefx.TileLayerCache;
+import eu.eutampieri.catacombs.ui.input.InputSource;
+import eu.eutampieri.catacombs.ui.input.SampledInput;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.awt.Graphics2D;
+import java.awt.Point;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * This class contains all necessary entities to render the game and coordinates them.
  */
 public final class World {
+    /**
+     * The largest state a world reads.
+     */
+    public static final int MAX_STATE_BYTES = 16 << 20;
+    /**
+     * How deep the objects of a state read can be nested, and how many of them and of their array elements
+     * there can be.
+     */
+    private static final int MAX_STATE_DEPTH = 64;
+    private static final int MAX_STATE_REFERENCES = 1 << 20;
+    private static final int MAX_STATE_ARRAY_LENGTH = 1 << 16;
+    private static final String MODEL_PACKAGE = "eu.eutampieri.catacombs.model.";
     private static final int BOSS_SPAWN_RANGE = 100;
     private static final int SPAWNED_POTIONS = 5;
+    /**
+     * Width in cells of the grid of the strips of the world updated in parallel.
+     */
+    private static final int REGION_CELLS = 4;
+
+    /**
+     * The services the entities share with the world, which are written in a state as one of these.
+     */
+    private enum Shared {
+        TILE_MAP, FLOW_FIELD, PATHFINDER
+    }
 
     private final TileMap tileMap;
-    private final KeyManagerProxy km = new KeyManagerProxy();
-    private final DungeonGame game;
+    private final WorldGeometry geometry;
+    private final InputSource input;
+    /**
+     * The input as it was at the start of the last update.
+     */
+    private final SampledInput sampledInput = new SampledInput();
+    private final KeyManagerProxy km = new KeyManagerProxy(this.sampledInput);
+    private final Viewport viewport;
     private final Camera camera;
+    /**
+     * The tiles drawn, taken when the world is first drawn, so that a world which is never drawn loads no sprites.
+     */
+    private TileLayerCache tileLayer;
+    private final FlowField flowField;
+    private final HierarchicalPathfinder pathfinder;
+    /**
+     * The entities, without the player.
+     */
+    private final SpatialHashGrid grid;
+    private final ProjectilePool projectiles = new ProjectilePool();
+    private final GridView view = new GridView(this.projectiles);
+    private final UpdateRegions regions;
     private boolean bossHasBeenSpawned;
+    private boolean parallelUpdate;
+    /**
+     * Where every random choice of the world and its entities comes from.
+     */
+    private RandomService randomService;
+    private long ticks;
 
-    private List<GameObject> entities;
+    private final EntityStore entities = new EntityStore();
 
     private Player player;
+    /**
+     * Position of the player before the last update.
+     */
+    private int previousPlayerX, previousPlayerY;
 
     /**
      * Create a new world.
      * @param tileMap the map
-     * @param game the game, which is used to get its width &amp; height
+     * @param viewport the area around the player which is shown, and whose entities are updated
+     * @param input where the commands of the player come from
+     */
+    public World(final TileMap tileMap, final Viewport viewport, final InputSource input) {
+        this(tileMap, viewport, input, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Create a new world, which given the same map, seed and input always plays the same way.
+     * @param tileMap the map
+     * @param viewport the area around the player which is shown, and whose entities are updated
+     * @param input where the commands of the player come from, read once at the start of every update
+     * @param seed the seed of every random choice of the world and its entities
      */
-    public World(final TileMap tileMap, final DungeonGame game) {
+    public World(final TileMap tileMap, final Viewport viewport, final InputSource input, final long seed) {
         this.tileMap = tileMap;
-        final MobFactory mf = new MobFactoryImpl(this.tileMap);
-        camera = new Camera(0, 0, tileMap.width() * AssetManagerProxy.getMapTileSize(),
-                tileMap.height() * AssetManagerProxy.getMapTileSize());
-        this.entities = mf.spawnRandom().stream().map((x) -> (GameObject) x).collect(Collectors.toList());
-
-        final ObjectFactory objectFactory = new ObjectFactoryImpl(this.tileMap);
-        final Random rand = new Random();
-        this.entities.addAll(objectFactory.spawnSome(SPAWNED_POTIONS, (x, y, tm) -> {
-            final int healingPower = rand.nextInt(101);
+        this.geometry = tileMap.geometry();
+        this.randomService = new RandomService(seed);
+        final SplittableRandom random = this.randomService.forSubsystem(RandomService.Subsystem.POPULATION, 0);
+        final MobFactory mf = new MobFactoryImpl(this.tileMap, random);
+        camera = new Camera(0, 0, geometry.length(tileMap.width()), geometry.length(tileMap.height()));
+        final ObjectFactory objectFactory = new ObjectFactoryImpl(this.tileMap, random);
+        final SingleObject<GameObject> potion = (x, y, tm) -> {
+            final int healingPower = random.nextInt(101);
             return new SimplePotion(healingPower, "Potion", x, y);
-        }));
-
-        this.entities.addAll(objectFactory.spawnSome(3, (x, y, tm) -> {
-            if (rand.nextInt(2) == 0) {
+        };
+        final SingleObject<GameObject> weapon = (x, y, tm) -> {
+            if (random.nextInt(2) == 0) {
                 return new Gun(null, tm, x, y, GameObject.Team.FRIEND);
             } else {
                 return new Rifle(null, tm, x, y, GameObject.Team.FRIEND);
             }
-        }));
+        };
+        final SingleObject<Entity> newPlayer = (x, y, tm) -> new Player(x, y, "", tm);
+        final List<GameObject> spawned = new ArrayList<>();
+        final int range = this.tileMap.focusRange();
+        if (range == 0) {
+            spawned.addAll(mf.spawnRandom());
+            spawned.addAll(objectFactory.spawnSome(SPAWNED_POTIONS, potion));
+            spawned.addAll(objectFactory.spawnSome(3, weapon));
+            this.setPlayer((Player) mf.spawnSome(1, newPlayer).get(0));
+        } else {
+            // the starting population of a map generated lazily is spawned where it's generated, around the player
+            this.setPlayer((Player) mf.spawnSome(1, newPlayer).get(0));
+            this.tileMap.focusOn(geometry.toTile(this.player.getPosX()), geometry.toTile(this.player.getPosY()));
+            spawned.addAll(mf.spawnRandomNear(range, this.player));
+            spawned.addAll(objectFactory.spawnSomeNear(SPAWNED_POTIONS, range, this.player, potion));
+            spawned.addAll(objectFactory.spawnSomeNear(3, range, this.player, weapon));
+        }
+        this.randomService.register(this.player);
+        this.flowField = new FlowField(this.tileMap, Slime.FOLLOW_DISTANCE);
+        // only the boss follows routes, so they're planned for its size
+        this.pathfinder = new HierarchicalPathfinder(this.tileMap, Boss.footprint(this.tileMap.geometry()),
+                HierarchicalPathfinder.DEFAULT_CACHE_CAPACITY);
+        spawned.forEach(this::shareFlowField);
+        spawned.forEach(this::addEntity);
+        this.grid = new SpatialHashGrid(geometry.length(tileMap.width()), geometry.length(tileMap.height()));
+        this.entities.forEach(this.grid::add);
+        this.regions = new UpdateRegions(geometry.length(tileMap.width()),
+                REGION_CELLS * SpatialHashGrid.DEFAULT_CELL_SIZE);
+
+        this.viewport = viewport;
+        this.input = input;
+    }
+
+    /**
+     * @return the seed of every random choice of the world and its entities.
+     */
+    public long getSeed() {
+        return this.randomService.getSeed();
+    }
+
+    /**
+     * @return the number of updates since the world was created.
+     */
+    public long getTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * @return the keys read at the start of the last update, as a mask of {@link SampledInput}.
+     */
+    public int getInputMask() {
+        return this.sampledInput.getMask();
+    }
+
+    /**
+     * Sets if the parts of the world which don't affect each other are updated in parallel, which gives the same
+     * result as updating them one after the other.
+     * @param parallel true to update the independent parts of the world in parallel
+     */
+    public void setParallelUpdate(final boolean parallel) {
+        this.parallelUpdate = parallel;
+    }
 
-        this.player = (Player) mf.spawnSome(1, (x, y, tm) -> new Player(x, y, "", tm)).get(0);
-        
-        this.game = game;
+    /**
+     * @return true if the independent parts of the world are updated in parallel.
+     */
+    public boolean isParallelUpdate() {
+        return this.parallelUpdate;
     }
 
     /**
@@ -87,11 +227,22 @@ public final class World {
      */
     public void setPlayer(final Player player) {
         this.player = player;
+        this.previousPlayerX = player.getPosX();
+        this.previousPlayerY = player.getPosY();
     }
 
-    private List<GameObject> getAllEntitiesExcept(final GameObject e) {
-        return Stream.concat(this.entities.stream(), Stream.of(this.player)).filter((x) -> !e.equals(x))
-                .collect(Collectors.toUnmodifiableList());
+    /**
+     * Adds an entity to the store, giving it a stream of random numbers of its own.
+     */
+    private void addEntity(final GameObject entity) {
+        this.randomService.register(entity);
+        this.entities.add(entity);
+    }
+
+    private void shareFlowField(final GameObject entity) {
+        if (entity instanceof Slime) {
+            ((Slime) entity).setFlowField(this.flowField);
+        }
     }
 
     /**
@@ -100,6 +251,16 @@ public final class World {
      * @param delta the number of milliseconds elapsed since the last update
      */
     public void update(final long delta) {
+        this.sampledInput.sample(this.input);
+        this.ticks++;
+        // the entities updated are the ones on camera, so it follows the player also when nothing is drawn
+        camera.centerOnEntity(this.player, viewport.getWidth(), viewport.getHeight());
+        this.entities.savePositions();
+        this.previousPlayerX = this.player.getPosX();
+        this.previousPlayerY = this.player.getPosY();
+        this.tileMap.focusOn(geometry.toTile(this.player.getPosX()), geometry.toTile(this.player.getPosY()));
+        this.flowField.setTarget(geometry.toTile(this.player.getPosX() + this.player.getWidth() / 2),
+                geometry.toTile(this.player.getPosY() + this.player.getHeight() / 2));
         this.player.stop();
         if (this.km.up()) {
             this.player.move(Direction.UP);
@@ -116,77 +277,209 @@ public final class World {
             this.player.getWeapon().setCanFire(false);
         }
 
-        final List<GameObject> newEntities = Stream.concat(entities.stream(), Stream.of(player))
-                .filter((entity) -> this.isOnCamera(entity.getPosX(), entity.getPosY())
-                        || entity.getKind() == GameObjectType.BULLET
-                        || entity.getKind() == GameObjectType.BOSS_BULLET)
-                .flatMap((x) -> x.update(delta, this.getAllEntitiesExcept(x)).stream())
-                .collect(Collectors.toList());
-        this.entities.addAll(newEntities);
+        final List<GameObject> newEntities;
+        if (this.parallelUpdate) {
+            newEntities = this.updateInRegions(delta);
+        } else {
+            newEntities = new ArrayList<>();
+            // the positions and kinds are read from the store, so the entities off camera aren't even looked at
+            for (int i = 0; i < this.entities.size(); i++) {
+                if (this.isUpdated(i)) {
+                    this.updateEntity(this.view, this.entities.objectAt(i), delta, newEntities);
+                }
+            }
+        }
+        if (this.isUpdated(this.player.getPosX(), this.player.getPosY(), this.player.getKind())) {
+            this.updateEntity(this.view, this.player, delta, newEntities);
+        }
+        newEntities.forEach(this::shareFlowField);
+        newEntities.forEach(this::addEntity);
+        // adds the new entities and moves the ones which were moved by others, like the weapons being held
+        this.entities.forEach(this.grid::update);
 
-        this.entities = this.entities.stream().filter((x) -> !x.isMarkedForDeletion()).collect(Collectors.toList());
+        this.entities.removeIf((x) -> {
+            if (x.isMarkedForDeletion()) {
+                this.grid.remove(x);
+                if (x instanceof Projectile) {
+                    this.projectiles.release((Projectile) x);
+                }
+                return true;
+            }
+            return false;
+        });
 
         if (this.playerHasKilledAllEntities() && !this.bossHasBeenSpawned) {
-            // Spawn boss
-            final List<Entity> bossList = new MobFactoryImpl(tileMap).spawnNear(BOSS_SPAWN_RANGE, this.player, Boss::new);
-            assert bossList.size() == 1;
-            final GameObject boss = bossList.get(0);
-            this.entities.add(boss);
-            this.bossHasBeenSpawned = true;
+            // Spawn boss, retrying on the next update if there's no room around the player
+            final SplittableRandom random = this.randomService.forSubsystem(RandomService.Subsystem.BOSS, this.ticks);
+            final List<Entity> bossList = new MobFactoryImpl(tileMap, random)
+                    .spawnNear(BOSS_SPAWN_RANGE, this.player, Boss::new);
+            if (!bossList.isEmpty()) {
+                ((Boss) bossList.get(0)).setPathfinder(this.pathfinder);
+                this.addEntity(bossList.get(0));
+                this.grid.add(bossList.get(0));
+                this.bossHasBeenSpawned = true;
+            }
+        }
+    }
+
+    /**
+     * Updates the entities the same way the sequential loop does, but the strips of the world which don't affect
+     * each other are updated at the same time on the common fork-join pool, and then the entities near their
+     * borders are updated in order.
+     * The projectiles fired in the strips aren't taken from the pool, which can't be shared between threads.
+     * @return the entities spawned, in the order the sequential loop spawns them
+     */
+    private List<GameObject> updateInRegions(final long delta) {
+        this.regions.split(this.entities, this.grid, this::isUpdated, this.player);
+        final List<List<GameObject>> spawned = new ArrayList<>(Collections.nCopies(this.entities.size(), List.of()));
+        ForkJoinPool.commonPool().invoke(new RegionUpdate(0, this.regions.regionCount(), delta, spawned));
+        final List<GameObject> followUpSpawned = new ArrayList<>();
+        for (int k = 0; k < this.regions.followUpSize(); k++) {
+            final int i = this.regions.followUpIndexAt(k);
+            this.updateEntity(this.view, this.entities.objectAt(i), delta, followUpSpawned, spawned, i);
+        }
+        final List<GameObject> newEntities = new ArrayList<>();
+        spawned.forEach(newEntities::addAll);
+        return newEntities;
+    }
+
+    /**
+     * Updates an entity, adding the entities it spawns to a list.
+     */
+    private void updateEntity(final GridView from, final GameObject entity, final long delta,
+            final List<GameObject> spawned) {
+        from.setSelf(entity, spawned);
+        spawned.addAll(entity.update(delta, from));
+        this.grid.update(entity);
+    }
+
+    /**
+     * Updates the entity at an index of the store, adding the entities it spawns to a list shared with others and
+     * setting a copy of them, if any, at the same index of byIndex.
+     */
+    private void updateEntity(final GridView from, final GameObject entity, final long delta,
+            final List<GameObject> spawned, final List<List<GameObject>> byIndex, final int index) {
+        final int start = spawned.size();
+        this.updateEntity(from, entity, delta, spawned);
+        if (spawned.size() > start) {
+            byIndex.set(index, List.copyOf(spawned.subList(start, spawned.size())));
+        }
+    }
+
+    /**
+     * Updates a range of strips, splitting it in halves until a single strip is left.
+     */
+    private final class RegionUpdate extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final long delta;
+        private final transient List<List<GameObject>> spawned;
+
+        RegionUpdate(final int from, final int to, final long delta, final List<List<GameObject>> spawned) {
+            this.from = from;
+            this.to = to;
+            this.delta = delta;
+            this.spawned = spawned;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                final GridView regionView = new GridView(ProjectilePool.unpooled());
+                final List<GameObject> regionSpawned = new ArrayList<>();
+                for (int k = 0; k < regions.regionSize(from); k++) {
+                    final int i = regions.regionIndexAt(from, k);
+                    updateEntity(regionView, entities.objectAt(i), delta, regionSpawned, spawned, i);
+                }
+            } else if (to - from > 1) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new RegionUpdate(from, mid, delta, spawned), new RegionUpdate(mid, to, delta, spawned));
+            }
         }
     }
 
+    /**
+     * @return if the entity at an index of the store is updated.
+     */
+    private boolean isUpdated(final int index) {
+        return this.isUpdated(this.entities.posXAt(index), this.entities.posYAt(index), this.entities.kindAt(index));
+    }
+
+    /**
+     * @return if an object at (x, y) of the given kind is updated: bullets always are, the others only on camera.
+     */
+    private boolean isUpdated(final int x, final int y, final GameObjectType kind) {
+        return this.isOnCamera(x, y) || kind == GameObjectType.BULLET || kind == GameObjectType.BOSS_BULLET;
+    }
+
     private boolean isOnCamera(final int x, final int y) {
         final int canvasX = x - camera.getXOffset();
         final int canvasY = y - camera.getYOffset();
-        return canvasX > -AssetManagerProxy.getMapTileSize() && canvasX <= game.getWidth()
-                && canvasY > -AssetManagerProxy.getMapTileSize() && canvasY <= game.getHeight();
+        return canvasX > -geometry.getTileSize() && canvasX <= viewport.getWidth()
+                && canvasY > -geometry.getTileSize() && canvasY <= viewport.getHeight();
     }
 
     /**
      * Render on screen the entities and the map.
+     * Entities are drawn between the positions they had before and after the last update.
      * @param g2 The canvas onto which the rendering will be done.
+     * @param interpolation how far the game is between the last update and the next one, from 0 to 1
      */
-    public void render(final Graphics2D g2) {
-        camera.centerOnEntity(this.player, game.getWidth(), game.getHeight());
+    public void render(final Graphics2D g2, final float interpolation) {
+        this.snapshot().render(g2, interpolation);
+    }
 
-        for (int y = 0; y < tileMap.height(); y++) {
-            for (int x = 0; x < tileMap.width(); x++) {
-                final int canvasX = x * AssetManagerProxy.getMapTileSize() - camera.getXOffset();
-                final int canvasY = y * AssetManagerProxy.getMapTileSize() - camera.getYOffset();
-                if (isOnCamera(x * AssetManagerProxy.getMapTileSize(), y * AssetManagerProxy.getMapTileSize())) {
-                    final Optional<BufferedImage> tile = AssetManagerProxy.getTileSprite(tileMap.at(x, y));
-                    tile.ifPresent(bufferedImage -> g2.drawImage(bufferedImage, null, canvasX, canvasY));
-                }
+    /**
+     * Takes what has to be drawn of the world after the last update: the sprites of the entities on camera and
+     * where they were before and after it.
+     * @return the snapshot, which doesn't change when the world does
+     */
+    public RenderSnapshot snapshot() {
+        if (this.tileLayer == null) {
+            this.tileLayer = new TileLayerCache(this.tileMap);
+        }
+        camera.centerOnEntity(this.player, viewport.getWidth(), viewport.getHeight());
+        final WorldSnapshot snapshot = new WorldSnapshot(this.tileLayer, geometry.length(tileMap.width()),
+                geometry.length(tileMap.height()), viewport.getWidth(), viewport.getHeight(),
+                this.entities.size() + 1);
+        snapshot.focus(this.previousPlayerX, this.previousPlayerY, this.player.getPosX(), this.player.getPosY());
+        for (int i = 0; i < this.entities.size(); i++) {
+            if (this.isOnCamera(this.entities.posXAt(i), this.entities.posYAt(i))) {
+                snapshot.add(spriteOf(this.entities.objectAt(i)), this.entities.previousPosXAt(i),
+                        this.entities.previousPosYAt(i), this.entities.posXAt(i), this.entities.posYAt(i));
             }
         }
+        if (this.isOnCamera(this.player.getPosX(), this.player.getPosY())) {
+            snapshot.add(spriteOf(this.player), this.previousPlayerX, this.previousPlayerY,
+                    this.player.getPosX(), this.player.getPosY());
+        }
+        return snapshot;
+    }
 
-        Stream.concat(this.entities.stream(), Stream.of(this.player))
-                .filter((x) -> this.isOnCamera(x.getPosX(), x.getPosY()))
-                .forEach((currentObj) -> {
-                    try {
-                        final Entity currentEntity = (Entity) currentObj;
-                        final Pair<Action, Direction> action = currentEntity.getActionWithDirection();
-                        final Animation animation = AssetManagerProxy.getFrames(currentEntity, action.getLeft(), action.getRight());
-                        if (currentEntity.isMoving()) {
-                            final BufferedImage toShow = animation.getCurrentFrame().get();
-                            g2.drawImage(toShow, null, currentEntity.getPosX() - camera.getXOffset(), currentEntity.getPosY() - camera.getYOffset());
-                        } else {
-                            final BufferedImage toShow = animation.getFrames().get(0).get();
-                            g2.drawImage(toShow, null, currentEntity.getPosX() - camera.getXOffset(), currentEntity.getPosY() - camera.getYOffset());
-                        }
-                    } catch (ClassCastException e) {
-                        // Treat it as a game object
-                        final BufferedImage img = AssetManagerProxy.getSprite(currentObj);
-                        g2.drawImage(img, null, currentObj.getPosX() - camera.getXOffset(), currentObj.getPosY() - camera.getYOffset());
-                    }
-                });
+    private static BufferedImage spriteOf(final GameObject currentObj) {
+        if (currentObj instanceof Entity) {
+            final Entity currentEntity = (Entity) currentObj;
+            final Pair<Action, Direction> action = currentEntity.getActionWithDirection();
+            final Animation animation = AssetManagerProxy.getFrames(currentEntity, action.getLeft(), action.getRight());
+            if (currentEntity.isMoving()) {
+                return animation.getCurrentFrame().get();
+            } else {
+                return animation.getFrames().get(0).get();
+            }
+        }
+        // Treat it as a game object
+        return AssetManagerProxy.getSprite(currentObj);
     }
 
     private boolean playerHasKilledAllEntities() {
-        return this.entities.parallelStream()
-                .map(GameObject::getKind)
-                .noneMatch((x) -> x == GameObjectType.ENEMY || x == GameObjectType.BOSS);
+        for (int i = 0; i < this.entities.size(); i++) {
+            final GameObjectType kind = this.entities.kindAt(i);
+            if (kind == GameObjectType.ENEMY || kind == GameObjectType.BOSS) {
+                return false;
+            }
+        }
+        return true;
     }
 
    /**
@@ -200,8 +493,156 @@ public final class World {
                 && this.bossHasBeenSpawned;
     }
 
+    /**
+     * Writes everything which changes while the world is updated, so that it can be read back by a world with the
+     * same map. The same state is always written the same way, so two states can be compared byte by byte.
+     * @param out where the state is written, which is left open
+     * @throws IOException if the state can't be written
+     */
+    public void writeState(final OutputStream out) throws IOException {
+        final ObjectOutputStream state = new StateOutputStream(out);
+        state.writeLong(this.ticks);
+        state.writeBoolean(this.bossHasBeenSpawned);
+        state.writeInt(this.previousPlayerX);
+        state.writeInt(this.previousPlayerY);
+        state.writeObject(this.randomService);
+        state.writeObject(this.player);
+        final List<GameObject> stored = new ArrayList<>(this.entities.size());
+        this.entities.forEach(stored::add);
+        // the store and the grid keep the same objects in different orders, which both decide how the game goes
+        state.writeObject(stored);
+        state.writeObject(new ArrayList<>(this.grid.objects()));
+        state.flush();
+    }
+
+    /**
+     * Replaces the state of the world with one written by {@link #writeState(OutputStream)}.
+     * States may come from untrusted files, so only the classes of the model, lists, points, enums and primitive
+     * arrays are read, within limits of size and depth.
+     * @param in where the state is read from
+     * @throws IOException if the state can't be read
+     */
+    public void readState(final InputStream in) throws IOException {
+        final ObjectInputStream state = new StateInputStream(in);
+        final long readTicks = state.readLong();
+        final boolean readBossSpawned = state.readBoolean();
+        final int readPreviousX = state.readInt();
+        final int readPreviousY = state.readInt();
+        final RandomService readRandom = readObject(state, RandomService.class);
+        final Player readPlayer = readObject(state, Player.class);
+        final List<GameObject> stored = readObjects(state);
+        final List<GameObject> gridded = readObjects(state);
+
+        this.entities.clear();
+        this.grid.clear();
+        stored.forEach(this.entities::add);
+        gridded.forEach(this.grid::add);
+        this.ticks = readTicks;
+        this.bossHasBeenSpawned = readBossSpawned;
+        this.randomService = readRandom;
+        this.setPlayer(readPlayer);
+        this.previousPlayerX = readPreviousX;
+        this.previousPlayerY = readPreviousY;
+    }
+
+    private static <T> T readObject(final ObjectInputStream in, final Class<T> type) throws IOException {
+        try {
+            final Object read = in.readObject();
+            if (!type.isInstance(read)) {
+                throw new InvalidObjectException("Expected a " + type.getSimpleName());
+            }
+            return type.cast(read);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in the state", e);
+        }
+    }
+
+    private static List<GameObject> readObjects(final ObjectInputStream in) throws IOException {
+        final List<?> read = readObject(in, List.class);
+        final List<GameObject> objects = new ArrayList<>(read.size());
+        for (final Object o : read) {
+            if (!(o instanceof GameObject)) {
+                throw new InvalidObjectException("Expected a game object");
+            }
+            objects.add((GameObject) o);
+        }
+        return objects;
+    }
+
+    /**
+     * @return whether a state being read may go on, given the class or the sizes checked.
+     */
+    private static ObjectInputFilter.Status checkState(final ObjectInputFilter.FilterInfo info) {
+        if (info.depth() > MAX_STATE_DEPTH || info.streamBytes() > MAX_STATE_BYTES
+                || info.references() > MAX_STATE_REFERENCES || info.arrayLength() > MAX_STATE_ARRAY_LENGTH) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+        Class<?> type = info.serialClass();
+        // lists check their backing array, whose elements are checked one by one
+        if (type == null || type == Object[].class) {
+            return ObjectInputFilter.Status.ALLOWED;
+        }
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        final boolean allowed = type.isPrimitive() || Enum.class.isAssignableFrom(type)
+                || type.getName().startsWith(MODEL_PACKAGE)
+                || type == ArrayList.class || type == Point.class;
+        return allowed ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    }
+
+    /**
+     * Writes the services shared with the entities as references to the ones of the world.
+     */
+    private final class StateOutputStream extends ObjectOutputStream {
+        StateOutputStream(final OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(final Object obj) {
+            if (obj == tileMap) {
+                return Shared.TILE_MAP;
+            } else if (obj == flowField) {
+                return Shared.FLOW_FIELD;
+            } else if (obj == pathfinder) {
+                return Shared.PATHFINDER;
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Reads the references to the services shared with the entities as the ones of the world, rejecting any
+     * class a state can't hold.
+     */
+    private final class StateInputStream extends ObjectInputStream {
+        StateInputStream(final InputStream in) throws IOException {
+            super(in);
+            enableResolveObject(true);
+            setObjectInputFilter(World::checkState);
+        }
+
+        @Override
+        protected Object resolveObject(final Object obj) {
+            if (obj == Shared.TILE_MAP) {
+                return tileMap;
+            } else if (obj == Shared.FLOW_FIELD) {
+                return flowField;
+            } else if (obj == Shared.PATHFINDER) {
+                return pathfinder;
+            }
+            return obj;
+        }
+    }
+
     private static final class KeyManagerProxy {
-        private final KeyManager km = KeyManager.getKeyManager();
+        private final InputSource km;
+
+        KeyManagerProxy(final InputSource km) {
+            this.km = km;
+        }
 
         public boolean up() {
             return this.km.isKeyPressed(KeyEvent.VK_W) || this.km.isKeyPressed(KeyEvent.VK_UP);
@@ -223,4 +664,93 @@ public final class World {
             return this.km.isKeyPressed(KeyEvent.VK_SPACE);
         }
     }
+
+    /**
+     * What the entity being updated sees of the world, reused for every entity.
+     * Areas are looked up in the grid, and the player, which isn't in it, is checked last.
+     */
+    private final class GridView implements WorldView {
+        private final ProjectilePool pool;
+        private GameObject self;
+        /**
+         * Where the entities self spawns go.
+         */
+        private List<GameObject> spawned;
+        private final Consumer<GameObject> spawnSink = (spawn) -> this.spawned.add(spawn);
+        /**
+         * The random numbers of self in this update, taken when first asked for.
+         */
+        private SplittableRandom selfRandom;
+
+        GridView(final ProjectilePool pool) {
+            this.pool = pool;
+        }
+
+        void setSelf(final GameObject self, final List<GameObject> spawned) {
+            this.self = self;
+            this.spawned = spawned;
+            this.selfRandom = null;
+        }
+
+        @Override
+        public Optional<Player> getPlayer() {
+            return self == player ? Optional.empty() : Optional.of(player);
+        }
+
+        @Override
+        public ProjectilePool getProjectilePool() {
+            return pool;
+        }
+
+        @Override
+        public Consumer<GameObject> getSpawnSink() {
+            return spawnSink;
+        }
+
+        @Override
+        public SplittableRandom getRandom() {
+            if (selfRandom == null) {
+                selfRandom = randomService.forObject(self, ticks);
+            }
+            return selfRandom;
+        }
+
+        @Override
+        public void forEach(final Consumer<? super GameObject> action) {
+            for (int i = 0; i < entities.size(); i++) {
+                if (entities.objectAt(i) != self) {
+                    action.accept(entities.objectAt(i));
+                }
+            }
+            if (self != player) {
+                action.accept(player);
+            }
+        }
+
+        @Override
+        public void forEachIn(final CollisionBox area, final int teamMask, final int kindMask,
+                final Consumer<? super GameObject> action) {
+            grid.forEach(area.getPosX(), area.getPosY(), area.getWidth(), area.getHeight(), teamMask, kindMask, self,
+                    action);
+            if (playerMatches(area, teamMask, kindMask)) {
+                action.accept(player);
+            }
+        }
+
+        @Override
+        public Optional<GameObject> findFirstIn(final CollisionBox area, final int teamMask, final int kindMask,
+                final Predicate<? super GameObject> filter) {
+            final Optional<GameObject> found = grid.findFirst(area.getPosX(), area.getPosY(), area.getWidth(),
+                    area.getHeight(), teamMask, kindMask, self, filter);
+            if (found.isEmpty() && playerMatches(area, teamMask, kindMask) && filter.test(player)) {
+                return Optional.of(player);
+            }
+            return found;
+        }
+
+        private boolean playerMatches(final CollisionBox area, final int teamMask, final int kindMask) {
+            return self != player && (teamMask & 1 << player.getTeam().ordinal()) != 0
+                    && (kindMask & 1 << player.getKind().ordinal()) != 0 && player.getHitBox().overlaps(area);
+        }
+    }
 }
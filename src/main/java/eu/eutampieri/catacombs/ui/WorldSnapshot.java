@@ -0,0 +1,91 @@
+package eu.eutampieri.catacombs.ui;
+
+import eu.eutampieri.catacombs.model.Camera;
+import eu.eutampieri.catacombs.ui.gamefx.TileLayerCache;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The sprites of the objects on camera and where they were before and after an update.
+ * It's filled by the world and never changed after, so it can be drawn by another thread.
+ */
+final class WorldSnapshot implements RenderSnapshot {
+    private final TileLayerCache tileLayer;
+    private final int mapWidth, mapHeight;
+    private final int width, height;
+    private int fromFocusX, fromFocusY, toFocusX, toFocusY;
+    private int size;
+    private BufferedImage[] sprites;
+    private int[] fromX, fromY, toX, toY;
+
+    /**
+     * @param tileLayer the tiles of the map
+     * @param mapWidth  width of the map in world units
+     * @param mapHeight height of the map in world units
+     * @param width     width of the canvas
+     * @param height    height of the canvas
+     * @param capacity  the number of sprites expected
+     */
+    WorldSnapshot(final TileLayerCache tileLayer, final int mapWidth, final int mapHeight, final int width,
+            final int height, final int capacity) {
+        this.tileLayer = tileLayer;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.width = width;
+        this.height = height;
+        final int initialCapacity = Math.max(1, capacity);
+        this.sprites = new BufferedImage[initialCapacity];
+        this.fromX = new int[initialCapacity];
+        this.fromY = new int[initialCapacity];
+        this.toX = new int[initialCapacity];
+        this.toY = new int[initialCapacity];
+    }
+
+    /**
+     * Sets the point the camera is centered on, before and after the update.
+     */
+    void focus(final int fromX, final int fromY, final int toX, final int toY) {
+        this.fromFocusX = fromX;
+        this.fromFocusY = fromY;
+        this.toFocusX = toX;
+        this.toFocusY = toY;
+    }
+
+    /**
+     * Adds a sprite, drawn over the ones added before.
+     */
+    void add(final BufferedImage sprite, final int fromX, final int fromY, final int toX, final int toY) {
+        if (size == sprites.length) {
+            final int capacity = size * 2;
+            this.sprites = Arrays.copyOf(this.sprites, capacity);
+            this.fromX = Arrays.copyOf(this.fromX, capacity);
+            this.fromY = Arrays.copyOf(this.fromY, capacity);
+            this.toX = Arrays.copyOf(this.toX, capacity);
+            this.toY = Arrays.copyOf(this.toY, capacity);
+        }
+        this.sprites[size] = sprite;
+        this.fromX[size] = fromX;
+        this.fromY[size] = fromY;
+        this.toX[size] = toX;
+        this.toY[size] = toY;
+        size++;
+    }
+
+    @Override
+    public void render(final Graphics2D g2, final float interpolation) {
+        final Camera camera = new Camera(0, 0, mapWidth, mapHeight);
+        camera.centerOn(interpolate(fromFocusX, toFocusX, interpolation),
+                interpolate(fromFocusY, toFocusY, interpolation), width, height);
+        tileLayer.render(g2, camera.getXOffset(), camera.getYOffset(), width, height);
+        for (int i = 0; i < size; i++) {
+            g2.drawImage(sprites[i], null, interpolate(fromX[i], toX[i], interpolation) - camera.getXOffset(),
+                    interpolate(fromY[i], toY[i], interpolation) - camera.getYOffset());
+        }
+    }
+
+    private static int interpolate(final int from, final int to, final float interpolation) {
+        return from + Math.round((to - from) * interpolation);
+    }
+}
@@ -2,6 +2,8 @@ package eu.eutampieri.catacombs.ui.gamefx;
 
 import eu.eutampieri.catacombs.model.*;
 import eu.eutampieri.catacombs.model.map.Tile;
+import eu.eutampieri.catacombs.model.map.WallMask;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import eu.eutampieri.catacombs.ui.Animation;
 import eu.eutampieri.catacombs.ui.utils.ImageTransformerFactory;
 import eu.eutampieri.catacombs.ui.utils.ImageTransformerFactoryImpl;
@@ -10,7 +12,9 @@ import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -19,11 +23,34 @@ import java.util.Optional;
  * A proxy for AssetManager, which improves its flexibility, extensibility and reliability.
  */
 public final class AssetManagerProxy {
-    private static final double MAP_SCALING_FACTOR = 2.25;
     private static final double BULLET_SCALING_FACTOR = 0.25;
     private static final double BOSS_BULLET_SCALING_FACTOR = 1;
-    private static final double WEAPON_SCALING_FACTOR = 0.85;
+    private static final double WEAPON_SCALING_FACTOR = Weapon.SCALING_FACTOR;
     private static final Map<Tile, BufferedImage> MAP_CACHE = new HashMap<>();
+    /**
+     * The sprites of the variants of tiles, by side in pixels.
+     */
+    private static final Map<Integer, Map<Tile, BufferedImage[]>> TILE_VARIANTS_CACHE = new HashMap<>();
+    /**
+     * The images of the variants of walls up to TileVariants.WALL_EDGE, indexed as in TileVariants.
+     */
+    private static final String[] WALL_VARIANTS = {"background", "25", "26", "27", "9", "13", "17"};
+    /**
+     * The top of a wall with ledges on its left and bottom sides, which the other ledges are cut from.
+     */
+    private static final String WALL_LEDGES = "1";
+    /**
+     * How many times the width of a ledge a tile is.
+     */
+    private static final int LEDGES_PER_TILE = 4;
+    private static final int NORTHERN = WallMask.NORTH | WallMask.NORTH_EAST | WallMask.NORTH_WEST;
+    private static final int SOUTHERN = WallMask.SOUTH | WallMask.SOUTH_EAST | WallMask.SOUTH_WEST;
+    private static final int EASTERN = WallMask.EAST | WallMask.NORTH_EAST | WallMask.SOUTH_EAST;
+    private static final int WESTERN = WallMask.WEST | WallMask.NORTH_WEST | WallMask.SOUTH_WEST;
+    /**
+     * The images of the variants of floors, indexed as in TileVariants.
+     */
+    private static final String[] FLOOR_VARIANTS = {"41", "32", "33", "34", "60", "61"};
     private static final Map<Triple<Entity, Action, Direction>, Pair<Animation, Long>> ANIMATIONS_CACHE = new HashMap<>();
     private static final Map<StaticEntityKind, BufferedImage> STATIC_ASSETS_CACHE = new HashMap<>();
 
@@ -140,7 +167,7 @@ public final class AssetManagerProxy {
     }
 
     /**
-     * Get a sprite for a map tile.
+     * Get a sprite for a map tile, as large as a tile of WorldGeometry.DEFAULT.
      * @param tile The tile you want to render
      * @return An optional containing a BufferedImage if the tile needs to be rendered
      */
@@ -159,21 +186,112 @@ public final class AssetManagerProxy {
         default:
             return Optional.empty();
         }
-        final ImageTransformerFactory itf = new ImageTransformerFactoryImpl();
-        MAP_CACHE.put(tile, itf.scale(MAP_SCALING_FACTOR).transform(tileImg));
+        MAP_CACHE.put(tile, scaleTo(tileImg, WorldGeometry.DEFAULT_TILE_SIZE));
         return Optional.of(MAP_CACHE.get(tile));
     }
 
+    /**
+     * Get a sprite for a variant of a map tile, as large as a tile of WorldGeometry.DEFAULT.
+     * @param tile The tile you want to render
+     * @param variant The variant of the tile, as computed by TileVariants
+     * @return An optional containing a BufferedImage if the tile needs to be rendered
+     * @see TileVariants
+     */
+    public static Optional<BufferedImage> getTileSprite(final Tile tile, final int variant) {
+        return getTileSprite(tile, variant, WorldGeometry.DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Get a sprite for a variant of a map tile.
+     * @param tile The tile you want to render
+     * @param variant The variant of the tile, as computed by TileVariants
+     * @param size The side in pixels of the sprite
+     * @return An optional containing a BufferedImage if the tile needs to be rendered
+     * @see TileVariants
+     */
+    public static Optional<BufferedImage> getTileSprite(final Tile tile, final int variant, final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException();
+        }
+        final String[] keys;
+        switch (tile) {
+        case FLOOR:
+            keys = FLOOR_VARIANTS;
+            break;
+        case WALL:
+            keys = WALL_VARIANTS;
+            break;
+        default:
+            return Optional.empty();
+        }
+        final int count = tile == Tile.WALL ? TileVariants.WALL_VARIANTS : keys.length;
+        if (variant < 0 || variant >= count) {
+            throw new IllegalArgumentException();
+        }
+        final BufferedImage[] sprites = TILE_VARIANTS_CACHE.computeIfAbsent(size, (s) -> new EnumMap<>(Tile.class))
+                .computeIfAbsent(tile, (t) -> new BufferedImage[count]);
+        if (sprites[variant] == null) {
+            final BufferedImage tileImg = tile == Tile.WALL && variant >= TileVariants.WALL_CAP
+                    ? wallTop(variant)
+                    : AssetManager.getAssetManager().getImage(keys[variant]);
+            sprites[variant] = scaleTo(tileImg, size);
+        }
+        return Optional.of(sprites[variant]);
+    }
+
+    /**
+     * @return the square image scaled to the given side in pixels.
+     */
+    private static BufferedImage scaleTo(final BufferedImage image, final int size) {
+        return new ImageTransformerFactoryImpl().scale((double) size / image.getWidth()).transform(image);
+    }
+
+    /**
+     * Draws the top of a wall with ledges.
+     * The ledge below is the one on top of the bricks, the others are cut from the wall with ledges on its left and
+     * bottom sides, flipped so that they lie on the right side or corner.
+     * @param variant a variant of a wall from TileVariants.WALL_CAP on
+     * @return the image of the variant, not scaled.
+     */
+    private static BufferedImage wallTop(final int variant) {
+        final AssetManager am = AssetManager.getAssetManager();
+        final BufferedImage top = am.getImage(WALL_VARIANTS[TileVariants.WALL_TOP]);
+        final int width = top.getWidth();
+        final int height = top.getHeight();
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = image.createGraphics();
+        g.drawImage(top, 0, 0, null);
+        final int ledges = TileVariants.ledgesOf(variant);
+        if ((ledges & WallMask.SOUTH) != 0) {
+            // ledges are transparent above the bricks, where the top of the wall shows through
+            g.drawImage(am.getImage(WALL_VARIANTS[variant < TileVariants.WALL_EDGE ? variant
+                    : TileVariants.WALL_CAP]), 0, 0, null);
+        }
+        final BufferedImage source = am.getImage(WALL_LEDGES);
+        final ImageTransformerFactory itf = new ImageTransformerFactoryImpl();
+        final int ledgeWidth = width / LEDGES_PER_TILE;
+        final int ledgeHeight = height / LEDGES_PER_TILE;
+        for (int part = WallMask.NORTH; part <= WallMask.NORTH_WEST; part <<= 1) {
+            if (part == WallMask.SOUTH || (ledges & part) == 0) {
+                continue;
+            }
+            final boolean northern = (part & NORTHERN) != 0;
+            final boolean eastern = (part & EASTERN) != 0;
+            g.setClip(eastern ? width - ledgeWidth : 0, (part & SOUTHERN) == 0 ? 0 : height - ledgeHeight,
+                    (part & (EASTERN | WESTERN)) == 0 ? width : ledgeWidth,
+                    (part & (NORTHERN | SOUTHERN)) == 0 ? height : ledgeHeight);
+            g.drawImage(itf.flip(northern, eastern).transform(source), 0, 0, null);
+        }
+        g.dispose();
+        return image;
+    }
+
     /**
      * Calculate the map tile size.
-     * @return The size of a map tile.
+     * @return The size in pixels of a map tile of WorldGeometry.DEFAULT, as a world unit is drawn as a pixel.
      */
     public static int getMapTileSize() {
-        final Optional<BufferedImage> maybeTile = getTileSprite(Tile.FLOOR);
-        assert maybeTile.isPresent();
-        final BufferedImage tile = maybeTile.get();
-        assert tile.getHeight() == tile.getWidth();
-        return tile.getHeight();
+        return WorldGeometry.DEFAULT_TILE_SIZE;
     }
 
     private enum StaticEntityKind {
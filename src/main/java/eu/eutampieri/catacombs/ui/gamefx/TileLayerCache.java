@@ -0,0 +1,173 @@
+package eu.eutampieri.catacombs.ui.gamefx;
+
+import eu.eutampieri.catacombs.model.map.Tile;
+import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The tiles of a map, drawn once into square chunks of tiles which are then copied on screen as a whole.
+ * Each tile is drawn with the sprite of its variant, scaled to the side of a tile, as a world unit is drawn as a
+ * pixel.
+ * Only the chunks intersecting the visible area are drawn, so the cost of a frame doesn't depend on the size of
+ * the map. Chunks are kept in accelerated images, which are redrawn when their contents are lost, and only the
+ * most recently used ones are kept.
+ * The sprites are taken when the cache is created, so that it can draw from a thread other than the one which
+ * created it, as long as a single thread draws.
+ */
+public final class TileLayerCache {
+    /**
+     * Default side of a chunk in tiles.
+     */
+    public static final int DEFAULT_CHUNK_TILES = 16;
+    /**
+     * Default number of chunks kept.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final TileMap tileMap;
+    private final TileVariants variants;
+    private final WorldGeometry geometry;
+    private final int chunkTiles;
+    /**
+     * Side of a chunk in world units.
+     */
+    private final int chunkSide;
+    private final Map<Long, VolatileImage> chunks;
+    /**
+     * The sprite of each variant of each tile, by ordinal of the tile.
+     */
+    private final BufferedImage[][] sprites = new BufferedImage[Tile.values().length][];
+
+    /**
+     * @param tileMap the map to draw
+     */
+    public TileLayerCache(final TileMap tileMap) {
+        this(tileMap, DEFAULT_CHUNK_TILES, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param tileMap    the map to draw
+     * @param chunkTiles side of a chunk in tiles
+     * @param capacity   maximum number of chunks kept
+     */
+    public TileLayerCache(final TileMap tileMap, final int chunkTiles, final int capacity) {
+        if (chunkTiles < 1 || capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.tileMap = tileMap;
+        this.variants = TileVariants.of(tileMap);
+        this.geometry = tileMap.geometry();
+        this.chunkTiles = chunkTiles;
+        this.chunkSide = geometry.length(chunkTiles);
+        for (final Tile tile : Tile.values()) {
+            final int count = tile == Tile.WALL ? TileVariants.WALL_VARIANTS
+                    : tile == Tile.FLOOR ? TileVariants.FLOOR_VARIANTS : 0;
+            sprites[tile.ordinal()] = new BufferedImage[count];
+            for (int variant = 0; variant < count; variant++) {
+                sprites[tile.ordinal()][variant] = AssetManagerProxy.getTileSprite(tile, variant,
+                        geometry.getTileSize()).orElse(null);
+            }
+        }
+        this.chunks = new LinkedHashMap<>(capacity + 1, 1f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, VolatileImage> eldest) {
+                if (size() > capacity) {
+                    eldest.getValue().flush();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Draws the tiles visible in an area of the world.
+     * @param g      the canvas, whose origin is the top left corner of the area
+     * @param x      X of the top left corner of the area in world units
+     * @param y      Y of the top left corner of the area in world units
+     * @param width  width of the area
+     * @param height height of the area
+     */
+    public void render(final Graphics2D g, final int x, final int y, final int width, final int height) {
+        final int fromX = Math.max(0, Math.floorDiv(x, chunkSide));
+        final int fromY = Math.max(0, Math.floorDiv(y, chunkSide));
+        final int toX = Math.min(Math.floorDiv(x + width, chunkSide), (tileMap.width() - 1) / chunkTiles);
+        final int toY = Math.min(Math.floorDiv(y + height, chunkSide), (tileMap.height() - 1) / chunkTiles);
+        for (int cy = fromY; cy <= toY; cy++) {
+            for (int cx = fromX; cx <= toX; cx++) {
+                drawChunk(g, cx, cy, cx * chunkSide - x, cy * chunkSide - y);
+            }
+        }
+    }
+
+    /**
+     * Frees all the chunks, so that they're drawn again when needed.
+     */
+    public void invalidate() {
+        chunks.values().forEach(VolatileImage::flush);
+        chunks.clear();
+    }
+
+    /**
+     * @return the number of chunks currently kept.
+     */
+    public int cachedChunks() {
+        return chunks.size();
+    }
+
+    private void drawChunk(final Graphics2D g, final int cx, final int cy, final int canvasX, final int canvasY) {
+        final GraphicsConfiguration gc = g.getDeviceConfiguration();
+        final long key = (long) cy << Integer.SIZE | cx & 0xFFFF_FFFFL;
+        VolatileImage image = chunks.get(key);
+        do {
+            final int state = image == null ? VolatileImage.IMAGE_INCOMPATIBLE : image.validate(gc);
+            if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (image != null) {
+                    image.flush();
+                }
+                image = gc.createCompatibleVolatileImage(chunkSide, chunkSide, Transparency.TRANSLUCENT);
+                chunks.put(key, image);
+                paintChunk(image, cx, cy);
+            } else if (state == VolatileImage.IMAGE_RESTORED) {
+                // the contents were lost, e.g. because the display mode changed
+                paintChunk(image, cx, cy);
+            }
+            g.drawImage(image, canvasX, canvasY, null);
+        } while (image.contentsLost());
+    }
+
+    private void paintChunk(final VolatileImage image, final int cx, final int cy) {
+        final Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, chunkSide, chunkSide);
+            g.setComposite(AlphaComposite.SrcOver);
+            final int fromX = cx * chunkTiles;
+            final int fromY = cy * chunkTiles;
+            final int toX = Math.min(fromX + chunkTiles, tileMap.width());
+            final int toY = Math.min(fromY + chunkTiles, tileMap.height());
+            for (int y = fromY; y < toY; y++) {
+                for (int x = fromX; x < toX; x++) {
+                    final BufferedImage[] tileSprites = sprites[tileMap.at(x, y).ordinal()];
+                    if (tileSprites.length > 0) {
+                        g.drawImage(tileSprites[variants.variantAt(x, y)], null, geometry.toWorld(x - fromX),
+                                geometry.toWorld(y - fromY));
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+}
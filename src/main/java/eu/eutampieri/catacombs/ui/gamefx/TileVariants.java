@@ -0,0 +1,211 @@
+package eu.eutampieri.catacombs.ui.gamefx;
+
+import eu.eutampieri.catacombs.model.map.Tile;
+import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.WallMask;
+
+import java.util.Arrays;
+
+/**
+ * Which sprite each tile of a map is drawn with, chosen from the tiles around it.
+ * Walls above a floor show their bricks; the others are drawn as the top of the wall, with a ledge on each side
+ * facing a floor or the bricks below and on each corner where only the diagonal tile is a floor, which makes the
+ * edges and corners of rooms. Floors get some variety.
+ * The variants are computed once, when the map is created, so drawing a tile is just a lookup.
+ */
+public final class TileVariants {
+    /**
+     * The top of a wall, seen from above, with no ledges.
+     */
+    public static final int WALL_TOP = 0;
+    /**
+     * The first of the brick faces of walls above a floor.
+     */
+    public static final int WALL_FACE = 1;
+    /**
+     * The first of the tops of walls with just the ledge on top of the bricks below.
+     */
+    public static final int WALL_CAP = WALL_FACE + 3;
+    /**
+     * The first of the tops of walls with ledges on other sides or corners, one for each arrangement of ledges.
+     */
+    public static final int WALL_EDGE = WALL_CAP + 3;
+    /**
+     * Number of variants of floors, the first one being the plain floor.
+     */
+    public static final int FLOOR_VARIANTS = 6;
+    /**
+     * Maps bigger than this, in tiles, compute the variants when they're asked for, so that maps which are
+     * generated lazily aren't generated as a whole; it's well above the size of the dungeons of the game.
+     */
+    public static final int MAX_BAKED_TILES = 1 << 18;
+
+    private static final int FACE_VARIANTS = WALL_CAP - WALL_FACE;
+    private static final int CAP_VARIANTS = WALL_EDGE - WALL_CAP;
+    private static final int MASKS = 1 << Byte.SIZE;
+    /**
+     * The corners of a tile, each followed by the two sides it lies between.
+     */
+    private static final int[][] CORNERS = {
+        {WallMask.NORTH_EAST, WallMask.NORTH, WallMask.EAST},
+        {WallMask.SOUTH_EAST, WallMask.SOUTH, WallMask.EAST},
+        {WallMask.SOUTH_WEST, WallMask.SOUTH, WallMask.WEST},
+        {WallMask.NORTH_WEST, WallMask.NORTH, WallMask.WEST},
+    };
+    /**
+     * The variant of the top of a wall, indexed by its wall mask, plus MASKS if the wall below shows its bricks;
+     * caps are all WALL_CAP.
+     */
+    private static final byte[] TOP_VARIANTS = new byte[2 * MASKS];
+    /**
+     * The ledges of each variant from WALL_EDGE on.
+     */
+    private static final int[] EDGE_LEDGES;
+    /**
+     * Number of variants of walls.
+     */
+    public static final int WALL_VARIANTS;
+
+    static {
+        final boolean[] used = new boolean[MASKS];
+        for (int index = 0; index < TOP_VARIANTS.length; index++) {
+            used[ledges(index % MASKS, index >= MASKS)] = true;
+        }
+        final int[] variantOf = new int[MASKS];
+        variantOf[WallMask.SOUTH] = WALL_CAP;
+        final int[] edgeLedges = new int[MASKS];
+        int edges = 0;
+        for (int ledges = 0; ledges < MASKS; ledges++) {
+            if (used[ledges] && ledges != 0 && ledges != WallMask.SOUTH) {
+                variantOf[ledges] = WALL_EDGE + edges;
+                edgeLedges[edges] = ledges;
+                edges++;
+            }
+        }
+        EDGE_LEDGES = Arrays.copyOf(edgeLedges, edges);
+        for (int index = 0; index < TOP_VARIANTS.length; index++) {
+            TOP_VARIANTS[index] = (byte) variantOf[ledges(index % MASKS, index >= MASKS)];
+        }
+        WALL_VARIANTS = WALL_EDGE + edges;
+    }
+    /**
+     * How many times more common than the other variants the plain floor is.
+     */
+    private static final int PLAIN_FLOOR_WEIGHT = 4;
+
+    private final TileMap tileMap;
+    /**
+     * The variant of the tile at column x and row y at index y * width + x, or null if not baked.
+     */
+    private final byte[] variants;
+
+    private TileVariants(final TileMap tileMap, final byte[] variants) {
+        this.tileMap = tileMap;
+        this.variants = variants;
+    }
+
+    /**
+     * @param tileMap a map
+     * @return the variants of the tiles of tileMap, computed now unless the map is bigger than MAX_BAKED_TILES.
+     */
+    public static TileVariants of(final TileMap tileMap) {
+        final int width = tileMap.width();
+        if ((long) width * tileMap.height() > MAX_BAKED_TILES) {
+            return new TileVariants(tileMap, null);
+        }
+        final byte[] masks = WallMask.of(tileMap);
+        final byte[] variants = new byte[masks.length];
+        for (int i = 0; i < masks.length; i++) {
+            final int x = i % width;
+            final int y = i / width;
+            final int below = y + 1 < tileMap.height() ? masks[i + width] : -1;
+            variants[i] = (byte) variant(tileMap.at(x, y), masks[i], below, x, y);
+        }
+        return new TileVariants(tileMap, variants);
+    }
+
+    /**
+     * @param x column
+     * @param y row
+     * @return the variant of the tile at column x and row y, 0 outside of the map.
+     */
+    public int variantAt(final int x, final int y) {
+        if (x < 0 || y < 0 || x >= tileMap.width() || y >= tileMap.height()) {
+            return 0;
+        }
+        if (variants != null) {
+            return variants[y * tileMap.width() + x];
+        }
+        return variant(tileMap.at(x, y), WallMask.of(tileMap, x, y), WallMask.of(tileMap, x, y + 1), x, y);
+    }
+
+    /**
+     * @param variant a variant of a wall
+     * @return the sides and corners of the top of the wall with a ledge, as the bits of a wall mask; none for the
+     *         faces of walls.
+     */
+    public static int ledgesOf(final int variant) {
+        if (variant < 0 || variant >= WALL_VARIANTS) {
+            throw new IllegalArgumentException();
+        }
+        if (variant >= WALL_EDGE) {
+            return EDGE_LEDGES[variant - WALL_EDGE];
+        }
+        return variant >= WALL_CAP ? WallMask.SOUTH : 0;
+    }
+
+    /**
+     * @param mask       the wall mask of the top of a wall
+     * @param facesBelow if the wall below shows its bricks
+     * @return the sides and corners of the top with a ledge, as the bits of a wall mask.
+     */
+    private static int ledges(final int mask, final boolean facesBelow) {
+        int ledges = mask & WallMask.NORTH | mask & WallMask.EAST | mask & WallMask.WEST;
+        ledges ^= WallMask.NORTH | WallMask.EAST | WallMask.WEST;
+        ledges |= facesBelow ? WallMask.SOUTH : 0;
+        for (final int[] corner : CORNERS) {
+            if ((ledges & (corner[1] | corner[2])) == 0 && (mask & corner[0]) == 0) {
+                ledges |= corner[0];
+            }
+        }
+        return ledges;
+    }
+
+    /**
+     * @param tile      a tile
+     * @param mask      the wall mask of the tile
+     * @param maskBelow the wall mask of the tile below it
+     * @param x         column of the tile
+     * @param y         row of the tile
+     * @return the variant the tile is drawn with.
+     */
+    private static int variant(final Tile tile, final int mask, final int maskBelow, final int x, final int y) {
+        final int hash = hash(x, y);
+        switch (tile) {
+        case WALL:
+            if ((mask & WallMask.SOUTH) == 0) {
+                return WALL_FACE + hash % FACE_VARIANTS;
+            }
+            final boolean facesBelow = (maskBelow & WallMask.SOUTH) == 0;
+            final int top = TOP_VARIANTS[mask & (MASKS - 1) | (facesBelow ? MASKS : 0)];
+            return top == WALL_CAP ? WALL_CAP + hash % CAP_VARIANTS : top;
+        case FLOOR:
+            return Math.max(0, hash % (FLOOR_VARIANTS + PLAIN_FLOOR_WEIGHT - 1) - PLAIN_FLOOR_WEIGHT + 1);
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * @return a non negative number which looks random but only depends on x and y.
+     */
+    private static int hash(final int x, final int y) {
+        // Check:OFF: MagicNumber
+        int h = x * 0x9E3779B1 ^ y * 0x85EBCA77;
+        h ^= h >>> 15;
+        h *= 0x2C1B3C6D;
+        h ^= h >>> 12;
+        // Check:ON: MagicNumber
+        return h & Integer.MAX_VALUE;
+    }
+}
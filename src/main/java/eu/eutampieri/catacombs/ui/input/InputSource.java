@@ -0,0 +1,19 @@
+package eu.eutampieri.catacombs.ui.input;
+
+/**
+ * Tells which keys are pressed, whether they come from the keyboard, a script or a bot.
+ * Keys are identified by the codes of KeyEvent.
+ */
+@FunctionalInterface
+public interface InputSource {
+    /**
+     * An input source whose keys are never pressed.
+     */
+    InputSource NONE = (keyCode) -> false;
+
+    /**
+     * @param keyCode the key to check
+     * @return true if the key is pressed
+     */
+    boolean isKeyPressed(int keyCode);
+}
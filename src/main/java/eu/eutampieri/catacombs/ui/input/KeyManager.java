@@ -7,7 +7,7 @@ import java.awt.event.KeyEvent;
  * this class manages the key events.
  */
 
-public final class KeyManager extends KeyAdapter {
+public final class KeyManager extends KeyAdapter implements InputSource {
 
     private static final KeyManager SINGLETON_KEYMANAGER = new KeyManager();
     private boolean[] keys;
@@ -36,6 +36,7 @@ public final class KeyManager extends KeyAdapter {
      * @return true if the key is pressed
      */
 
+    @Override
     public boolean isKeyPressed(final int keyCode) {
         return this.keys[keyCode];
     }
@@ -0,0 +1,66 @@
+package eu.eutampieri.catacombs.ui.input;
+
+import java.awt.event.KeyEvent;
+
+/**
+ * The keys the game reads, as they were when another source was last sampled, packed in a mask with a bit per key.
+ * The world reads its input once per update, so the masks of its updates are all it needs to be replayed.
+ */
+public final class SampledInput implements InputSource {
+    private static final int[] KEYS = {
+        KeyEvent.VK_W, KeyEvent.VK_UP, KeyEvent.VK_S, KeyEvent.VK_DOWN, KeyEvent.VK_A, KeyEvent.VK_LEFT,
+        KeyEvent.VK_D, KeyEvent.VK_RIGHT, KeyEvent.VK_SPACE,
+    };
+    private static final int ALL_KEYS = (1 << KEYS.length) - 1;
+
+    private int mask;
+
+    /**
+     * @param keyCode a key
+     * @return the bit of the key in a mask, or 0 if the game doesn't read it.
+     */
+    public static int bitOf(final int keyCode) {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i] == keyCode) {
+                return 1 << i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Takes the keys pressed now in another source.
+     * @param source the source
+     */
+    public void sample(final InputSource source) {
+        int sampled = 0;
+        for (int i = 0; i < KEYS.length; i++) {
+            if (source.isKeyPressed(KEYS[i])) {
+                sampled |= 1 << i;
+            }
+        }
+        this.mask = sampled;
+    }
+
+    /**
+     * @return the keys pressed, a bit each.
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * @param mask the keys pressed, a bit each
+     */
+    public void setMask(final int mask) {
+        if ((mask & ~ALL_KEYS) != 0) {
+            throw new IllegalArgumentException("Unknown keys in mask " + Integer.toBinaryString(mask));
+        }
+        this.mask = mask;
+    }
+
+    @Override
+    public boolean isKeyPressed(final int keyCode) {
+        return (mask & bitOf(keyCode)) != 0;
+    }
+}
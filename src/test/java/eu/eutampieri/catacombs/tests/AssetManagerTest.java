@@ -1,14 +1,127 @@
 package eu.eutampieri.catacombs.tests;
 
+import eu.eutampieri.catacombs.model.map.Tile;
+import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
+import eu.eutampieri.catacombs.model.map.TileMapImpl;
+import eu.eutampieri.catacombs.model.map.WallMask;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import eu.eutampieri.catacombs.ui.gamefx.AssetManager;
+import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
+import eu.eutampieri.catacombs.ui.gamefx.TileLayerCache;
+import eu.eutampieri.catacombs.ui.gamefx.TileVariants;
 import org.junit.jupiter.api.Test;
 
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AssetManagerTest {
+    private static final int VIEW_WIDTH = 400;
+    private static final int VIEW_HEIGHT = 300;
+
     @Test
     void assetManagerTest() {
         final AssetManager am = AssetManager.getAssetManager();
         assertNull(am.getImage("ciaone"));
     }
+
+    @Test
+    void testTileLayerMatchesTiles() {
+        final TileMap map = new TileMapFactoryImpl().seededDef(7);
+        assertTileLayerMatchesTiles(map);
+        // tiles are as large on screen as they are in the world, whatever the geometry
+        assertTileLayerMatchesTiles(new WorldGeometry(16).on(map));
+        assertEquals(16, AssetManagerProxy.getTileSprite(Tile.FLOOR, 0, 16).get().getWidth());
+        assertEquals(WorldGeometry.DEFAULT_TILE_SIZE, AssetManagerProxy.getMapTileSize());
+    }
+
+    private static void assertTileLayerMatchesTiles(final TileMap map) {
+        final int tileSize = map.geometry().getTileSize();
+        final TileLayerCache cache = new TileLayerCache(map, 4, 8);
+        final TileVariants variants = TileVariants.of(map);
+        for (final int[] offset : new int[][] {{0, 0}, {-50, -20}, {tileSize * 10 + 7, tileSize * 12 + 5}}) {
+            final BufferedImage expected = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D eg = expected.createGraphics();
+            for (int y = 0; y < map.height(); y++) {
+                for (int x = 0; x < map.width(); x++) {
+                    final int canvasX = x * tileSize - offset[0];
+                    final int canvasY = y * tileSize - offset[1];
+                    AssetManagerProxy.getTileSprite(map.at(x, y), variants.variantAt(x, y), tileSize)
+                            .ifPresent((tile) -> eg.drawImage(tile, null, canvasX, canvasY));
+                }
+            }
+            eg.dispose();
+            final BufferedImage actual = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D ag = actual.createGraphics();
+            cache.render(ag, offset[0], offset[1], VIEW_WIDTH, VIEW_HEIGHT);
+            ag.dispose();
+            for (int y = 0; y < VIEW_HEIGHT; y++) {
+                for (int x = 0; x < VIEW_WIDTH; x++) {
+                    assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+                }
+            }
+        }
+        assertEquals(8, cache.cachedChunks());
+    }
+
+    @Test
+    void testTileLayerRendersFromAnotherThread() throws InterruptedException {
+        final TileMap map = new TileMapFactoryImpl().seededDef(7);
+        final BufferedImage expected = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D eg = expected.createGraphics();
+        new TileLayerCache(map).render(eg, 0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+        eg.dispose();
+        // the cache is created here and drawn by another thread, as the pipelined game does
+        final TileLayerCache cache = new TileLayerCache(map);
+        final BufferedImage actual = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Thread renderThread = new Thread(() -> {
+            final Graphics2D ag = actual.createGraphics();
+            cache.render(ag, 0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+            ag.dispose();
+        });
+        renderThread.start();
+        renderThread.join();
+        for (int y = 0; y < VIEW_HEIGHT; y++) {
+            for (int x = 0; x < VIEW_WIDTH; x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void testTileVariants() {
+        final Tile[][] tiles = new Tile[4][3];
+        for (final Tile[] row : tiles) {
+            Arrays.fill(row, Tile.WALL);
+        }
+        tiles[2][1] = Tile.FLOOR;
+        final TileVariants variants = TileVariants.of(new TileMapImpl(tiles));
+        // the wall above the floor shows its bricks, the one above it the ledge on top of them
+        assertTrue(variants.variantAt(1, 1) >= TileVariants.WALL_FACE
+                && variants.variantAt(1, 1) < TileVariants.WALL_CAP);
+        assertTrue(variants.variantAt(1, 0) >= TileVariants.WALL_CAP
+                && variants.variantAt(1, 0) < TileVariants.WALL_VARIANTS);
+        assertEquals(TileVariants.WALL_TOP, variants.variantAt(0, 0));
+        assertEquals(WallMask.SOUTH, TileVariants.ledgesOf(variants.variantAt(1, 0)));
+        // the other walls around the floor get a ledge on the side facing it, or on the corner if they touch it there
+        assertEquals(WallMask.NORTH, TileVariants.ledgesOf(variants.variantAt(1, 3)));
+        assertEquals(WallMask.EAST, TileVariants.ledgesOf(variants.variantAt(0, 2)));
+        assertEquals(WallMask.WEST, TileVariants.ledgesOf(variants.variantAt(2, 2)));
+        assertEquals(WallMask.SOUTH_EAST, TileVariants.ledgesOf(variants.variantAt(0, 1)));
+        assertEquals(WallMask.NORTH_WEST, TileVariants.ledgesOf(variants.variantAt(2, 3)));
+        assertEquals(0, TileVariants.ledgesOf(variants.variantAt(1, 1)));
+        assertTrue(variants.variantAt(1, 2) < TileVariants.FLOOR_VARIANTS);
+        for (int variant = 0; variant < TileVariants.WALL_VARIANTS; variant++) {
+            assertEquals(AssetManagerProxy.getMapTileSize(),
+                    AssetManagerProxy.getTileSprite(Tile.WALL, variant).get().getWidth());
+        }
+        for (int variant = 0; variant < TileVariants.FLOOR_VARIANTS; variant++) {
+            assertTrue(AssetManagerProxy.getTileSprite(Tile.FLOOR, variant).isPresent());
+        }
+    }
 }
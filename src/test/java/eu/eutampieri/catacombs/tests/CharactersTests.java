@@ -2,24 +2,40 @@ package eu.eutampieri.catacombs.tests;
 
 import eu.eutampieri.catacombs.model.Bat;
 import eu.eutampieri.catacombs.model.Boss;
+import eu.eutampieri.catacombs.model.Direction;
+import eu.eutampieri.catacombs.model.EntityStore;
+import eu.eutampieri.catacombs.model.FlowField;
 import eu.eutampieri.catacombs.model.GameObject;
 import eu.eutampieri.catacombs.model.GameObjectType;
 import eu.eutampieri.catacombs.model.Gun;
+import eu.eutampieri.catacombs.model.HierarchicalPathfinder;
 import eu.eutampieri.catacombs.model.HealthModifier;
 import eu.eutampieri.catacombs.model.Player;
 import eu.eutampieri.catacombs.model.Projectile;
 import eu.eutampieri.catacombs.model.Slime;
+import eu.eutampieri.catacombs.model.map.ChunkedTileMap;
+import eu.eutampieri.catacombs.model.map.Dungeon;
+import eu.eutampieri.catacombs.model.map.GenerationParameters;
+import eu.eutampieri.catacombs.model.map.Room;
+import eu.eutampieri.catacombs.model.map.Tile;
 import eu.eutampieri.catacombs.model.map.TileMap;
 import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
+import eu.eutampieri.catacombs.model.map.TileMapImpl;
+import eu.eutampieri.catacombs.model.map.WorldGeometry;
 import eu.eutampieri.catacombs.ui.gamefx.AssetManagerProxy;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -102,6 +118,194 @@ class CharactersTests {
         assertNotEquals(initialY, SLIME.getPosY());
     }
 
+    @Test
+    void testMovementStopsAgainstWalls() {
+        final int tileSize = AssetManagerProxy.getMapTileSize();
+        final Player player = new Player(tileSize + 5, tileSize + 3, "player_testing", TILE_MAP);
+        for (int i = 0; i < tileSize; i++) {
+            player.move(Direction.UP);
+            player.update(10, List.of());
+        }
+        // the top row is made of walls
+        assertEquals(tileSize, player.getPosY());
+        assertEquals(tileSize + 5, player.getPosX());
+        for (int i = 0; i < TILE_MAP.width() * tileSize; i++) {
+            player.move(Direction.RIGHT);
+            player.update(10, List.of());
+        }
+        // the hit box spans its width plus one pixel
+        assertEquals((TILE_MAP.width() - 1) * tileSize - 1 - player.getHitBox().getWidth(), player.getPosX());
+        assertEquals(tileSize, player.getPosY());
+    }
+
+    @Test
+    void testWorldGeometry() {
+        assertEquals(AssetManagerProxy.getMapTileSize(), WorldGeometry.DEFAULT.getTileSize());
+        assertEquals(WorldGeometry.DEFAULT, TILE_MAP.geometry());
+        final WorldGeometry geometry = new WorldGeometry(64);
+        assertTrue(geometry.isPowerOfTwo());
+        assertFalse(WorldGeometry.DEFAULT.isPowerOfTwo());
+        for (final WorldGeometry g : List.of(geometry, WorldGeometry.DEFAULT)) {
+            for (int coordinate = -200; coordinate < 200; coordinate++) {
+                assertEquals(Math.floorDiv(coordinate, g.getTileSize()), g.toTile(coordinate));
+                assertEquals(Math.floorMod(coordinate, g.getTileSize()), g.offsetInTile(coordinate));
+            }
+            assertEquals(3 * g.getTileSize(), g.toWorld(3));
+        }
+        final TileMap scaled = geometry.on(TILE_MAP);
+        assertEquals(geometry, scaled.geometry());
+        assertEquals(TILE_MAP.at(0, 0), scaled.at(0, 0));
+        assertEquals(scaled, geometry.on(scaled));
+        // movement on a map with another geometry stops against the walls of that geometry
+        final Player player = new Player(64 + 5, 64 + 3, "player_testing", scaled);
+        for (int i = 0; i < 64; i++) {
+            player.move(Direction.UP);
+            player.update(10, List.of());
+        }
+        assertEquals(64, player.getPosY());
+        assertThrows(IllegalArgumentException.class, () -> new WorldGeometry(0));
+    }
+
+    @Test
+    void testFlowFieldGoesAroundWalls() {
+        // a wall splits the room, except for a gap at the bottom
+        final Tile[][] tiles = new Tile[7][7];
+        for (int y = 0; y < 7; y++) {
+            for (int x = 0; x < 7; x++) {
+                final boolean border = x == 0 || y == 0 || x == 6 || y == 6;
+                tiles[y][x] = border || x == 3 && y < 5 ? Tile.WALL : Tile.FLOOR;
+            }
+        }
+        final FlowField field = new FlowField(new TileMapImpl(tiles));
+        field.setTarget(4, 1);
+        assertEquals(Optional.of(Direction.DOWN), field.directionAt(2, 1));
+        assertEquals(Optional.of(Direction.RIGHT), field.directionAt(2, 5));
+        assertEquals(Optional.of(Direction.UP), field.directionAt(4, 5));
+        assertEquals(Optional.empty(), field.directionAt(4, 1));
+        assertEquals(Optional.empty(), field.directionAt(3, 1));
+        assertEquals(10, field.distanceAt(2, 1));
+        field.setTarget(2, 1);
+        assertEquals(Optional.of(Direction.LEFT), field.directionAt(3, 5));
+        assertEquals(0, field.distanceAt(2, 1));
+        assertEquals(-1, new FlowField(new TileMapImpl(tiles), 2).distanceAt(5, 5));
+    }
+
+    @Test
+    void testFlowFieldCoversSlimeRadar() {
+        final Tile[][] tiles = new Tile[50][50];
+        for (final Tile[] row : tiles) {
+            Arrays.fill(row, Tile.FLOOR);
+        }
+        final FlowField field = new FlowField(new TileMapImpl(tiles), Slime.FOLLOW_DISTANCE);
+        field.setTarget(2, 2);
+        // a player in the far corner of the radar of a slime is still reached by the field
+        final int far = 2 + Slime.FOLLOW_DISTANCE / 2;
+        assertEquals(Slime.FOLLOW_DISTANCE, field.distanceAt(far, far));
+        assertTrue(field.directionAt(far, far).isPresent());
+    }
+
+    @Test
+    void testPathfinderReachesDestination() {
+        final TileMap map = new TileMapFactoryImpl(true).seededDef(3);
+        final HierarchicalPathfinder pathfinder = new HierarchicalPathfinder(map);
+        final Random rand = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            final int[] from = randomWalkable(map, rand);
+            final int[] to = randomWalkable(map, rand);
+            int x = from[0];
+            int y = from[1];
+            for (int steps = 0; (x != to[0] || y != to[1]) && steps < map.width() * map.height(); steps++) {
+                final Optional<Direction> step = pathfinder.nextStep(x, y, to[0], to[1]);
+                assertTrue(step.isPresent());
+                x += FlowField.dx(step.get());
+                y += FlowField.dy(step.get());
+                assertTrue(map.isWalkable(x, y));
+            }
+            assertEquals(to[0], x);
+            assertEquals(to[1], y);
+        }
+        assertTrue(pathfinder.cachedRoutes() > 0);
+        assertEquals(Optional.empty(), pathfinder.nextStep(0, 0, 1, 1));
+    }
+
+    @Test
+    void testBossCrossesCorridor() {
+        // corridors are as wide as the boss needs only when asked to
+        final int footprint = Boss.footprint(WorldGeometry.DEFAULT);
+        final Dungeon dungeon = new TileMapFactoryImpl(true).dungeon(3,
+                GenerationParameters.DEFAULT.withCorridorWidth(footprint));
+        final TileMap map = dungeon.getMap();
+        final WorldGeometry geometry = map.geometry();
+        final Room from = dungeon.getRooms().getRooms().get(0);
+        final Room to = dungeon.getRooms().getRooms().get(1);
+        final Boss boss = new Boss(geometry.toWorld(from.getCenterX()), geometry.toWorld(from.getCenterY()), map);
+        boss.setPathfinder(new HierarchicalPathfinder(map, Boss.footprint(geometry),
+                HierarchicalPathfinder.DEFAULT_CACHE_CAPACITY));
+        final Player player = new Player(geometry.toWorld(to.getCenterX()), geometry.toWorld(to.getCenterY()), "", map);
+        boolean inCorridor = false;
+        for (int tick = 0; tick < 1000 && !boss.getHitBox().overlaps(player.getHitBox()); tick++) {
+            boss.update(16, List.of(player));
+            final int centerX = boss.getPosX() + boss.getHitBox().getWidth() / 2;
+            final int centerY = boss.getPosY() + boss.getHitBox().getHeight() / 2;
+            if (dungeon.getRooms().roomIndexAt(geometry.toTile(centerX), geometry.toTile(centerY)) < 0) {
+                inCorridor = true;
+            }
+        }
+        assertTrue(inCorridor);
+        assertTrue(boss.getHitBox().overlaps(player.getHitBox()));
+        // a gap a single tile wide in a wall is too narrow for a footprint of two tiles
+        final Tile[][] tiles = new Tile[5][7];
+        for (final Tile[] row : tiles) {
+            Arrays.fill(row, Tile.FLOOR);
+        }
+        Arrays.fill(tiles[2], 1, 7, Tile.WALL);
+        assertTrue(new HierarchicalPathfinder(new TileMapImpl(tiles)).isReachable(5, 3, 5, 0));
+        assertFalse(new HierarchicalPathfinder(new TileMapImpl(tiles), 2, 1).isReachable(5, 3, 5, 0));
+        tiles[2][1] = Tile.FLOOR;
+        assertTrue(new HierarchicalPathfinder(new TileMapImpl(tiles), 2, 1).isReachable(5, 3, 5, 0));
+    }
+
+    @Test
+    void testPathfinderOnChunkedMap() {
+        final int side = ChunkedTileMap.CHUNK_SIDE;
+        final ChunkedTileMap map = (ChunkedTileMap) new TileMapFactoryImpl(true).chunked(3, 64, 64);
+        final HierarchicalPathfinder pathfinder = new HierarchicalPathfinder(map);
+        // clusters are only found along the routes planned
+        assertEquals(0, map.loadedChunks());
+        final Random rand = new Random(1);
+        int x = side + rand.nextInt(side);
+        int y = side + rand.nextInt(side);
+        while (!map.isWalkable(x, y)) {
+            x = side + rand.nextInt(side);
+            y = side + rand.nextInt(side);
+        }
+        int toX = 2 * side + rand.nextInt(side);
+        int toY = side + rand.nextInt(side);
+        while (!map.isWalkable(toX, toY)) {
+            toX = 2 * side + rand.nextInt(side);
+            toY = side + rand.nextInt(side);
+        }
+        for (int steps = 0; (x != toX || y != toY) && steps < side * side; steps++) {
+            final Optional<Direction> step = pathfinder.nextStep(x, y, toX, toY);
+            assertTrue(step.isPresent());
+            x += FlowField.dx(step.get());
+            y += FlowField.dy(step.get());
+        }
+        assertEquals(toX, x);
+        assertEquals(toY, y);
+        assertTrue(map.loadedChunks() <= 3 * 3);
+    }
+
+    private static int[] randomWalkable(final TileMap map, final Random rand) {
+        while (true) {
+            final int x = rand.nextInt(map.width());
+            final int y = rand.nextInt(map.height());
+            if (map.isWalkable(x, y)) {
+                return new int[] {x, y };
+            }
+        }
+    }
+
     @Test
     void testBatUpdate() {
         BAT.update(10, List.of(PLAYER));
@@ -113,4 +317,46 @@ class CharactersTests {
         BOSS.update(10, List.of(PLAYER));
         // TODO implement checks
     }
+
+    @Test
+    void testEntityStore() {
+        final EntityStore store = new EntityStore(1);
+        final Player player = new Player(40, 40, "Test", TILE_MAP);
+        final Bat bat = new Bat(80, 80, TILE_MAP);
+        final Slime slime = new Slime(120, 120, TILE_MAP);
+        final int playerHandle = store.add(player);
+        final int batHandle = store.add(bat);
+        final int slimeHandle = store.add(slime);
+        assertThrows(IllegalArgumentException.class, () -> store.add(bat));
+        assertEquals(3, store.size());
+        assertEquals(batHandle, bat.getHandle());
+        // the objects read and write their state in the store
+        bat.setPos(10, 20);
+        bat.getHitBox().move(5, 5);
+        bat.setHealth(3);
+        assertEquals(10, store.posXAt(1));
+        assertEquals(20, store.posYAt(1));
+        assertEquals(GameObjectType.ENEMY, store.kindAt(1));
+        assertEquals(3, bat.getHealth());
+        // removing moves the last object in place of the removed one
+        assertTrue(store.remove(playerHandle));
+        assertFalse(store.remove(playerHandle));
+        assertEquals(slime, store.objectAt(0));
+        assertEquals(Optional.of(slime), store.get(slimeHandle));
+        assertEquals(EntityStore.NO_HANDLE, player.getHandle());
+        player.setPosX(7);
+        assertEquals(7, player.getPosX());
+        // a handle of a removed object stays invalid when its slot is reused
+        final int reused = store.add(player);
+        assertNotEquals(playerHandle, reused);
+        assertFalse(store.contains(playerHandle));
+        assertEquals(Optional.empty(), store.get(playerHandle));
+        assertEquals(1, store.removeIf((o) -> o instanceof Bat));
+        assertEquals(10, bat.getPosX());
+        assertEquals(85, bat.getHitBox().getPosX());
+        assertEquals(3, bat.getHealth());
+        assertEquals(2, store.size());
+        assertTrue(store.contains(reused));
+        assertTrue(store.contains(slimeHandle));
+    }
 }
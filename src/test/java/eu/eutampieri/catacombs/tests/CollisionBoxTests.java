@@ -1,9 +1,25 @@
 package eu.eutampieri.catacombs.tests;
 
 import eu.eutampieri.catacombs.model.CollisionBox;
+import eu.eutampieri.catacombs.model.EntityStore;
+import eu.eutampieri.catacombs.model.GameObject;
+import eu.eutampieri.catacombs.model.GameObjectType;
+import eu.eutampieri.catacombs.model.Projectile;
+import eu.eutampieri.catacombs.model.SimplePotion;
+import eu.eutampieri.catacombs.model.SpatialHashGrid;
+import eu.eutampieri.catacombs.model.UpdateRegions;
+import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -49,4 +65,111 @@ class CollisionBoxTests {
         assertEquals(0, newBox.getWidth());
         assertEquals(0, newBox.getHeight());
     }
+
+    private static double distance(final CollisionBox box, final int x, final int y) {
+        final int dx = x - Math.max(box.getPosX(), Math.min(x, box.getPosX() + box.getWidth()));
+        final int dy = y - Math.max(box.getPosY(), Math.min(y, box.getPosY() + box.getHeight()));
+        return Math.hypot(dx, dy);
+    }
+
+    @Test
+    void testSpatialHashGridMatchesScan() {
+        final TileMap map = new TileMapFactoryImpl().empty(10, 10);
+        final Random rand = new Random(1);
+        final List<GameObject> objects = new ArrayList<>();
+        final SpatialHashGrid grid = new SpatialHashGrid(1000, 1000, 64);
+        for (int i = 0; i < 300; i++) {
+            final GameObject o = rand.nextBoolean()
+                    ? new Projectile(rand.nextInt(1000), rand.nextInt(1000), 0, 0, 1, map,
+                            rand.nextBoolean() ? GameObject.Team.ENEMY : GameObject.Team.FRIEND)
+                    : new SimplePotion(1, "Potion", rand.nextInt(1000), rand.nextInt(1000));
+            objects.add(o);
+            grid.add(o);
+        }
+        final int enemyBullets = SpatialHashGrid.teamMask(GameObject.Team.ENEMY);
+        final int bullets = SpatialHashGrid.kindMask(GameObjectType.BULLET);
+        for (int round = 0; round < 100; round++) {
+            final CollisionBox area = new CollisionBox(rand.nextInt(1000), rand.nextInt(1000),
+                    rand.nextInt(300), rand.nextInt(300));
+            final List<GameObject> found = new ArrayList<>();
+            grid.query(area, enemyBullets, bullets, found);
+            assertEquals(objects.stream().filter((o) -> o.getTeam() == GameObject.Team.ENEMY
+                    && o.getKind() == GameObjectType.BULLET && o.getHitBox().overlaps(area))
+                    .collect(Collectors.toList()), found);
+            final List<GameObject> near = new ArrayList<>();
+            grid.queryRadius(area.getPosX(), area.getPosY(), 100, SpatialHashGrid.ALL, SpatialHashGrid.ALL, near);
+            assertEquals(objects.stream().filter((o) -> distance(o.getHitBox(), area.getPosX(), area.getPosY()) <= 100)
+                    .collect(Collectors.toList()), near);
+            // move, remove and add some objects
+            final GameObject moved = objects.get(rand.nextInt(objects.size()));
+            moved.getHitBox().setLocation(rand.nextInt(1000), rand.nextInt(1000));
+            grid.update(moved);
+            final GameObject removed = objects.remove(rand.nextInt(objects.size()));
+            assertTrue(grid.remove(removed));
+            assertFalse(grid.contains(removed));
+        }
+        assertEquals(objects.size(), grid.size());
+        final List<GameObject> all = new ArrayList<>();
+        grid.query(-10, -10, 2000, 2000, SpatialHashGrid.ALL, SpatialHashGrid.ALL, all);
+        assertEquals(objects, all);
+    }
+
+    @Test
+    void testNestedGridQueries() {
+        final TileMap map = new TileMapFactoryImpl().empty(10, 10);
+        final SpatialHashGrid grid = new SpatialHashGrid(1000, 1000, 64);
+        final List<GameObject> objects = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final GameObject o = new SimplePotion(1, "Potion", i * 40, 100);
+            objects.add(o);
+            grid.add(o);
+        }
+        final List<GameObject> visited = new ArrayList<>();
+        grid.forEach(0, 0, 1000, 1000, SpatialHashGrid.ALL, SpatialHashGrid.ALL, objects.get(0), (o) -> {
+            visited.add(o);
+            // the nearest object on the right of each one, found while the outer query is still running
+            final CollisionBox box = o.getHitBox();
+            final var right = grid.findFirst(box.getPosX() + 1, box.getPosY(), 40, box.getHeight(),
+                    SpatialHashGrid.ALL, SpatialHashGrid.ALL, o, (x) -> true);
+            final int i = objects.indexOf(o);
+            assertEquals(i + 1 < objects.size() ? objects.get(i + 1) : null, right.orElse(null));
+        });
+        assertEquals(objects.subList(1, objects.size()), visited);
+    }
+
+    @Test
+    void testUpdateRegions() {
+        final TileMap map = new TileMapFactoryImpl().empty(10, 10);
+        final EntityStore store = new EntityStore();
+        final SpatialHashGrid grid = new SpatialHashGrid(1000, 1000, 64);
+        final List<GameObject> objects = List.of(
+                new SimplePotion(1, "Potion", 10, 10),
+                new SimplePotion(1, "Potion", 300, 10),
+                // across the border between the first two strips
+                new SimplePotion(1, "Potion", 245, 100),
+                // next to the first one
+                new SimplePotion(1, "Potion", 20, 10),
+                // near each other, given how far they move
+                new Projectile(100, 200, 15, 0, 1, map, GameObject.Team.FRIEND),
+                new Projectile(135, 200, -15, 0, 1, map, GameObject.Team.FRIEND),
+                // next to the extra object
+                new SimplePotion(1, "Potion", 610, 600));
+        objects.forEach(store::add);
+        objects.forEach(grid::add);
+        final UpdateRegions regions = new UpdateRegions(1000, 256);
+        regions.split(store, grid, (i) -> true, new SimplePotion(1, "Potion", 600, 600));
+        assertEquals(4, regions.regionCount());
+        assertEquals(List.of(0, 3, 4, 5), indexes(regions.regionSize(0), (k) -> regions.regionIndexAt(0, k)));
+        assertEquals(List.of(1), indexes(regions.regionSize(1), (k) -> regions.regionIndexAt(1, k)));
+        assertEquals(0, regions.regionSize(2));
+        assertEquals(List.of(2, 6), indexes(regions.followUpSize(), regions::followUpIndexAt));
+
+        regions.split(store, grid, (i) -> i != 3, new SimplePotion(1, "Potion", 600, 600));
+        // an object which isn't updated still keeps its group together
+        assertEquals(List.of(0, 4, 5), indexes(regions.regionSize(0), (k) -> regions.regionIndexAt(0, k)));
+    }
+
+    private static List<Integer> indexes(final int size, final IntUnaryOperator indexAt) {
+        return IntStream.range(0, size).map(indexAt).boxed().collect(Collectors.toList());
+    }
 }
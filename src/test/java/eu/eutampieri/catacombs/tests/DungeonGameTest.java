@@ -1,10 +1,42 @@
 package eu.eutampieri.catacombs.tests;
 
+import eu.eutampieri.catacombs.game.Clock;
+import eu.eutampieri.catacombs.game.HeadlessRuntime;
+import eu.eutampieri.catacombs.game.Replay;
+import eu.eutampieri.catacombs.game.ReplayPlayer;
+import eu.eutampieri.catacombs.game.ReplayRecorder;
+import eu.eutampieri.catacombs.model.map.ChunkedTileMap;
+import eu.eutampieri.catacombs.model.map.GenerationParameters;
+import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
+import eu.eutampieri.catacombs.ui.DungeonGame;
+import eu.eutampieri.catacombs.ui.FixedTimestep;
 import eu.eutampieri.catacombs.ui.GameConfiguration;
+import eu.eutampieri.catacombs.ui.State;
+import eu.eutampieri.catacombs.ui.Viewport;
+import eu.eutampieri.catacombs.ui.World;
+import eu.eutampieri.catacombs.ui.input.InputSource;
+import eu.eutampieri.catacombs.ui.input.SampledInput;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class DungeonGameTest {
@@ -22,4 +54,248 @@ class DungeonGameTest {
         gc.setTitle("Game");
         assertEquals(gc.getFps(), FPS);
     }
+
+    @Test
+    void testLeaveState() {
+        final DungeonGame game = new DungeonGame();
+        final List<String> left = new ArrayList<>();
+        final State first = leavingState(game, "first", left);
+        final State second = leavingState(game, "second", left);
+        game.setState(first);
+        game.setState(first);
+        assertEquals(List.of(), left);
+        game.setState(second);
+        assertEquals(List.of("first"), left);
+        // the current state is left also when the game ends, e.g. when its window is closed
+        game.end();
+        assertEquals(List.of("first", "second"), left);
+    }
+
+    @Test
+    void testFixedTimestep() {
+        assertThrows(IllegalArgumentException.class, () -> new FixedTimestep(0, 1));
+        final FixedTimestep timestep = new FixedTimestep(30, 3);
+        final long tick = 1_000_000_000L / 30;
+        // frames shorter than an update run no update, but move the interpolation on
+        assertEquals(0, timestep.advance(tick / 2));
+        assertEquals(0.5f, timestep.getInterpolation(), 0.01f);
+        assertEquals(1, timestep.advance(tick / 2 + tick / 4));
+        assertEquals(0.25f, timestep.getInterpolation(), 0.01f);
+        // after a hitch only a few updates are run and the time left is dropped
+        assertEquals(3, timestep.advance(10 * tick));
+        assertTrue(timestep.getInterpolation() < 1);
+        // a second of updates always simulates a second, whatever the frame rate
+        final FixedTimestep second = new FixedTimestep(30, 5);
+        long simulated = 0;
+        for (int frame = 0; frame < 144; frame++) {
+            final int ticks = second.advance(1_000_000_000L / 144 + 1);
+            for (int i = 0; i < ticks; i++) {
+                simulated += second.nextDelta();
+            }
+        }
+        assertEquals(30, second.getTicks());
+        assertEquals(1_000, simulated);
+    }
+
+    @Test
+    void testHeadlessRuntime() throws IOException {
+        final HeadlessRuntime runtime = HeadlessRuntime.unthrottled(new TileMapFactoryImpl().seededDef(7),
+                Viewport.of(GAME_SIZE, GAME_SIZE), InputSource.NONE, 30);
+        // a stepping clock makes each step run one update at once
+        assertEquals(1, runtime.step());
+        final long run = runtime.run(300);
+        assertEquals(runtime.isOver() ? run : 300, run);
+        assertEquals(run + 1, runtime.getTicks());
+
+        final Clock stopped = Clock.stepping(0);
+        final HeadlessRuntime waiting = new HeadlessRuntime(new TileMapFactoryImpl().seededDef(7),
+                Viewport.of(GAME_SIZE, GAME_SIZE), (keyCode) -> true, stopped, 30);
+        assertEquals(0, waiting.step());
+        assertEquals(0, waiting.getTicks());
+
+        // updates due but beyond the limit of a run are run by the next step, not dropped
+        final HeadlessRuntime triple = new HeadlessRuntime(new TileMapFactoryImpl().seededDef(7),
+                Viewport.of(GAME_SIZE, GAME_SIZE), InputSource.NONE, 42, false, Clock.stepping(3 * 1_000_000_000L / 30),
+                30);
+        assertEquals(4, triple.run(4));
+        assertEquals(2, triple.run(2));
+        assertEquals(6, triple.step());
+        assertEquals(12, triple.getTicks());
+
+        // the same seed plays the same way, whether the world is updated in parallel or not
+        final HeadlessRuntime serial = new HeadlessRuntime(new TileMapFactoryImpl().seededDef(7),
+                Viewport.of(GAME_SIZE, GAME_SIZE), InputSource.NONE, 42, false, Clock.stepping(1_000_000_000L / 30),
+                30);
+        final HeadlessRuntime parallel = new HeadlessRuntime(new TileMapFactoryImpl().seededDef(7),
+                Viewport.of(GAME_SIZE, GAME_SIZE), InputSource.NONE, 42, true, Clock.stepping(1_000_000_000L / 30),
+                30);
+        assertTrue(parallel.getWorld().isParallelUpdate());
+        assertEquals(serial.run(100), parallel.run(100));
+        assertArrayEquals(stateOf(serial.getWorld()), stateOf(parallel.getWorld()));
+    }
+
+    @Test
+    void testReplay() throws IOException {
+        final List<byte[]> lastStates = new ArrayList<>();
+        for (final boolean parallel : new boolean[] {false, true}) {
+            final int[] tick = {0};
+            // walks right, then down, firing every few updates
+            final InputSource script = (keyCode) -> keyCode == (tick[0] < 80 ? KeyEvent.VK_D : KeyEvent.VK_S)
+                    || keyCode == KeyEvent.VK_SPACE && tick[0] % 7 == 0;
+            final World world = new World(new TileMapFactoryImpl(true).seededDef(7), Viewport.of(GAME_SIZE, GAME_SIZE),
+                    script, 42);
+            world.setParallelUpdate(parallel);
+            final ReplayRecorder recorder = new ReplayRecorder(7, world, Viewport.of(GAME_SIZE, GAME_SIZE), 50);
+            final List<byte[]> states = new ArrayList<>();
+            states.add(stateOf(world));
+            for (; tick[0] < 200; tick[0]++) {
+                recorder.update(33 + tick[0] % 3 / 2);
+                states.add(stateOf(world));
+            }
+            final ByteArrayOutputStream file = new ByteArrayOutputStream();
+            recorder.getReplay().write(file);
+            final Replay replay = Replay.read(new ByteArrayInputStream(file.toByteArray()));
+            assertEquals(200, replay.getTicks());
+            assertEquals(5, replay.getKeyframeCount());
+            assertEquals(parallel, replay.isParallelUpdate());
+            assertEquals(SampledInput.bitOf(KeyEvent.VK_D) | SampledInput.bitOf(KeyEvent.VK_SPACE), replay.maskAt(0));
+            assertEquals(34, replay.deltaAt(2));
+
+            final ReplayPlayer player = new ReplayPlayer(replay);
+            assertArrayEquals(states.get(0), stateOf(player.getWorld()));
+            while (player.step()) {
+                assertArrayEquals(states.get((int) player.getTick()), stateOf(player.getWorld()));
+            }
+            assertTrue(player.isFinished());
+            // seeking restores the last keyframe before the tick, also going back
+            for (final int to : new int[] {120, 175, 30, 0, 200, 99}) {
+                player.seek(to);
+                assertEquals(to, player.getTick());
+                assertArrayEquals(states.get(to), stateOf(player.getWorld()));
+            }
+            assertThrows(IllegalArgumentException.class, () -> player.seek(201));
+            lastStates.add(states.get(200));
+        }
+        // the entities draw their random numbers from streams of their own, so the order of the updates doesn't matter
+        assertArrayEquals(lastStates.get(0), lastStates.get(1));
+        assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(new byte[] {1, 2, 3})));
+    }
+
+    @Test
+    void testChunkedReplay() throws IOException {
+        final int chunks = 64;
+        final int[] tick = {0};
+        final InputSource script = (keyCode) -> keyCode == (tick[0] < 60 ? KeyEvent.VK_D : KeyEvent.VK_S);
+        final ChunkedTileMap map = (ChunkedTileMap) new TileMapFactoryImpl(true).chunked(7, chunks, chunks);
+        final World world = new World(map, Viewport.of(GAME_SIZE, GAME_SIZE), script, 42);
+        // the starting population is spawned in the chunks around the player, not all over the map
+        assertTrue(map.loadedChunks() <= 4 * 4);
+        final ReplayRecorder recorder = new ReplayRecorder(7, chunks, world, Viewport.of(GAME_SIZE, GAME_SIZE), 50);
+        for (; tick[0] < 120; tick[0]++) {
+            recorder.update(33);
+        }
+        // only the chunks around the player are kept once the game runs
+        assertTrue(map.loadedChunks() <= 5 * 5);
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        recorder.getReplay().write(file);
+        final Replay replay = Replay.read(new ByteArrayInputStream(file.toByteArray()));
+        assertEquals(chunks, replay.getMapChunks());
+        final ReplayPlayer player = new ReplayPlayer(replay);
+        player.seek(replay.getTicks());
+        assertArrayEquals(stateOf(world), stateOf(player.getWorld()));
+    }
+
+    @Test
+    void testParameterizedReplay() throws IOException {
+        final GenerationParameters parameters = GenerationParameters.DEFAULT.withCorridorWidth(2);
+        final InputSource script = (keyCode) -> keyCode == KeyEvent.VK_W;
+        final World world = new World(new TileMapFactoryImpl(true).seeded(7, parameters),
+                Viewport.of(GAME_SIZE, GAME_SIZE), script, 42);
+        final ReplayRecorder recorder = new ReplayRecorder(7, parameters, world, Viewport.of(GAME_SIZE, GAME_SIZE), 50);
+        for (int tick = 0; tick < 100; tick++) {
+            recorder.update(33);
+        }
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        recorder.getReplay().write(file);
+        final Replay replay = Replay.read(new ByteArrayInputStream(file.toByteArray()));
+        // the map is made again with the parameters it was recorded on, not the default ones
+        assertEquals(parameters, replay.getParameters());
+        assertEquals(0, replay.getMapChunks());
+        final ReplayPlayer player = new ReplayPlayer(replay);
+        player.seek(replay.getTicks());
+        assertArrayEquals(stateOf(world), stateOf(player.getWorld()));
+        // replays from before the parameters were recorded were played with the default ones
+        assertEquals(GenerationParameters.DEFAULT,
+                Replay.read(new ByteArrayInputStream(replayWithKeyframe(0))).getParameters());
+    }
+
+    @Test
+    void testUntrustedReplay() throws IOException {
+        final World world = new World(new TileMapFactoryImpl(true).seededDef(7), Viewport.of(GAME_SIZE, GAME_SIZE),
+                (keyCode) -> false, 42);
+        // a state holding a class outside the model where the random service should be
+        final ByteArrayOutputStream state = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(state)) {
+            out.writeLong(0);
+            out.writeBoolean(false);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeObject(new HashMap<>(Map.of("key", "value")));
+        }
+        // rejected by the filter before being built, not just found of the wrong type afterwards
+        assertThrows(InvalidClassException.class, () -> world.readState(new ByteArrayInputStream(state.toByteArray())));
+        final byte[] valid = stateOf(world);
+        world.readState(new ByteArrayInputStream(valid));
+        assertArrayEquals(valid, stateOf(world));
+
+        // a keyframe claiming far more bytes than a state can have, and one claiming more than the file holds
+        assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(replayWithKeyframe(0xFF, 0xFF,
+                0xFF, 0xFF, 0x0F))));
+        assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(replayWithKeyframe(0x80, 0x01))));
+    }
+
+    private static State leavingState(final DungeonGame game, final String name, final List<String> left) {
+        return new State(game) {
+            @Override
+            public void update(final long delta) {
+            }
+
+            @Override
+            public void render(final Graphics2D g2) {
+            }
+
+            @Override
+            public void leave() {
+                left.add(name);
+            }
+        };
+    }
+
+    /**
+     * @return a replay with no updates and a keyframe at tick 0 of the given varint length and no bytes.
+     */
+    private static byte[] replayWithKeyframe(final int... length) throws IOException {
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(new GZIPOutputStream(file))) {
+            data.writeInt(0x43_52_50_4C);
+            data.writeByte(1);
+            data.writeLong(7);
+            data.writeLong(42);
+            data.writeInt(GAME_SIZE);
+            data.writeInt(GAME_SIZE);
+            data.writeBoolean(false);
+            // no updates, no runs of masks and deltas, one keyframe at tick 0
+            data.write(new byte[] {0, 0, 0, 1, 0});
+            for (final int b : length) {
+                data.writeByte(b);
+            }
+        }
+        return file.toByteArray();
+    }
+
+    private static byte[] stateOf(final World world) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        world.writeState(out);
+        return out.toByteArray();
+    }
 }
@@ -1,15 +1,39 @@
 package eu.eutampieri.catacombs.tests;
 
+import eu.eutampieri.catacombs.model.map.ChunkedTileMap;
+import eu.eutampieri.catacombs.model.map.Corridor;
+import eu.eutampieri.catacombs.model.map.Dungeon;
+import eu.eutampieri.catacombs.model.map.GenerationParameters;
+import eu.eutampieri.catacombs.model.map.PackedTileMap;
+import eu.eutampieri.catacombs.model.map.Room;
+import eu.eutampieri.catacombs.model.map.RoomGraph;
 import eu.eutampieri.catacombs.model.map.TileMapImpl;
+import eu.eutampieri.catacombs.model.map.WallMask;
 import org.junit.jupiter.api.Test;
 
 import eu.eutampieri.catacombs.model.map.Tile;
 import eu.eutampieri.catacombs.model.map.TileMap;
+import eu.eutampieri.catacombs.model.map.TileMapCodec;
 import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
+import eu.eutampieri.catacombs.model.map.TileMapStore;
 import org.junit.jupiter.api.TestInstance;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -25,6 +49,38 @@ class MapTests {
         }
     }
 
+    /**
+     * Maps the generator made for some seeds with the default parameters: seed, width, height and FNV-1a hash of
+     * the ordinals of the tiles, row by row.
+     * A change of the generator which changes them must increase TileMapFactoryImpl.GENERATOR_VERSION.
+     */
+    private static final long[][] GOLDEN_MAPS = {
+        {0, 129, 148, 0x0f92_e3e4_39a8_7b02L},
+        {1, 159, 127, 0x17a1_998e_d8f9_41d4L},
+        {7, 167, 176, 0xbd2f_a3d5_73c0_ca22L},
+        {42, 131, 206, 0xe492_b8e2_91a1_4369L},
+        {1_234_567, 138, 209, 0xdb27_fe9a_6b8d_403aL},
+    };
+    private static final long FNV_OFFSET_BASIS = 0xCBF2_9CE4_8422_2325L;
+    private static final long FNV_PRIME = 0x100_0000_01B3L;
+
+    @Test
+    public void testGoldenMaps() {
+        final TileMapFactoryImpl mf = new TileMapFactoryImpl(true);
+        for (final long[] golden : GOLDEN_MAPS) {
+            final TileMap map = mf.seeded(golden[0], GenerationParameters.DEFAULT);
+            assertEquals(golden[1], map.width());
+            assertEquals(golden[2], map.height());
+            long hash = FNV_OFFSET_BASIS;
+            for (int y = 0; y < map.height(); y++) {
+                for (int x = 0; x < map.width(); x++) {
+                    hash = (hash ^ map.at(x, y).ordinal()) * FNV_PRIME;
+                }
+            }
+            assertEquals(golden[3], hash, "map of seed " + golden[0]);
+        }
+    }
+
     @Test
     public void testMultipleMapWontFail() {
         final TileMapFactoryImpl mf = new TileMapFactoryImpl();
@@ -33,6 +89,193 @@ class MapTests {
         }
     }
 
+    @Test
+    public void testSeededMapIsDeterministic() {
+        final TileMapFactoryImpl mf = new TileMapFactoryImpl();
+        final long seed = 42;
+        final TileMap a = mf.seededDef(seed);
+        mf.def();
+        final TileMap b = mf.seededDef(seed);
+        assertEquals(a.width(), b.width());
+        assertEquals(a.height(), b.height());
+        for (int y = 0; y < a.height(); y++) {
+            for (int x = 0; x < a.width(); x++) {
+                assertEquals(a.at(x, y), b.at(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testBatchGenerationMatchesSerial() {
+        final TileMapFactoryImpl mf = new TileMapFactoryImpl(true);
+        final int count = 8;
+        final List<TileMap> maps = mf.generateAll(LongStream.range(0, count));
+        assertEquals(count, maps.size());
+        for (int i = 0; i < count; i++) {
+            final PackedTileMap serial = (PackedTileMap) mf.seededDef(i);
+            final PackedTileMap parallel = (PackedTileMap) maps.get(i);
+            assertEquals(serial.width(), parallel.width());
+            assertArrayEquals(serial.getPackedTiles(), parallel.getPackedTiles());
+        }
+    }
+
+    @Test
+    public void testChunkedMapRegeneratesDroppedChunks() {
+        final int chunks = 8;
+        final ChunkedTileMap tm = (ChunkedTileMap) new TileMapFactoryImpl().chunked(3, chunks, chunks);
+        final int side = ChunkedTileMap.CHUNK_SIDE;
+        final Tile[] corner = new Tile[side * side];
+        for (int i = 0; i < corner.length; i++) {
+            corner[i] = tm.at(i % side, i / side);
+        }
+        tm.focusOn(tm.width() - 1, tm.height() - 1);
+        assertTrue(tm.loadedChunks() <= 3 * 3);
+        for (int i = 0; i < corner.length; i++) {
+            assertEquals(corner[i], tm.at(i % side, i / side));
+        }
+        checkMap(tm);
+    }
+
+    @Test
+    public void testPackedMapMatchesTileMapImpl() {
+        final long seed = 7;
+        final TileMap expected = new TileMapFactoryImpl().seededDef(seed);
+        final TileMap packed = new TileMapFactoryImpl(true).seededDef(seed);
+        assertTrue(packed instanceof PackedTileMap);
+        assertEquals(expected.width(), packed.width());
+        assertEquals(expected.height(), packed.height());
+        for (int y = -1; y <= expected.height(); y++) {
+            for (int x = -1; x <= expected.width(); x++) {
+                assertEquals(expected.at(x, y), packed.at(x, y));
+                assertEquals(expected.isWalkable(x, y), packed.isWalkable(x, y));
+                assertEquals(expected.canSpawnAt(x, y), packed.canSpawnAt(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testParameterizedGeneration() {
+        final TileMapFactoryImpl mf = new TileMapFactoryImpl(true);
+        final long seed = 11;
+        assertArrayEquals(((PackedTileMap) mf.seededDef(seed)).getPackedTiles(),
+                ((PackedTileMap) mf.seeded(seed, GenerationParameters.DEFAULT)).getPackedTiles());
+        checkMap(mf.seeded(seed, new GenerationParameters(2000, 4, 8, 10, 14)));
+        assertThrows(IllegalArgumentException.class, () -> new GenerationParameters(10, 8, 4, 10, 14));
+        assertThrows(IllegalArgumentException.class, () -> new GenerationParameters(10, 4, 8, 10, 14, 0));
+        // wider corridors only dig more tiles around the same ones
+        final TileMap narrow = mf.seededDef(seed);
+        final TileMap wide = mf.seeded(seed, GenerationParameters.DEFAULT.withCorridorWidth(2));
+        assertEquals(narrow.width(), wide.width());
+        assertEquals(narrow.height(), wide.height());
+        int dug = 0;
+        for (int y = 0; y < narrow.height(); y++) {
+            for (int x = 0; x < narrow.width(); x++) {
+                assertTrue(!narrow.isWalkable(x, y) || wide.isWalkable(x, y));
+                if (wide.isWalkable(x, y) && !narrow.isWalkable(x, y)) {
+                    dug++;
+                }
+            }
+        }
+        assertTrue(dug > 0);
+        checkMap(wide);
+    }
+
+    @Test
+    public void testDungeonRoomGraph() {
+        final TileMapFactoryImpl mf = new TileMapFactoryImpl(true);
+        final long seed = 5;
+        final Dungeon dungeon = mf.dungeon(seed, GenerationParameters.DEFAULT);
+        assertArrayEquals(((PackedTileMap) mf.seededDef(seed)).getPackedTiles(),
+                ((PackedTileMap) dungeon.getMap()).getPackedTiles());
+        final RoomGraph graph = dungeon.getRooms();
+        final int nRooms = GenerationParameters.DEFAULT.getRooms();
+        assertEquals(nRooms, graph.getRooms().size());
+        for (final Room room : graph.getRooms()) {
+            assertEquals(room.getIndex(), graph.roomIndexAt(room.getCenterX(), room.getCenterY()));
+            assertEquals(Tile.FLOOR, dungeon.getMap().at(room.getMinX(), room.getMaxY()));
+        }
+        assertEquals(-1, graph.roomIndexAt(0, 0));
+        for (final Corridor corridor : graph.getCorridors()) {
+            for (int i = 0; i < corridor.getLength(); i++) {
+                assertEquals(Tile.FLOOR, dungeon.getMap().at(corridor.getX(i), corridor.getY(i)));
+            }
+        }
+        // the rooms are connected
+        final boolean[] reached = new boolean[nRooms];
+        final Deque<Integer> toVisit = new ArrayDeque<>(List.of(0));
+        reached[0] = true;
+        int count = 1;
+        while (!toVisit.isEmpty()) {
+            for (final int next : graph.adjacentRooms(toVisit.pop())) {
+                if (!reached[next]) {
+                    reached[next] = true;
+                    count++;
+                    toVisit.push(next);
+                }
+            }
+        }
+        assertEquals(nRooms, count);
+    }
+
+    @Test
+    public void testStoredMapRoundTrip() throws IOException {
+        final Path dir = Files.createTempDirectory("maps");
+        final TileMapFactoryImpl mf = new TileMapFactoryImpl();
+        final long seed = -3;
+        final TileMap expected = mf.seededDef(seed);
+        assertFalse(new TileMapStore(dir, 1).load(seed).isPresent());
+        assertEquals(expected.width(), new TileMapStore(dir, 1).loadOrGenerate(seed, mf).width());
+        final TileMapStore store = new TileMapStore(dir, 1);
+        assertTrue(store.contains(seed));
+        assertEquals(Set.of(seed), store.seeds());
+        final Optional<TileMap> loaded = store.load(seed);
+        assertTrue(loaded.isPresent());
+        assertArrayEquals(PackedTileMap.of(expected).getPackedTiles(),
+                PackedTileMap.of(loaded.get()).getPackedTiles());
+        final ByteBuffer encoded = TileMapCodec.encode(seed, GenerationParameters.DEFAULT, expected);
+        assertEquals(GenerationParameters.DEFAULT, TileMapCodec.readHeader(encoded).getParameters());
+        final GenerationParameters wide = GenerationParameters.DEFAULT.withCorridorWidth(2);
+        assertEquals(wide, TileMapCodec.readHeader(TileMapCodec.encode(seed, wide, mf.seeded(seed, wide)))
+                .getParameters());
+        assertEquals(TileMapFactoryImpl.GENERATOR_VERSION, TileMapCodec.readHeader(encoded).getGeneratorVersion());
+        assertThrows(IllegalArgumentException.class, () -> TileMapCodec.decode(encoded.limit(encoded.limit() - 1)));
+
+        // maps stored with other parameters or by an older generator are generated again
+        final Path file = dir.resolve(String.format("%016x.map", seed));
+        store.save(seed, wide, mf.seeded(seed, wide));
+        assertArrayEquals(PackedTileMap.of(expected).getPackedTiles(),
+                PackedTileMap.of(store.loadOrGenerate(seed, mf)).getPackedTiles());
+        assertEquals(GenerationParameters.DEFAULT, headerOf(file).getParameters());
+        // the same map as stored before the version of the generator was: version 2, without the int after the seed
+        final ByteBuffer unversioned = ByteBuffer.allocate(encoded.clear().remaining() - Integer.BYTES);
+        unversioned.put(encoded.limit(Integer.BYTES + 2 + Long.BYTES)).put(Integer.BYTES, (byte) 2);
+        unversioned.put(encoded.limit(encoded.capacity()).position(encoded.position() + Integer.BYTES)).flip();
+        assertEquals(TileMapCodec.UNKNOWN_GENERATOR_VERSION,
+                TileMapCodec.readHeader(unversioned).getGeneratorVersion());
+        assertArrayEquals(PackedTileMap.of(expected).getPackedTiles(),
+                TileMapCodec.decode(unversioned).getPackedTiles());
+        Files.write(file, unversioned.array());
+        new TileMapStore(dir, 1).loadOrGenerate(seed, mf);
+        assertEquals(TileMapFactoryImpl.GENERATOR_VERSION, headerOf(file).getGeneratorVersion());
+
+        // a map with no runs to speak of is stored packed, and read back from the memory-mapped file
+        final PackedTileMap.Builder checkers = new PackedTileMap.Builder(37, 23);
+        for (int y = 0; y < checkers.height(); y++) {
+            for (int x = 0; x < checkers.width(); x++) {
+                checkers.set(x, y, (x + y) % 2 == 0 ? Tile.FLOOR : Tile.WALL);
+            }
+        }
+        store.save(1, GenerationParameters.DEFAULT, checkers.build());
+        final Optional<TileMap> mapped = new TileMapStore(dir, 0).load(1);
+        assertTrue(mapped.isPresent());
+        assertArrayEquals(checkers.build().getPackedTiles(), PackedTileMap.of(mapped.get()).getPackedTiles());
+        assertEquals(Tile.WALL, mapped.get().at(36, 21));
+    }
+
+    private static TileMapCodec.Header headerOf(final Path file) throws IOException {
+        return TileMapCodec.readHeader(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
     @Test
     public void testMapClone() {
         final TileMapImpl tm = (TileMapImpl) new TileMapFactoryImpl().def();
@@ -68,6 +311,22 @@ class MapTests {
         }
     }
 
+    @Test
+    public void testWallMask() {
+        final TileMap map = new TileMapFactoryImpl().seededDef(3);
+        final byte[] masks = WallMask.of(map);
+        for (int y = 0; y < map.height(); y++) {
+            for (int x = 0; x < map.width(); x++) {
+                assertEquals(WallMask.of(map, x, y), masks[y * map.width() + x] & 0xFF);
+            }
+        }
+        final TileMap empty = new TileMapFactoryImpl().empty(3, 3);
+        // the empty map has a single floor in the middle
+        assertEquals(0xFF, WallMask.of(empty, 1, 1));
+        assertEquals(0xFF & ~WallMask.SOUTH_EAST, WallMask.of(empty, 0, 0));
+        assertEquals(0xFF & ~WallMask.NORTH, WallMask.of(empty, 1, 2));
+    }
+
     @Test
     public final void testOutOfBounds() {
         final int mapSize = 5;
@@ -1,7 +1,10 @@
 package eu.eutampieri.catacombs.tests;
 
 import eu.eutampieri.catacombs.model.Bat;
+import eu.eutampieri.catacombs.model.Entity;
 import eu.eutampieri.catacombs.model.GameObject;
+import eu.eutampieri.catacombs.model.RandomService;
+import eu.eutampieri.catacombs.model.Slime;
 import eu.eutampieri.catacombs.model.map.TileMap;
 import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
 import eu.eutampieri.catacombs.model.gen.MobFactoryImpl;
@@ -10,10 +13,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -39,6 +45,28 @@ class MobFactoryTest {
         assertEquals(entities.size(), 10);
     }
 
+    @Test
+    void testSpawnNear() {
+        final int range = 3;
+        final Entity center = MF.spawnAt(SPAWN_X_TILE, SPAWN_Y_TILE, Bat::new).get(0);
+        for (int i = 0; i < 100; i++) {
+            final List<Entity> spawned = MF.spawnNear(range, center, Bat::new);
+            assertEquals(spawned.size(), 1);
+            final int dx = Math.abs(spawned.get(0).getPosX() / AssetManagerProxy.getMapTileSize() - SPAWN_X_TILE);
+            final int dy = Math.abs(spawned.get(0).getPosY() / AssetManagerProxy.getMapTileSize() - SPAWN_Y_TILE);
+            assertTrue(dx >= 1 && dx <= range && dy >= 1 && dy <= range);
+        }
+    }
+
+    @Test
+    void testSpawnWithoutRoom() {
+        final MobFactoryImpl mf = new MobFactoryImpl(new TileMapFactoryImpl().empty(2, 2));
+        final Entity center = MF.spawnAt(SPAWN_X_TILE, SPAWN_Y_TILE, Bat::new).get(0);
+        assertTrue(mf.spawnSome(3, Bat::new).isEmpty());
+        assertTrue(mf.spawnNear(1, center, Bat::new).isEmpty());
+        assertTrue(MF.spawnNear(1000, center, Bat::new).size() == 1);
+    }
+
     @Test
     void testSpawnRandom() {
         List<GameObject> entities;
@@ -47,4 +75,41 @@ class MobFactoryTest {
         assertTrue(entities.size() <= MobFactoryImpl.MAX_MOB_NUMBER);
     }
 
+    @Test
+    void testSpawnRandomNear() {
+        final int range = 20;
+        final Entity center = MF.spawnAt(100, 100, Bat::new).get(0);
+        final List<Entity> entities = MF.spawnRandomNear(range, center);
+        assertFalse(entities.isEmpty());
+        for (final Entity e : entities) {
+            assertTrue(Math.abs(e.getPosX() / AssetManagerProxy.getMapTileSize() - 100) <= range);
+            assertTrue(Math.abs(e.getPosY() / AssetManagerProxy.getMapTileSize() - 100) <= range);
+        }
+    }
+
+    @Test
+    void testRandomService() {
+        final RandomService service = new RandomService(42);
+        final Slime first = new Slime(0, 0, TILE_MAP);
+        final Slime second = new Slime(0, 0, TILE_MAP);
+        assertThrows(IllegalArgumentException.class, () -> service.forObject(first, 0));
+        service.register(first);
+        service.register(second);
+        // a stream only depends on the seed, the object and the update
+        assertEquals(service.forObject(first, 3).nextLong(), new RandomService(42).forObject(first, 3).nextLong());
+        assertNotEquals(service.forObject(first, 3).nextLong(), service.forObject(second, 3).nextLong());
+        assertNotEquals(service.forObject(first, 3).nextLong(), service.forObject(first, 4).nextLong());
+        assertNotEquals(service.forSubsystem(RandomService.Subsystem.POPULATION, 0).nextLong(),
+                service.forSubsystem(RandomService.Subsystem.BOSS, 0).nextLong());
+
+        final List<Entity> spawned = new MobFactoryImpl(TILE_MAP, new SplittableRandom(7)).spawnRandom();
+        final List<Entity> again = new MobFactoryImpl(TILE_MAP, new SplittableRandom(7)).spawnRandom();
+        assertEquals(spawned.size(), again.size());
+        for (int i = 0; i < spawned.size(); i++) {
+            assertEquals(spawned.get(i).getClass(), again.get(i).getClass());
+            assertEquals(spawned.get(i).getPosX(), again.get(i).getPosX());
+            assertEquals(spawned.get(i).getPosY(), again.get(i).getPosY());
+        }
+    }
+
 }
@@ -3,10 +3,21 @@ package eu.eutampieri.catacombs.tests;
 import eu.eutampieri.catacombs.model.map.TileMapFactoryImpl;
 import eu.eutampieri.catacombs.model.map.TileMap;
 import eu.eutampieri.catacombs.model.GameObject;
+import eu.eutampieri.catacombs.model.GameObjectType;
+import eu.eutampieri.catacombs.model.Gun;
 import eu.eutampieri.catacombs.model.Projectile;
+import eu.eutampieri.catacombs.model.ProjectilePool;
 import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class ProjectileTest {
     @Test
     public void testProjectile() {
@@ -14,4 +25,35 @@ public class ProjectileTest {
         final Projectile projectile = new Projectile(10, 10, 1, 0, 0, map, GameObject.Team.FRIEND);
         projectile.update(0, new ArrayList<GameObject>());
     }
+
+    @Test
+    public void testProjectilePool() {
+        final TileMap map = new TileMapFactoryImpl().empty(10, 10);
+        final ProjectilePool pool = new ProjectilePool(1);
+        final Gun gun = new Gun(null, map, 40, 40, GameObject.Team.FRIEND);
+        final List<GameObject> fired = new ArrayList<>();
+        gun.fire(1, 0, pool, fired::add);
+        final Projectile first = (Projectile) fired.get(0);
+        assertThrows(IllegalArgumentException.class, () -> pool.release(first));
+        // flying into the wall marks it for deletion
+        for (int i = 0; i < 100 && !first.isMarkedForDeletion(); i++) {
+            first.update(0, new ArrayList<GameObject>());
+        }
+        assertTrue(first.isMarkedForDeletion());
+        assertTrue(pool.release(first));
+        assertFalse(pool.release(first));
+        assertEquals(1, pool.available());
+        // the pool only gives projectiles of the same team back, reset
+        assertNotSame(first, pool.acquire(1, 1, 0, 0, 1, map, GameObject.Team.ENEMY, GameObjectType.BULLET, 8));
+        gun.setCanFire(true);
+        gun.fire(0, 1, pool, fired::add);
+        assertSame(first, fired.get(1));
+        assertEquals(0, pool.available());
+        assertFalse(first.isMarkedForDeletion());
+        assertEquals(GameObjectType.BULLET, first.getKind());
+        assertEquals(gun.getHitBox().getPosX(), first.getHitBox().getPosX());
+        assertEquals(gun.getHitBox().getPosY(), first.getPosY());
+        assertEquals(0, first.getSpeedX());
+        assertTrue(first.getSpeedY() > 0);
+    }
 }